@@ -0,0 +1,326 @@
+package quadtree;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author Abhinav Sethi
+ * @version 2021-10-23
+ * <p>
+ * Benchmark that compares the off-heap skip list with SkipList holding the
+ * same points. Every size prints the footprint of each list, the heap left
+ * in use after a full collection plus the arena of the off-heap list, then
+ * measures insert, search hits, iteration and remove.
+ * <p>
+ * An operation of search is one search. An operation of insert, iterate
+ * and remove is the whole list: every point inserted into an empty list,
+ * visited, or removed from a full one. Ten million points need a heap of a
+ * few gigabytes for SkipList and the same amount of direct memory for the
+ * arena.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+public class OffHeapBenchmark {
+
+    /**
+     * Full lists of one size
+     */
+    @State(Scope.Thread)
+    public static class Lists {
+
+        @Param({"10000", "100000", "1000000"})
+        public int size;
+
+        Point[] points;
+        SkipList<String, Point> heap;
+        OffHeapSkipList<Point> offHeap;
+        private int next;
+
+        /**
+         * Fill the lists and print their footprint.
+         */
+        @Setup(Level.Trial)
+        public void build() {
+            points = points(size);
+            long before = usedHeap();
+            heap = heap(points);
+            long heapBytes = usedHeap() - before;
+            before = usedHeap();
+            offHeap = new OffHeapSkipList<>(OffHeapSkipList.POINTS);
+            fill(offHeap, points);
+            long offHeapBytes = usedHeap() - before;
+            System.out.println(String.format("%d points footprint heap %.1f"
+                            + " B/pair | off-heap %.1f B/pair heap %.1f"
+                            + " B/pair arena", size, heapBytes / (double) size,
+                    offHeapBytes / (double) size,
+                    offHeap.usedBytes() / (double) size));
+        }
+
+        /**
+         * Return the names of the points one after the other.
+         *
+         * @return next name to search for
+         */
+        String next() {
+            String name = points[next].getName();
+            next = next + 1 == size ? 0 : next + 1;
+            return name;
+        }
+    }
+
+    /**
+     * Lists emptied before every invocation
+     */
+    @State(Scope.Thread)
+    public static class Empty {
+
+        @Param({"10000", "100000", "1000000"})
+        public int size;
+
+        Point[] points;
+        SkipList<String, Point> heap;
+        final OffHeapSkipList<Point> offHeap =
+                new OffHeapSkipList<>(OffHeapSkipList.POINTS);
+
+        /**
+         * Generate the points.
+         */
+        @Setup(Level.Trial)
+        public void generate() {
+            points = points(size);
+        }
+
+        /**
+         * Empty the lists.
+         */
+        @Setup(Level.Invocation)
+        public void empty() {
+            heap = new SkipList<>();
+            offHeap.clear();
+        }
+    }
+
+    /**
+     * Lists filled again before every invocation
+     */
+    @State(Scope.Thread)
+    public static class Full {
+
+        @Param({"10000", "100000", "1000000"})
+        public int size;
+
+        Point[] points;
+        SkipList<String, Point> heap;
+        final OffHeapSkipList<Point> offHeap =
+                new OffHeapSkipList<>(OffHeapSkipList.POINTS);
+
+        /**
+         * Generate the points.
+         */
+        @Setup(Level.Trial)
+        public void generate() {
+            points = points(size);
+        }
+
+        /**
+         * Fill the lists.
+         */
+        @Setup(Level.Invocation)
+        public void refill() {
+            heap = heap(points);
+            offHeap.clear();
+            fill(offHeap, points);
+        }
+    }
+
+    /**
+     * Insert every point into an empty SkipList.
+     *
+     * @param lists lists to insert into
+     * @return the list
+     */
+    @Benchmark
+    public SkipList<String, Point> heapInsert(Empty lists) {
+        for (Point point : lists.points) {
+            lists.heap.insert(new KVPair<>(point.getName(), point));
+        }
+        return lists.heap;
+    }
+
+    /**
+     * Insert every point into an empty off-heap list.
+     *
+     * @param lists lists to insert into
+     * @return the list
+     */
+    @Benchmark
+    public OffHeapSkipList<Point> offHeapInsert(Empty lists) {
+        fill(lists.offHeap, lists.points);
+        return lists.offHeap;
+    }
+
+    /**
+     * Search SkipList for the name of a point.
+     *
+     * @param lists lists to search
+     * @return number of pairs found
+     */
+    @Benchmark
+    public int heapSearch(Lists lists) {
+        return lists.heap.search(lists.next()).size();
+    }
+
+    /**
+     * Search the off-heap list for the name of a point.
+     *
+     * @param lists lists to search
+     * @return number of pairs found
+     */
+    @Benchmark
+    public int offHeapSearch(Lists lists) {
+        return lists.offHeap.search(lists.next()).size();
+    }
+
+    /**
+     * Visit every pair of SkipList.
+     *
+     * @param lists lists to iterate
+     * @return sum of the x-coordinates
+     */
+    @Benchmark
+    public long heapIterate(Lists lists) {
+        long sum = 0;
+        for (KVPair<String, Point> pair : lists.heap) {
+            sum += pair.getValue().x;
+        }
+        return sum;
+    }
+
+    /**
+     * Visit every pair of the off-heap list.
+     *
+     * @param lists lists to iterate
+     * @return sum of the x-coordinates
+     */
+    @Benchmark
+    public long offHeapIterate(Lists lists) {
+        long sum = 0;
+        for (KVPair<String, Point> pair : lists.offHeap) {
+            sum += pair.getValue().x;
+        }
+        return sum;
+    }
+
+    /**
+     * Remove every point from a full SkipList.
+     *
+     * @param lists lists to remove from
+     * @return size left, zero
+     */
+    @Benchmark
+    public int heapRemove(Full lists) {
+        for (Point point : lists.points) {
+            lists.heap.remove(point.getName(), point);
+        }
+        return lists.heap.size();
+    }
+
+    /**
+     * Remove every point from a full off-heap list.
+     *
+     * @param lists lists to remove from
+     * @return size left, zero
+     */
+    @Benchmark
+    public int offHeapRemove(Full lists) {
+        for (Point point : lists.points) {
+            lists.offHeap.remove(point.getName(), point);
+        }
+        return lists.offHeap.size();
+    }
+
+    /**
+     * Generate points with random names and coordinates.
+     *
+     * @param n number of points
+     * @return the points
+     */
+    static Point[] points(int n) {
+        Random random = new Random(1);
+        Point[] points = new Point[n];
+        for (int i = 0; i < n; i++) {
+            points[i] = new Point(name(random), random.nextInt(1024),
+                    random.nextInt(1024));
+        }
+        return points;
+    }
+
+    /**
+     * Build a SkipList of points keyed by name.
+     *
+     * @param points points to insert
+     * @return the list
+     */
+    static SkipList<String, Point> heap(Point[] points) {
+        SkipList<String, Point> list = new SkipList<>();
+        for (Point point : points) {
+            list.insert(new KVPair<>(point.getName(), point));
+        }
+        return list;
+    }
+
+    /**
+     * Insert points into an off-heap list keyed by name.
+     *
+     * @param list   list to insert into
+     * @param points points to insert
+     */
+    static void fill(OffHeapSkipList<Point> list, Point[] points) {
+        for (Point point : points) {
+            list.insert(new KVPair<>(point.getName(), point));
+        }
+    }
+
+    /**
+     * Return the heap in use after a full collection.
+     *
+     * @return used heap bytes
+     */
+    static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    /**
+     * Generate a random point name of eight letters.
+     *
+     * @param random source of the letters
+     * @return the name
+     */
+    static String name(Random random) {
+        char[] chars = new char[8];
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = (char) ('a' + random.nextInt(26));
+        }
+        return new String(chars);
+    }
+}
@@ -0,0 +1,298 @@
+package quadtree;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author Abhinav Sethi
+ * @version 2021-10-23
+ * <p>
+ * Benchmark that shows how the quadtree insert, remove, search,
+ * regionSearch and duplicates methods scale with the number of points and
+ * with their distribution, from a thousand to ten million points. Every
+ * method is measured for throughput and average time; run it with
+ * "-prof gc" for the allocation per operation.
+ * <p>
+ * The tree of every run is built directly from its points. Insert and
+ * remove then add or take a batch of a thousand points and put the tree
+ * back between invocations, so their scores are per point at the given
+ * size. An operation of search and regionSearch is one search, the region
+ * being 16 by 16 around a point of the tree, and an operation of
+ * duplicates is one pass over the whole tree. Output is counted, not
+ * printed. The diagonal holds only 1024 coordinates, so its leaves grow
+ * with the size and its insert and remove become linear in the number of
+ * points.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+public class QuadTreeGrowthBenchmark {
+
+    /**
+     * Size of the world quadrant used by the benchmark
+     */
+    private static final int WORLD_SIZE = 1024;
+
+    /**
+     * Number of points inserted or removed by one invocation
+     */
+    private static final int BATCH = 1000;
+
+    /**
+     * Number of points sharing each coordinate in the duplicates
+     * distribution
+     */
+    private static final int COPIES = 16;
+
+    /**
+     * Number of clusters in the clustered distribution
+     */
+    private static final int CLUSTERS = 16;
+
+    /**
+     * Standard deviation of the clusters in world units
+     */
+    private static final double SPREAD = 24;
+
+    /**
+     * How the points of a run are placed in the world
+     */
+    public enum Distribution {
+        /**
+         * Uniformly random, a balanced tree
+         */
+        UNIFORM,
+        /**
+         * Gaussian clusters around random centers, a dense and sparse tree
+         */
+        CLUSTERED,
+        /**
+         * Few coordinates shared by many points, leaves that cannot split
+         */
+        DUPLICATES,
+        /**
+         * Points on the diagonal, the deepest tree for its size
+         */
+        DIAGONAL;
+
+        /**
+         * Generate points with this distribution.
+         *
+         * @param n      number of points
+         * @param random source of the coordinates
+         * @return generated points
+         */
+        Point[] generate(int n, Random random) {
+            Point[] points = new Point[n];
+            int[][] centers = new int[CLUSTERS][];
+            for (int i = 0; i < CLUSTERS; i++) {
+                centers[i] = new int[] {random.nextInt(WORLD_SIZE),
+                    random.nextInt(WORLD_SIZE)};
+            }
+            for (int i = 0; i < n; i++) {
+                int x;
+                int y;
+                switch (this) {
+                    case CLUSTERED:
+                        int[] center = centers[random.nextInt(CLUSTERS)];
+                        x = clamp(center[0] + random.nextGaussian() * SPREAD);
+                        y = clamp(center[1] + random.nextGaussian() * SPREAD);
+                        break;
+                    case DUPLICATES:
+                        if (i % COPIES == 0) {
+                            x = random.nextInt(WORLD_SIZE);
+                            y = random.nextInt(WORLD_SIZE);
+                        }
+                        else {
+                            Point copy = points[i - i % COPIES];
+                            x = copy.x;
+                            y = copy.y;
+                        }
+                        break;
+                    case DIAGONAL:
+                        x = random.nextInt(WORLD_SIZE);
+                        y = x;
+                        break;
+                    default:
+                        x = random.nextInt(WORLD_SIZE);
+                        y = random.nextInt(WORLD_SIZE);
+                        break;
+                }
+                points[i] = new Point("p" + i, x, y);
+            }
+            return points;
+        }
+
+        private static int clamp(double value) {
+            return Math.max(0, Math.min(WORLD_SIZE - 1, (int) value));
+        }
+    }
+
+    /**
+     * Tree of one size and distribution, with the points it holds
+     */
+    @State(Scope.Thread)
+    public static class Tree {
+
+        @Param({"1000", "10000", "100000", "1000000", "10000000"})
+        public int size;
+
+        @Param({"UNIFORM", "CLUSTERED", "DUPLICATES", "DIAGONAL"})
+        public Distribution distribution;
+
+        // points of the tree, and after them the new points to insert
+        Point[] points;
+        // points of the tree removed as a batch, spread over the whole tree
+        Point[] batch;
+        QuadTreeNode root;
+        final CountingSink sink = new CountingSink();
+        final Rectangle region = new Rectangle(0, 0, 16, 16);
+        private int next;
+
+        /**
+         * Generate the points and build the tree.
+         */
+        @Setup(Level.Trial)
+        public void build() {
+            points = distribution.generate(size + BATCH, new Random(1));
+            Point[] copy = Arrays.copyOf(points, size);
+            root = QuadTreeNode.build(copy, 0, size, new Point[size], 0, 0,
+                    WORLD_SIZE);
+            batch = new Point[BATCH];
+            for (int i = 0; i < BATCH; i++) {
+                batch[i] = points[(int) ((long) i * size / BATCH)];
+            }
+        }
+
+        /**
+         * Return the points of the tree one after the other.
+         *
+         * @return next point of the tree
+         */
+        Point next() {
+            Point point = points[next];
+            next = next + 1 == size ? 0 : next + 1;
+            return point;
+        }
+    }
+
+    /**
+     * Tree that a batch of new points is inserted into
+     */
+    @State(Scope.Thread)
+    public static class Growing extends Tree {
+
+        /**
+         * Remove the batch inserted by the invocation.
+         */
+        @TearDown(Level.Invocation)
+        public void shrink() {
+            for (int i = size; i < size + BATCH; i++) {
+                root = root.remove(points[i], 0, 0, WORLD_SIZE);
+            }
+        }
+    }
+
+    /**
+     * Tree that a batch of its points is removed from
+     */
+    @State(Scope.Thread)
+    public static class Shrinking extends Tree {
+
+        /**
+         * Insert again the batch removed by the invocation.
+         */
+        @TearDown(Level.Invocation)
+        public void grow() {
+            for (Point point : batch) {
+                root = root.insert(point, 0, 0, WORLD_SIZE);
+            }
+        }
+    }
+
+    /**
+     * Insert a batch of new points.
+     *
+     * @param tree tree to insert into
+     * @return the root
+     */
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public QuadTreeNode insert(Growing tree) {
+        Point[] points = tree.points;
+        for (int i = tree.size; i < tree.size + BATCH; i++) {
+            tree.root = tree.root.insert(points[i], 0, 0, WORLD_SIZE);
+        }
+        return tree.root;
+    }
+
+    /**
+     * Remove a batch of points of the tree.
+     *
+     * @param tree tree to remove from
+     * @return the root
+     */
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public QuadTreeNode remove(Shrinking tree) {
+        for (Point point : tree.batch) {
+            tree.root = tree.root.remove(point, 0, 0, WORLD_SIZE);
+        }
+        return tree.root;
+    }
+
+    /**
+     * Search for a point of the tree.
+     *
+     * @param tree tree to search
+     * @return the point found
+     */
+    @Benchmark
+    public Point search(Tree tree) {
+        return tree.root.search(tree.next(), 0, 0, WORLD_SIZE);
+    }
+
+    /**
+     * Search the region around a point of the tree.
+     *
+     * @param tree tree to search
+     * @return number of nodes visited
+     */
+    @Benchmark
+    public int regionSearch(Tree tree) {
+        Point point = tree.next();
+        tree.region.setLocation(point.x - 8, point.y - 8);
+        return tree.root.regionSearch(tree.region, 0, 0, WORLD_SIZE,
+                tree.sink);
+    }
+
+    /**
+     * Report the duplicate points of the whole tree.
+     *
+     * @param tree tree to scan
+     * @return number of lines printed so far
+     */
+    @Benchmark
+    public long duplicates(Tree tree) {
+        tree.root.duplicates(tree.sink);
+        return tree.sink.getLines();
+    }
+}
@@ -0,0 +1,742 @@
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * @author Abhinav Sethi
+ * @version 2021-10-23
+ * <p>
+ * QuadTree engine that keeps the nodes and the point records in parallel
+ * primitive arrays instead of a graph of node, list and Point objects.
+ * <p>
+ * Internal nodes and leaf nodes are indices into their own columns.
+ * Four consecutive entries of the children column hold the children of an
+ * internal node, and the subtree column holds the number of points below
+ * it. A child reference is the index of an internal node, EMPTY
+ * for a quadrant without points (the flyweight of the pointer tree), or a
+ * negative value below EMPTY that encodes the index of a leaf node. Leaf
+ * nodes keep their first point slot and their number of records. A point
+ * is an index into the point columns holding its coordinates, its name and
+ * the next point slot of the same leaf, so leaf records keep their
+ * insertion order. Freed slots of every kind are chained on free lists
+ * through the children, leafStart and pointNext columns and are reused
+ * before the columns grow.
+ * <p>
+ * The tree follows the same decomposition rules as the pointer tree, so
+ * dump, regionsearch and duplicates print the same output.
+ */
+public class ArrayQuadTree implements QuadTree {
+
+    /**
+     * Reference used for a missing node or point slot
+     */
+    private static final int EMPTY = -1;
+
+    /**
+     * Initial capacity of the node and point columns
+     */
+    private static final int INITIAL_CAPACITY = 16;
+
+    private static final int NUM_QUADRANTS = 4;
+
+    /**
+     * Four child references per internal node,
+     * first entry links free internal nodes
+     */
+    private int[] children;
+
+    /**
+     * Number of points below an internal node
+     */
+    private int[] subtree;
+
+    /**
+     * First point slot of a leaf node, links free leaf nodes
+     */
+    private int[] leafStart;
+
+    /**
+     * Number of records of a leaf node
+     */
+    private int[] leafCount;
+
+    /**
+     * x-coordinates of the points
+     */
+    private int[] pointX;
+
+    /**
+     * y-coordinates of the points
+     */
+    private int[] pointY;
+
+    /**
+     * Names of the points. The strings are shared with the name index, so a
+     * reference column costs the same as an id into a separate name table.
+     */
+    private String[] pointName;
+
+    /**
+     * Next point slot within the same leaf, links free slots
+     */
+    private int[] pointNext;
+
+    private int root;
+    private int internalCount;
+    private int freeInternal;
+    private int leafNodeCount;
+    private int freeLeaf;
+    private int pointCount;
+    private int freePoint;
+
+    /**
+     * Constructor to initialize an empty tree
+     */
+    public ArrayQuadTree() {
+        children = new int[INITIAL_CAPACITY * NUM_QUADRANTS];
+        subtree = new int[INITIAL_CAPACITY];
+        leafStart = new int[INITIAL_CAPACITY];
+        leafCount = new int[INITIAL_CAPACITY];
+        pointX = new int[INITIAL_CAPACITY];
+        pointY = new int[INITIAL_CAPACITY];
+        pointName = new String[INITIAL_CAPACITY];
+        pointNext = new int[INITIAL_CAPACITY];
+        root = EMPTY;
+        freeInternal = EMPTY;
+        freeLeaf = EMPTY;
+        freePoint = EMPTY;
+    }
+
+    @Override
+    public void insert(Point point) {
+        int slot = newPoint(point);
+        root = insert(root, slot, 0, 0, WORLD_SIZE);
+    }
+
+    /**
+     * Insert a point slot below the given node
+     *
+     * @param node node reference
+     * @param slot point slot to insert
+     * @param x    x-coordinate of the quadrant origin
+     * @param y    y-coordinate of the quadrant origin
+     * @param size size of the quadrant
+     * @return reference of the node holding the point
+     */
+    private int insert(int node, int slot, int x, int y, int size) {
+        if (node == EMPTY) {
+            int leaf = newLeaf();
+            append(leaf, slot);
+            return leafRef(leaf);
+        }
+        if (node > EMPTY) {
+            int i = Quadrant.childIndex(pointX[slot], pointY[slot], x, y,
+                    size);
+            // the columns can grow during the call, so write the
+            // child reference back after it returns
+            int child = insert(children[node * NUM_QUADRANTS + i], slot,
+                    Quadrant.childX(i, x, size),
+                    Quadrant.childY(i, y, size), size >> 1);
+            children[node * NUM_QUADRANTS + i] = child;
+            subtree[node]++;
+            return node;
+        }
+
+        int leaf = leafIndex(node);
+        append(leaf, slot);
+        if (!shouldSplit(leaf)) {
+            return node;
+        }
+        // insert all records in a new internal node in their original order
+        int internal = newInternal();
+        int p = leafStart[leaf];
+        freeLeaf(leaf);
+        while (p != EMPTY) {
+            int next = pointNext[p];
+            insert(internal, p, x, y, size);
+            p = next;
+        }
+        return internal;
+    }
+
+    private boolean shouldSplit(int leaf) {
+        // no need to split if number of records less than 3
+        if (leafCount[leaf] <= 3) {
+            return false;
+        }
+        // split if there is any non-duplicate point
+        int first = leafStart[leaf];
+        for (int p = pointNext[first]; p != EMPTY; p = pointNext[p]) {
+            if (pointX[p] != pointX[first] || pointY[p] != pointY[first]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public void bulkLoad(Point[] points) {
+        root = build(points, 0, points.length, new Point[points.length], 0, 0,
+                WORLD_SIZE);
+    }
+
+    /**
+     * Build the subtree for a range of points. Point slots are handed out
+     * leaf by leaf, so the records of a leaf end up next to each other.
+     *
+     * @param points  points to store, reordered by quadrant
+     * @param from    index of the first point
+     * @param to      index after the last point
+     * @param scratch array of the same length used while partitioning
+     * @param x       x-coordinate of the quadrant origin
+     * @param y       y-coordinate of the quadrant origin
+     * @param size    size of the quadrant
+     * @return reference of the subtree root
+     */
+    private int build(Point[] points, int from, int to, Point[] scratch,
+                      int x, int y, int size) {
+        if (from == to) {
+            return EMPTY;
+        }
+        if (QuadTreeNode.fitsInLeaf(points, from, to)) {
+            int leaf = newLeaf();
+            int tail = EMPTY;
+            for (int i = from; i < to; i++) {
+                tail = append(leaf, tail, newPoint(points[i]));
+            }
+            return leafRef(leaf);
+        }
+        int[] bounds = Quadrant.partition(points, from, to, scratch, x, y,
+                size);
+        int node = newInternal();
+        for (int i = 0; i < NUM_QUADRANTS; ++i) {
+            int child = build(points, bounds[i], bounds[i + 1], scratch,
+                    Quadrant.childX(i, x, size), Quadrant.childY(i, y, size),
+                    size >> 1);
+            children[node * NUM_QUADRANTS + i] = child;
+        }
+        subtree[node] = to - from;
+        return node;
+    }
+
+    @Override
+    public void remove(Point point) {
+        root = remove(root, point, 0, 0, WORLD_SIZE);
+    }
+
+    /**
+     * Remove a point record below the given node and merge the children of
+     * internal nodes that hold three or less points.
+     *
+     * @param node  node reference
+     * @param point to remove
+     * @param x     x-coordinate of the quadrant origin
+     * @param y     y-coordinate of the quadrant origin
+     * @param size  size of the quadrant
+     * @return reference of the node or EMPTY if no points are left
+     */
+    private int remove(int node, Point point, int x, int y, int size) {
+        if (node == EMPTY) {
+            return EMPTY;
+        }
+        if (node < EMPTY) {
+            int leaf = leafIndex(node);
+            removeRecords(leaf, point);
+            if (leafCount[leaf] == 0) {
+                freeLeaf(leaf);
+                return EMPTY;
+            }
+            return node;
+        }
+
+        int i = Quadrant.childIndex(point.x, point.y, x, y, size);
+        int c = node * NUM_QUADRANTS + i;
+        int before = count(children[c]);
+        children[c] = remove(children[c], point, Quadrant.childX(i, x, size),
+                Quadrant.childY(i, y, size), size >> 1);
+        subtree[node] += count(children[c]) - before;
+        // an internal child always holds more than 3 points, so
+        // the subtree count alone tells if the children fit in a leaf
+        return subtree[node] <= 3 ? merge(node) : node;
+    }
+
+    private void removeRecords(int leaf, Point point) {
+        int prev = EMPTY;
+        int p = leafStart[leaf];
+        while (p != EMPTY) {
+            int next = pointNext[p];
+            if (pointX[p] == point.x && pointY[p] == point.y
+                    && pointName[p].equals(point.getName())) {
+                if (prev == EMPTY) {
+                    leafStart[leaf] = next;
+                }
+                else {
+                    pointNext[prev] = next;
+                }
+                leafCount[leaf]--;
+                freePoint(p);
+            }
+            else {
+                prev = p;
+            }
+            p = next;
+        }
+    }
+
+    /**
+     * Return the number of points below a node reference
+     *
+     * @param node node reference
+     * @return number of points
+     */
+    private int count(int node) {
+        if (node == EMPTY) {
+            return 0;
+        }
+        return node > EMPTY ? subtree[node] : leafCount[leafIndex(node)];
+    }
+
+    /**
+     * Replace an internal node by a leaf holding the records of its children
+     * in quadrant order.
+     *
+     * @param node internal node whose children are all leaves
+     * @return reference of the new leaf node
+     */
+    private int merge(int node) {
+        int leaf = newLeaf();
+        for (int i = 0; i < NUM_QUADRANTS; ++i) {
+            int child = children[node * NUM_QUADRANTS + i];
+            if (child < EMPTY) {
+                int p = leafStart[leafIndex(child)];
+                while (p != EMPTY) {
+                    int next = pointNext[p];
+                    append(leaf, p);
+                    p = next;
+                }
+                freeLeaf(leafIndex(child));
+            }
+        }
+        freeInternal(node);
+        return leafRef(leaf);
+    }
+
+    @Override
+    public boolean exists(Point point) {
+        int leaf = findLeaf(point);
+        if (leaf == EMPTY) {
+            return false;
+        }
+        for (int p = leafStart[leaf]; p != EMPTY; p = pointNext[p]) {
+            if (pointX[p] == point.x && pointY[p] == point.y
+                    && pointName[p].equals(point.getName())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public Point search(Point point) {
+        int leaf = findLeaf(point);
+        if (leaf == EMPTY) {
+            return null;
+        }
+        for (int p = leafStart[leaf]; p != EMPTY; p = pointNext[p]) {
+            if (pointX[p] == point.x && pointY[p] == point.y) {
+                return toPoint(p);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Descend to the leaf whose quadrant contains the point coordinates
+     *
+     * @param point coordinates to look for
+     * @return leaf index or EMPTY if the quadrant holds no points
+     */
+    private int findLeaf(Point point) {
+        int node = root;
+        int x = 0;
+        int y = 0;
+        int size = WORLD_SIZE;
+        while (node > EMPTY) {
+            int i = Quadrant.childIndex(point.x, point.y, x, y, size);
+            node = children[node * NUM_QUADRANTS + i];
+            x = Quadrant.childX(i, x, size);
+            y = Quadrant.childY(i, y, size);
+            size >>= 1;
+        }
+        return node == EMPTY ? EMPTY : leafIndex(node);
+    }
+
+    @Override
+    public int regionSearch(Rectangle region, OutputSink out) {
+        return regionSearch(root, region, 0, 0, WORLD_SIZE, out);
+    }
+
+    private int regionSearch(int node, Rectangle region, int x, int y,
+                             int size, OutputSink out) {
+        if (node == EMPTY) {
+            return 0;
+        }
+        if (node < EMPTY) {
+            int leaf = leafIndex(node);
+            for (int p = leafStart[leaf]; p != EMPTY; p = pointNext[p]) {
+                if (region.contains(pointX[p], pointY[p])) {
+                    out.println(Constants.REGION_SEARCH_FOUND, toPoint(p));
+                }
+            }
+            return 1;
+        }
+        int numVisited = 1;
+        int half = size >> 1;
+        for (int i = 0; i < NUM_QUADRANTS; ++i) {
+            int childX = Quadrant.childX(i, x, size);
+            int childY = Quadrant.childY(i, y, size);
+            if (Quadrant.intersects(region, childX, childY, half)) {
+                numVisited += regionSearch(children[node * NUM_QUADRANTS + i],
+                        region, childX, childY, half, out);
+            }
+        }
+        return numVisited;
+    }
+
+    @Override
+    public int regionCount(Rectangle region) {
+        return regionCount(root, region, 0, 0, WORLD_SIZE);
+    }
+
+    private int regionCount(int node, Rectangle region, int x, int y,
+                            int size) {
+        if (node == EMPTY) {
+            return 0;
+        }
+        if (Quadrant.isInside(region, x, y, size)) {
+            return count(node);
+        }
+        if (node < EMPTY) {
+            int numPoints = 0;
+            for (int p = leafStart[leafIndex(node)]; p != EMPTY;
+                 p = pointNext[p]) {
+                if (region.contains(pointX[p], pointY[p])) {
+                    numPoints++;
+                }
+            }
+            return numPoints;
+        }
+        int numPoints = 0;
+        int half = size >> 1;
+        for (int i = 0; i < NUM_QUADRANTS; ++i) {
+            int childX = Quadrant.childX(i, x, size);
+            int childY = Quadrant.childY(i, y, size);
+            if (Quadrant.intersects(region, childX, childY, half)) {
+                numPoints += regionCount(children[node * NUM_QUADRANTS + i],
+                        region, childX, childY, half);
+            }
+        }
+        return numPoints;
+    }
+
+    @Override
+    public int nearest(int x, int y, int k, OutputSink out) {
+        NearestQueue queue = new NearestQueue(x, y, k);
+        if (root != EMPTY) {
+            queue.offer(root, 0, 0, WORLD_SIZE);
+        }
+        int numVisited = 0;
+        int numFound = 0;
+        NearestQueue.Entry entry = queue.poll();
+        while (entry != null && numFound < k) {
+            if (entry.getPoint() != null) {
+                out.println(Constants.REGION_SEARCH_FOUND, entry.getPoint());
+                numFound++;
+            }
+            else {
+                offerChildren(queue, entry.getRef(), entry.getX(),
+                        entry.getY(), entry.getSize());
+                numVisited++;
+            }
+            entry = queue.poll();
+        }
+        return numVisited;
+    }
+
+    private void offerChildren(NearestQueue queue, int node, int x, int y,
+                               int size) {
+        if (node < EMPTY) {
+            for (int p = leafStart[leafIndex(node)]; p != EMPTY;
+                 p = pointNext[p]) {
+                queue.offer(toPoint(p));
+            }
+            return;
+        }
+        for (int i = 0; i < NUM_QUADRANTS; ++i) {
+            int child = children[node * NUM_QUADRANTS + i];
+            if (child != EMPTY) {
+                queue.offer(child, Quadrant.childX(i, x, size),
+                        Quadrant.childY(i, y, size), size >> 1);
+            }
+        }
+    }
+
+    @Override
+    public void duplicates(OutputSink out) {
+        duplicates(root, out);
+    }
+
+    private void duplicates(int node, OutputSink out) {
+        if (node > EMPTY) {
+            for (int i = 0; i < NUM_QUADRANTS; ++i) {
+                duplicates(children[node * NUM_QUADRANTS + i], out);
+            }
+            return;
+        }
+        if (node == EMPTY) {
+            return;
+        }
+        // same map of coordinates as the pointer leaf node
+        // so that duplicates print in the same order
+        HashMap<String, List<Point>> pointsMap = new HashMap<>();
+        for (int p = leafStart[leafIndex(node)]; p != EMPTY;
+             p = pointNext[p]) {
+            String key = Constants.DUPLICATE_FOUND.format(pointX[p],
+                    pointY[p]);
+            pointsMap.computeIfAbsent(key, k -> new ArrayList<>())
+                    .add(toPoint(p));
+        }
+        for (Map.Entry<String, List<Point>> entry : pointsMap.entrySet()) {
+            if (entry.getValue().size() > 1) {
+                out.println(entry.getKey());
+            }
+        }
+    }
+
+    @Override
+    public int dump(OutputSink out) {
+        return dump(root, 0, 0, WORLD_SIZE, 1, out);
+    }
+
+    private int dump(int node, int x, int y, int size, int depth,
+                     OutputSink out) {
+        Quadrant quadrant = new Quadrant(x, y, size);
+        if (node == EMPTY) {
+            out.println(Constants.DUMP_EMPTY_NODE, quadrant);
+            return 1;
+        }
+        if (node < EMPTY) {
+            out.println(Constants.DUMP_LEAF_NODE, quadrant);
+            for (int p = leafStart[leafIndex(node)]; p != EMPTY;
+                 p = pointNext[p]) {
+                for (int j = 0; j < depth - 1; j++) {
+                    out.print("  ");
+                }
+                out.println(toPoint(p).toString());
+            }
+            return 1;
+        }
+        int numVisited = 1;
+        out.println(Constants.DUMP_INTERNAL_NODE, quadrant);
+        for (int i = 0; i < NUM_QUADRANTS; ++i) {
+            for (int j = 0; j < depth; j++) {
+                out.print("  ");
+            }
+            numVisited += dump(children[node * NUM_QUADRANTS + i],
+                    Quadrant.childX(i, x, size), Quadrant.childY(i, y, size),
+                    size >> 1, depth + 1, out);
+        }
+        return numVisited;
+    }
+
+    @Override
+    public void writeLayout(DataOutput out, Map<Point, Integer> ids)
+            throws IOException {
+        writeNode(root, out, ids);
+    }
+
+    private void writeNode(int node, DataOutput out, Map<Point, Integer> ids)
+            throws IOException {
+        if (node > EMPTY) {
+            out.writeInt(Snapshot.INTERNAL);
+            for (int i = 0; i < NUM_QUADRANTS; ++i) {
+                writeNode(children[node * NUM_QUADRANTS + i], out, ids);
+            }
+            return;
+        }
+        out.writeInt(count(node));
+        if (node < EMPTY) {
+            for (int p = leafStart[leafIndex(node)]; p != EMPTY;
+                 p = pointNext[p]) {
+                out.writeInt(ids.get(toPoint(p)));
+            }
+        }
+    }
+
+    @Override
+    public void readLayout(ByteBuffer in, Point[] points) {
+        root = readNode(in, points);
+    }
+
+    private int readNode(ByteBuffer in, Point[] points) {
+        int tag = in.getInt();
+        if (tag == Snapshot.INTERNAL) {
+            int node = newInternal();
+            for (int i = 0; i < NUM_QUADRANTS; ++i) {
+                // the columns can grow during the call
+                int child = readNode(in, points);
+                children[node * NUM_QUADRANTS + i] = child;
+                subtree[node] += count(child);
+            }
+            return node;
+        }
+        if (tag == 0) {
+            return EMPTY;
+        }
+        int leaf = newLeaf();
+        int tail = EMPTY;
+        for (int i = 0; i < tag; i++) {
+            tail = append(leaf, tail, newPoint(points[in.getInt()]));
+        }
+        return leafRef(leaf);
+    }
+
+    /**
+     * Build a point object for output from a point slot
+     *
+     * @param slot point slot
+     * @return new point instance
+     */
+    private Point toPoint(int slot) {
+        return new Point(pointName[slot], pointX[slot], pointY[slot]);
+    }
+
+    private static int leafRef(int leaf) {
+        return EMPTY - 1 - leaf;
+    }
+
+    private static int leafIndex(int ref) {
+        return EMPTY - 1 - ref;
+    }
+
+    /**
+     * Add a point slot after the last record of a leaf. Leaves are short
+     * unless they hold duplicates, and a single insert walks the records
+     * for the split check anyway; bulk fills keep their own tail instead.
+     *
+     * @param leaf leaf index
+     * @param slot point slot to add
+     */
+    private void append(int leaf, int slot) {
+        int tail = leafStart[leaf];
+        if (tail != EMPTY) {
+            while (pointNext[tail] != EMPTY) {
+                tail = pointNext[tail];
+            }
+        }
+        append(leaf, tail, slot);
+    }
+
+    /**
+     * Add a point slot after a known last record of a leaf, so filling a
+     * leaf with m points costs O(m) however many of them are duplicates.
+     *
+     * @param leaf leaf index
+     * @param tail last point slot of the leaf, or EMPTY if it has none
+     * @param slot point slot to add
+     * @return the new last point slot, which is slot
+     */
+    private int append(int leaf, int tail, int slot) {
+        pointNext[slot] = EMPTY;
+        if (tail == EMPTY) {
+            leafStart[leaf] = slot;
+        }
+        else {
+            pointNext[tail] = slot;
+        }
+        leafCount[leaf]++;
+        return slot;
+    }
+
+    private int newInternal() {
+        int node;
+        if (freeInternal != EMPTY) {
+            node = freeInternal;
+            freeInternal = children[node * NUM_QUADRANTS];
+        }
+        else {
+            if ((internalCount + 1) * NUM_QUADRANTS > children.length) {
+                children = Arrays.copyOf(children, children.length * 2);
+                subtree = Arrays.copyOf(subtree, subtree.length * 2);
+            }
+            node = internalCount++;
+        }
+        Arrays.fill(children, node * NUM_QUADRANTS,
+                (node + 1) * NUM_QUADRANTS, EMPTY);
+        subtree[node] = 0;
+        return node;
+    }
+
+    private void freeInternal(int node) {
+        children[node * NUM_QUADRANTS] = freeInternal;
+        freeInternal = node;
+    }
+
+    private int newLeaf() {
+        int leaf;
+        if (freeLeaf != EMPTY) {
+            leaf = freeLeaf;
+            freeLeaf = leafStart[leaf];
+        }
+        else {
+            if (leafNodeCount == leafStart.length) {
+                int capacity = leafNodeCount * 2;
+                leafStart = Arrays.copyOf(leafStart, capacity);
+                leafCount = Arrays.copyOf(leafCount, capacity);
+            }
+            leaf = leafNodeCount++;
+        }
+        leafStart[leaf] = EMPTY;
+        leafCount[leaf] = 0;
+        return leaf;
+    }
+
+    private void freeLeaf(int leaf) {
+        leafStart[leaf] = freeLeaf;
+        freeLeaf = leaf;
+    }
+
+    private int newPoint(Point point) {
+        int slot;
+        if (freePoint != EMPTY) {
+            slot = freePoint;
+            freePoint = pointNext[slot];
+        }
+        else {
+            if (pointCount == pointX.length) {
+                int capacity = pointCount * 2;
+                pointX = Arrays.copyOf(pointX, capacity);
+                pointY = Arrays.copyOf(pointY, capacity);
+                pointName = Arrays.copyOf(pointName, capacity);
+                pointNext = Arrays.copyOf(pointNext, capacity);
+            }
+            slot = pointCount++;
+        }
+        pointX[slot] = point.x;
+        pointY[slot] = point.y;
+        pointName[slot] = point.getName();
+        pointNext[slot] = EMPTY;
+        return slot;
+    }
+
+    private void freePoint(int slot) {
+        pointName[slot] = null;
+        pointNext[slot] = freePoint;
+        freePoint = slot;
+    }
+}
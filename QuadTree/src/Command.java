@@ -30,9 +30,19 @@ public enum Command {
      * given point coordinates.
      */
     REGIONSEARCH,
+    /**
+     * Regioncount command to print out the number of points that lie
+     * within the given region.
+     */
+    REGIONCOUNT,
     /**
      * Duplicates command to print out all points having multiple instances
      * of the same coordinates.
      */
-    DUPLICATES
+    DUPLICATES,
+    /**
+     * Nearest command to print out the given number of points closest to
+     * the given coordinates.
+     */
+    NEAREST
 }
@@ -0,0 +1,308 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * @author Abhinav Sethi
+ * @version 2021-10-23
+ * <p>
+ * Streaming parser for command files that reads the bytes of a memory
+ * mapped file in place and calls the database for every command, accepting
+ * the same commands as the CommandProcessor.
+ * <p>
+ * Keywords are matched against the bytes of the line without regard to
+ * case and coordinates are parsed digit by digit, so the only objects
+ * created per line are the names of points. Files larger than one mapping
+ * are mapped in chunks that always end after a complete line.
+ */
+public class CommandParser {
+
+    /**
+     * Largest number of bytes mapped at once
+     */
+    static final int CHUNK_SIZE = 1 << 30;
+
+    /**
+     * Keywords of the commands in lower case, indexed by ordinal
+     */
+    private static final byte[][] KEYWORDS =
+            new byte[Command.values().length][];
+
+    static {
+        for (Command command : Command.values()) {
+            KEYWORDS[command.ordinal()] =
+                    command.name().toLowerCase().getBytes(UTF_8);
+        }
+    }
+
+    // the database the commands are fed to
+    private final Database data;
+
+    // input of the line being parsed
+    private ByteBuffer input;
+    private int position;
+    private int lineEnd;
+
+    // bounds of the last token read
+    private int tokenStart;
+    private int tokenEnd;
+
+    // copy of a name, since a mapped buffer has no backing array
+    private byte[] scratch = new byte[64];
+
+    /**
+     * Create a parser feeding a new database.
+     */
+    public CommandParser() {
+        this(new Database());
+    }
+
+    /**
+     * Create a parser feeding the given database.
+     *
+     * @param data database to call for every command
+     */
+    public CommandParser(Database data) {
+        this.data = data;
+    }
+
+    /**
+     * Map a command file and run every command in it.
+     *
+     * @param file path of the command file
+     * @throws IOException if the file cannot be read or has a line longer
+     *                     than a chunk
+     */
+    public void parse(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file,
+                StandardOpenOption.READ)) {
+            long size = channel.size();
+            long offset = 0;
+            while (offset < size) {
+                long length = Math.min(CHUNK_SIZE, size - offset);
+                boolean last = offset + length == size;
+                MappedByteBuffer chunk = channel.map(
+                        FileChannel.MapMode.READ_ONLY, offset, length);
+                int consumed = parse(chunk, last);
+                if (!last && consumed == 0) {
+                    throw new IOException("Line too long at byte " + offset);
+                }
+                offset += consumed;
+            }
+        }
+    }
+
+    /**
+     * Run every complete line of the buffer between its position and its
+     * limit. Blank lines are skipped.
+     *
+     * @param buffer     bytes of the commands
+     * @param endOfInput whether a last line without a line feed is complete
+     * @return number of bytes consumed, up to the start of the unfinished
+     * last line when the input does not end here
+     */
+    public int parse(ByteBuffer buffer, boolean endOfInput) {
+        input = buffer;
+        position = buffer.position();
+        int limit = buffer.limit();
+        while (position < limit) {
+            lineEnd = position;
+            while (lineEnd < limit && input.get(lineEnd) != '\n') {
+                lineEnd++;
+            }
+            if (lineEnd == limit && !endOfInput) {
+                break;
+            }
+            if (nextToken()) {
+                processLine();
+            }
+            position = Math.min(lineEnd + 1, limit);
+        }
+        input = null;
+        return position - buffer.position();
+    }
+
+    /**
+     * Identify the keyword just read and call the database with the
+     * arguments that follow it.
+     */
+    private void processLine() {
+        switch (keyword()) {
+            case DUMP:
+                data.dump();
+                break;
+            case INSERT:
+                String name = nextName();
+                int x = nextInt();
+                data.insert(new Point(name, x, nextInt()));
+                break;
+            case SEARCH:
+                data.search(nextName());
+                break;
+            case REMOVE:
+                if (remainingTokens() == 2) {
+                    int removeX = nextInt();
+                    data.remove(removeX, nextInt());
+                }
+                else {
+                    data.remove(nextName());
+                }
+                break;
+            case REGIONSEARCH:
+                int searchX = nextInt();
+                int searchY = nextInt();
+                int searchW = nextInt();
+                data.regionsearch(searchX, searchY, searchW, nextInt());
+                break;
+            case REGIONCOUNT:
+                int countX = nextInt();
+                int countY = nextInt();
+                int countW = nextInt();
+                data.regioncount(countX, countY, countW, nextInt());
+                break;
+            case DUPLICATES:
+                data.duplicates();
+                break;
+            case NEAREST:
+                int nearX = nextInt();
+                int nearY = nextInt();
+                data.nearest(nearX, nearY, nextInt());
+                break;
+            default:
+                //do nothing
+        }
+    }
+
+    /**
+     * Find the next token of the line.
+     *
+     * @return false if the line has no more tokens
+     */
+    private boolean nextToken() {
+        while (position < lineEnd && isSpace(input.get(position))) {
+            position++;
+        }
+        tokenStart = position;
+        while (position < lineEnd && !isSpace(input.get(position))) {
+            position++;
+        }
+        tokenEnd = position;
+        return tokenStart < tokenEnd;
+    }
+
+    /**
+     * Count the tokens left on the line without consuming them.
+     *
+     * @return number of remaining tokens
+     */
+    private int remainingTokens() {
+        int count = 0;
+        boolean inToken = false;
+        for (int i = position; i < lineEnd; i++) {
+            boolean space = isSpace(input.get(i));
+            if (!space && !inToken) {
+                count++;
+            }
+            inToken = !space;
+        }
+        return count;
+    }
+
+    /**
+     * Match the current token against the command keywords ignoring case.
+     *
+     * @return matching command
+     */
+    private Command keyword() {
+        int length = tokenEnd - tokenStart;
+        for (Command command : Command.values()) {
+            byte[] keyword = KEYWORDS[command.ordinal()];
+            if (keyword.length != length) {
+                continue;
+            }
+            int i = 0;
+            while (i < length
+                    && (input.get(tokenStart + i) | 0x20) == keyword[i]) {
+                i++;
+            }
+            if (i == length) {
+                return command;
+            }
+        }
+        throw new IllegalArgumentException("Unknown command: " + token());
+    }
+
+    /**
+     * Read the next token as a name.
+     *
+     * @return name of a point
+     */
+    private String nextName() {
+        requireToken();
+        return token();
+    }
+
+    /**
+     * Read the next token as a decimal int with an optional sign, without
+     * creating a String for it.
+     *
+     * @return value of the token
+     */
+    private int nextInt() {
+        requireToken();
+        int i = tokenStart;
+        boolean negative = input.get(i) == '-';
+        if (negative || input.get(i) == '+') {
+            i++;
+        }
+        if (i == tokenEnd) {
+            throw new NumberFormatException("For input string: " + token());
+        }
+        // accumulate negatively so that Integer.MIN_VALUE fits
+        long limit = negative ? Integer.MIN_VALUE : -Integer.MAX_VALUE;
+        long value = 0;
+        for (; i < tokenEnd; i++) {
+            int digit = input.get(i) - '0';
+            if (digit < 0 || digit > 9) {
+                throw new NumberFormatException(
+                        "For input string: " + token());
+            }
+            value = value * 10 - digit;
+            if (value < limit) {
+                throw new NumberFormatException(
+                        "For input string: " + token());
+            }
+        }
+        return (int) (negative ? value : -value);
+    }
+
+    private void requireToken() {
+        if (!nextToken()) {
+            throw new IllegalArgumentException("Missing argument");
+        }
+    }
+
+    /**
+     * @return current token decoded as a String
+     */
+    private String token() {
+        int length = tokenEnd - tokenStart;
+        if (scratch.length < length) {
+            scratch = new byte[Math.max(length, 2 * scratch.length)];
+        }
+        for (int i = 0; i < length; i++) {
+            scratch[i] = input.get(tokenStart + i);
+        }
+        return new String(scratch, 0, length, UTF_8);
+    }
+
+    private static boolean isSpace(byte b) {
+        return b == ' ' || b == '\t' || b == '\r' || b == '\f'
+                || b == 0x0B;
+    }
+}
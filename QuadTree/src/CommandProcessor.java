@@ -18,7 +18,16 @@ public class CommandProcessor {
      * commands to.
      */
     public CommandProcessor() {
-        data = new Database();
+        this(new Database());
+    }
+
+    /**
+     * Create a command processor feeding the given database.
+     *
+     * @param data database to call for every command
+     */
+    public CommandProcessor(Database data) {
+        this.data = data;
     }
 
 
@@ -27,11 +36,12 @@ public class CommandProcessor {
      * database as required. Each line command will be specified by one of the
      * keywords to perform the actions within the database required. These
      * actions are performed on specified objects and include insert, remove,
-     * regionsearch, search, duplicates, and dump. If the command in the
-     * file line is not one of these, an appropriate message will be written
-     * in the console. This processor method is called for each line in the
-     * file. Note that the methods called will themselves write to the console,
-     * this method does not, only calling methods that do.
+     * regionsearch, regioncount, search, duplicates, nearest, and dump. If
+     * the command in the file line is not one of these, an appropriate
+     * message will be written in the console. This processor method is
+     * called for each line in the file. Note that the methods called will
+     * themselves write to the console, this method does not, only calling
+     * methods that do.
      *
      * @param line a single line from the text file
      */
@@ -66,9 +76,20 @@ public class CommandProcessor {
                         Integer.parseInt(commands[3]),
                         Integer.parseInt(commands[4]));
                 break;
+            case REGIONCOUNT:
+                data.regioncount(Integer.parseInt(commands[1]),
+                        Integer.parseInt(commands[2]),
+                        Integer.parseInt(commands[3]),
+                        Integer.parseInt(commands[4]));
+                break;
             case DUPLICATES:
                 data.duplicates();
                 break;
+            case NEAREST:
+                data.nearest(Integer.parseInt(commands[1]),
+                        Integer.parseInt(commands[2]),
+                        Integer.parseInt(commands[3]));
+                break;
             default:
                 //do nothing
         }
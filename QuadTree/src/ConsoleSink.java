@@ -0,0 +1,30 @@
+/**
+ * @author Abhinav Sethi
+ * @version 2021-10-23
+ * <p>
+ * Sink printing every line to System.out as soon as it is printed. The
+ * stream is looked up on every call, so a replaced System.out receives
+ * the lines that follow.
+ */
+public class ConsoleSink implements OutputSink {
+
+    @Override
+    public void print(String text) {
+        System.out.print(text);
+    }
+
+    @Override
+    public void println(String line) {
+        System.out.println(line);
+    }
+
+    @Override
+    public void println(Message message, Object... arguments) {
+        System.out.println(message.format(arguments));
+    }
+
+    @Override
+    public void flush() {
+        System.out.flush();
+    }
+}
@@ -1,55 +1,84 @@
+import java.util.regex.Pattern;
+
 /**
  * @author Abhinav Sethi 
  * @version 2021-10-23
  * <p>
  * Class that defines all constant strings used in the program.
- * for the application.
+ * for the application. Patterns with placeholders are compiled once
+ * into Messages.
  */
 public class Constants {
 
     /**
      * Number of quadtree nodes visited
      */
-    public static final String NODES_VISITED = "{0} QuadTree Nodes Visited";
+    public static final Message NODES_VISITED =
+            new Message("{0} QuadTree Nodes Visited");
     /**
      * Regex to accept only alphanumeric and '_' characters
      */
     static final String VALID_REGEX = "[a-zA-Z0-9_]+";
 
+    /**
+     * Compiled pattern of the accepted names
+     */
+    static final Pattern VALID_NAME = Pattern.compile(VALID_REGEX);
+
     /**
      * Rejection message for when given point is not valid
      */
-    static final String REJECTED = "Point Rejected: {0}";
+    static final Message REJECTED = new Message("Point Rejected: {0}");
 
     /**
      * Rejection message for when given rectangle is not valid
      */
-    static final String REJECTED_RECTANGLE = "Rectangle Rejected: ({0})";
+    static final Message REJECTED_RECTANGLE =
+            new Message("Rectangle Rejected: ({0})");
 
     /**
      * Insert command accepted message
      */
-    static final String INSERT_ACCEPTED = "Point Inserted: {0}";
+    static final Message INSERT_ACCEPTED = new Message("Point Inserted: {0}");
 
     /**
      * Remove command output when point not found
      */
-    static final String REMOVE_NOT_FOUND = "Point Not Removed: {0}";
+    static final Message REMOVE_NOT_FOUND =
+            new Message("Point Not Removed: {0}");
 
     /**
      * Remove command output when point removed
      */
-    static final String REMOVE_ACCEPTED = "Point {0} Removed";
+    static final Message REMOVE_ACCEPTED = new Message("Point {0} Removed");
 
     /**
      * Regionsearch command output
      */
-    static final String REGIONSEARCH = "Points Intersecting Region: ({0})";
+    static final Message REGIONSEARCH =
+            new Message("Points Intersecting Region: ({0})");
 
     /**
      * Regionsearch point found output
      */
-    static final String REGION_SEARCH_FOUND = "Point Found: {0}";
+    static final Message REGION_SEARCH_FOUND = new Message("Point Found: {0}");
+
+    /**
+     * Regioncount command output
+     */
+    static final Message REGIONCOUNT =
+            new Message("Points Counted in Region ({0}): {1}");
+
+    /**
+     * Nearest command output
+     */
+    static final Message NEAREST = new Message("Nearest Points to {0}:");
+
+    /**
+     * Rejection message for when the number of nearest points is not positive
+     */
+    static final Message NEAREST_REJECTED =
+            new Message("Nearest Rejected: {0}");
 
     /**
      * DUPLICATES command output
@@ -59,12 +88,12 @@ public class Constants {
     /**
      * Search command output when point not found
      */
-    static final String SEARCH_NOT_FOUND = "Point Not Found: {0}";
+    static final Message SEARCH_NOT_FOUND = new Message("Point Not Found: {0}");
 
     /**
      * Remove command output when point found
      */
-    static final String SEARCH_FOUND = "Point Found {0}";
+    static final Message SEARCH_FOUND = new Message("Point Found {0}");
 
     /**
      * Dump command output header for list
@@ -79,17 +108,45 @@ public class Constants {
     /**
      * Dump command output with node details
      */
-    static final String DUMP_DETAIL_LIST = "level: {0} Value: {1}";
+    static final Message DUMP_DETAIL_LIST =
+            new Message("level: {0} Value: {1}");
 
     /**
      * Dump command output for skip list size
      */
-    static final String DUMP_SIZE_LIST = "Size is: {0}";
+    static final Message DUMP_SIZE_LIST =
+            new Message("The SkipList''s Size is: {0}");
 
     /**
      * Dump command output for tree size
      */
-    static final String DUMP_SIZE_TREE =
-            "QuadTree Size: {0} QuadTree Nodes Printed.";
+    static final Message DUMP_SIZE_TREE =
+            new Message("QuadTree Size: {0} QuadTree Nodes Printed.");
+
+    /**
+     * Dump command output for an empty tree node
+     */
+    static final Message DUMP_EMPTY_NODE = new Message("Node at {0}: Empty");
+
+    /**
+     * Dump command output for a leaf tree node
+     */
+    static final Message DUMP_LEAF_NODE = new Message("Node at {0}:");
+
+    /**
+     * Dump command output for an internal tree node
+     */
+    static final Message DUMP_INTERNAL_NODE =
+            new Message("Node at {0}: Internal");
+
+    /**
+     * Duplicates command output for coordinates holding several points
+     */
+    static final Message DUPLICATE_FOUND = new Message("({0}, {1})");
+
+    /**
+     * Output when the command file cannot be read
+     */
+    static final String INVALID_FILE = "Invalid file";
 
 }
@@ -1,6 +1,13 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
-
-import static java.text.MessageFormat.format;
+import java.util.Set;
 
 /**
  * This class is responsible for interfacing between the command processor and
@@ -16,6 +23,13 @@ import static java.text.MessageFormat.format;
  */
 public class Database {
 
+    /**
+     * A batch is merged into the SkipList in one sweep once it holds more
+     * than this fraction of the list, otherwise its pairs are inserted one
+     * by one.
+     */
+    static final int MERGE_RATIO = 8;
+
     // this is the SkipList object that we are using
     // a string for the name of the point and then
     // a point object, these are stored in a KVPair,
@@ -23,24 +37,53 @@ public class Database {
     private final SkipList<String, Point> list;
 
     /**
-     * Root node of the quad tree.
+     * Quad tree engine holding the points by their coordinates.
      */
-    private QuadTreeNode root;
+    private final QuadTree tree;
 
     /**
-     * Base quadrant having 1024 size
+     * Write-ahead log of the mutations, null when the database is only
+     * kept in memory.
      */
-    private final Quadrant worldQuadrant;
+    private WriteAheadLog log;
+
+    /**
+     * Sink receiving the output of the commands.
+     */
+    private final OutputSink out;
 
 
     /**
      * The constructor for this class initializes a SkipList object with String
-     * and point a its parameters.
+     * and point a its parameters, and a pointer based quad tree.
      */
     public Database() {
+        this(new PointerQuadTree());
+    }
+
+
+    /**
+     * Initializes the SkipList and uses the given quad tree engine for the
+     * coordinate based commands.
+     *
+     * @param tree empty quad tree engine to store the points in
+     */
+    public Database(QuadTree tree) {
+        this(tree, new ConsoleSink());
+    }
+
+
+    /**
+     * Initializes the SkipList and uses the given quad tree engine for the
+     * coordinate based commands and the given sink for their output.
+     *
+     * @param tree empty quad tree engine to store the points in
+     * @param out  sink to print the output of the commands to
+     */
+    public Database(QuadTree tree, OutputSink out) {
         list = new SkipList<String, Point>();
-        root = QuadTreeFlyweightNode.getInstance();
-        worldQuadrant = new Quadrant(0, 0, 1024);
+        this.tree = tree;
+        this.out = out;
     }
 
 
@@ -56,32 +99,97 @@ public class Database {
     public void insert(Point point) {
         // check if the given Point is valid
         if (isPointInvalid(point)) {
-            System.out.println(format(Constants.REJECTED, point));
+            out.println(Constants.REJECTED, point);
             return;
         }
 
         // reject insert of point with same name
         // and coordinates already exists
-        if (root.exists(point)) {
-            System.out.println(format(Constants.REJECTED, point));
+        if (tree.exists(point)) {
+            out.println(Constants.REJECTED, point);
             return;
         }
 
+        long seq = append(WriteAheadLog.INSERT, point);
         list.insert(new KVPair<>(point.getName(), point));
-        root = root.insert(point, worldQuadrant);
-        System.out.println(format(Constants.INSERT_ACCEPTED, point));
+        tree.insert(point);
+        commit(seq);
+        out.println(Constants.INSERT_ACCEPTED, point);
+    }
+
+    /**
+     * Inserts a batch of points. Every point is checked and reported the
+     * same way as by insert, and the accepted points end up in the same
+     * SkipList and QuadTree as if they were inserted one by one. When the
+     * database is empty the QuadTree is built from the whole batch at once
+     * instead of splitting leaves point by point, and a batch that is large
+     * next to the SkipList is merged into it in one sweep. The whole batch
+     * is committed to the write-ahead log at once before it is reported.
+     *
+     * @param points the Points to be inserted in order
+     */
+    public void insertAll(Collection<Point> points) {
+        boolean empty = list.size() == 0;
+        List<Point> accepted = new ArrayList<>(points.size());
+        List<Message> messages = new ArrayList<>(points.size());
+        List<Point> reported = new ArrayList<>(points.size());
+        Set<Point> batch = new HashSet<>();
+        long seq = 0;
+        for (Point point : points) {
+            // reject invalid points and points with same name
+            // and coordinates in the tree or earlier in the batch
+            if (isPointInvalid(point) || (!empty && tree.exists(point))
+                    || !batch.add(point)) {
+                messages.add(Constants.REJECTED);
+                reported.add(point);
+                continue;
+            }
+            seq = append(WriteAheadLog.INSERT, point);
+            accepted.add(point);
+            messages.add(Constants.INSERT_ACCEPTED);
+            reported.add(point);
+        }
+
+        if (accepted.size() > list.size() / MERGE_RATIO) {
+            // later points with the same name go first, as with insert
+            List<KVPair<String, Point>> pairs =
+                    new ArrayList<>(accepted.size());
+            for (int i = accepted.size() - 1; i >= 0; i--) {
+                Point point = accepted.get(i);
+                pairs.add(new KVPair<>(point.getName(), point));
+            }
+            pairs.sort(null);
+            list.insertAll(pairs);
+        }
+        else {
+            for (Point point : accepted) {
+                list.insert(new KVPair<>(point.getName(), point));
+            }
+        }
+        if (empty) {
+            tree.bulkLoad(accepted.toArray(new Point[0]));
+        }
+        else {
+            for (Point point : accepted) {
+                tree.insert(point);
+            }
+        }
+        commit(seq);
+        for (int i = 0; i < messages.size(); i++) {
+            out.println(messages.get(i), reported.get(i));
+        }
     }
 
     private static boolean isPointInvalid(Point point) {
         String name = point.getName();
         // validate key: only alphanumeric and '_' characters allowed
-        if (name != null && !name.matches(Constants.VALID_REGEX)) {
+        if (name != null && !Constants.VALID_NAME.matcher(name).matches()) {
             return true;
         }
         return point.x < 0
                 || point.y < 0
-                || point.x >= 1024
-                || point.y >= 1024;
+                || point.x >= QuadTree.WORLD_SIZE
+                || point.y >= QuadTree.WORLD_SIZE;
     }
 
 
@@ -94,12 +202,13 @@ public class Database {
     public void remove(String name) {
         KVPair<String, Point> removedPair = list.remove(name);
         if (removedPair == null) {
-            System.out.println(format(Constants.REMOVE_NOT_FOUND, name));
+            out.println(Constants.REMOVE_NOT_FOUND, name);
             return;
         }
-        root = root.remove(removedPair.getValue(), worldQuadrant);
-        System.out.println(format(Constants.REMOVE_ACCEPTED,
-                removedPair.getValue()));
+        long seq = append(WriteAheadLog.REMOVE, removedPair.getValue());
+        tree.remove(removedPair.getValue());
+        commit(seq);
+        out.println(Constants.REMOVE_ACCEPTED, removedPair.getValue());
     }
 
 
@@ -114,19 +223,22 @@ public class Database {
         Point tempPoint = new Point(null, x, y);
         // validate if Point is valid
         if (isPointInvalid(tempPoint)) {
-            System.out.println(format(Constants.REJECTED, tempPoint));
+            out.println(Constants.REJECTED, tempPoint);
             return;
         }
 
-        Point searchResult = root.search(tempPoint, worldQuadrant);
+        Point searchResult = tree.search(tempPoint);
         if (searchResult == null) {
-            System.out.println(format(Constants.SEARCH_NOT_FOUND,
-                    tempPoint));
+            out.println(Constants.SEARCH_NOT_FOUND, tempPoint);
             return;
         }
-        list.remove(searchResult.getName());
-        root = root.remove(searchResult, worldQuadrant);
-        System.out.println(format(Constants.REMOVE_ACCEPTED, searchResult));
+        // remove this very point from the SkipList, other points can
+        // have the same name
+        long seq = append(WriteAheadLog.REMOVE, searchResult);
+        list.remove(searchResult.getName(), searchResult);
+        tree.remove(searchResult);
+        commit(seq);
+        out.println(Constants.REMOVE_ACCEPTED, searchResult);
     }
 
 
@@ -142,13 +254,59 @@ public class Database {
         Rectangle tempRegion = new Rectangle(x, y, w, h);
         // validate if the width and height of region is positive
         if (w <= 0 || h <= 0) {
-            System.out.println(format(Constants.REJECTED_RECTANGLE,
-                    tempRegion));
+            out.println(Constants.REJECTED_RECTANGLE, tempRegion);
+            return;
+        }
+        out.println(Constants.REGIONSEARCH, tempRegion);
+        int numVisited = tree.regionSearch(tempRegion, out);
+        out.println(Constants.NODES_VISITED, numVisited);
+    }
+
+
+    /**
+     * Displays the number of Points inside the specified region.
+     *
+     * @param x x-Coordinate of the region
+     * @param y y-Coordinate of the region
+     * @param w width of the region
+     * @param h height of the region
+     */
+    public void regioncount(int x, int y, int w, int h) {
+        Rectangle tempRegion = new Rectangle(x, y, w, h);
+        // validate if the width and height of region is positive
+        if (w <= 0 || h <= 0) {
+            out.println(Constants.REJECTED_RECTANGLE, tempRegion);
             return;
         }
-        System.out.println(format(Constants.REGIONSEARCH, tempRegion));
-        int numVisited = root.regionSearch(tempRegion, worldQuadrant);
-        System.out.println(format(Constants.NODES_VISITED, numVisited));
+        int numPoints = tree.regionCount(tempRegion);
+        out.println(Constants.REGIONCOUNT, tempRegion,
+                String.valueOf(numPoints));
+    }
+
+
+    /**
+     * Displays the k Points closest to the specified coordinates, closest
+     * first, and the number of QuadTree nodes visited to find them.
+     *
+     * @param x x-Coordinate to search from
+     * @param y y-Coordinate to search from
+     * @param k number of Points to find
+     */
+    public void nearest(int x, int y, int k) {
+        Point tempPoint = new Point(null, x, y);
+        // validate if Point is valid
+        if (isPointInvalid(tempPoint)) {
+            out.println(Constants.REJECTED, tempPoint);
+            return;
+        }
+        // validate if the number of points is positive
+        if (k <= 0) {
+            out.println(Constants.NEAREST_REJECTED, String.valueOf(k));
+            return;
+        }
+        out.println(Constants.NEAREST, tempPoint);
+        int numVisited = tree.nearest(x, y, k, out);
+        out.println(Constants.NODES_VISITED, numVisited);
     }
 
 
@@ -157,8 +315,8 @@ public class Database {
      * Quadtree method for duplicates.
      */
     public void duplicates() {
-        System.out.println(Constants.DUPLICATES);
-        root.duplicates();
+        out.println(Constants.DUPLICATES);
+        tree.duplicates(out);
     }
 
 
@@ -171,11 +329,11 @@ public class Database {
     public void search(String name) {
         List<KVPair<String, Point>> result = list.search(name);
         if (result.isEmpty()) {
-            System.out.println(format(Constants.SEARCH_NOT_FOUND, name));
+            out.println(Constants.SEARCH_NOT_FOUND, name);
             return;
         }
         for (KVPair<String, Point> pair : result) {
-            System.out.println(format(Constants.SEARCH_FOUND, pair.getValue()));
+            out.println(Constants.SEARCH_FOUND, pair.getValue());
         }
     }
 
@@ -186,11 +344,190 @@ public class Database {
      * all of the contents.
      */
     public void dump() {
-        list.dump();
+        list.dump(out);
+
+        out.println(Constants.DUMP_HEADER_TREE);
+        int numVisited = tree.dump(out);
+        out.println(Constants.DUMP_SIZE_TREE, numVisited);
+    }
+
 
-        System.out.println(Constants.DUMP_HEADER_TREE);
-        int numVisited = root.dump(worldQuadrant, 1);
-        System.out.println(format(Constants.DUMP_SIZE_TREE, numVisited));
+    /**
+     * Writes a binary snapshot of the SkipList and the QuadTree to a file,
+     * see the Snapshot class for the format.
+     *
+     * @param fileName path of the snapshot file
+     * @throws IOException if the snapshot cannot be written
+     */
+    public void save(String fileName) throws IOException {
+        Snapshot.write(Paths.get(fileName), list, tree,
+                log == null ? 0 : log.getSequence());
+    }
+
+
+    /**
+     * Writes a snapshot that replaces the given snapshot file atomically,
+     * then empties the write-ahead log as the snapshot holds all of its
+     * records.
+     *
+     * @param fileName path of the snapshot file
+     * @throws IOException if the snapshot or the log cannot be written
+     */
+    public void checkpoint(String fileName) throws IOException {
+        Path file = Paths.get(fileName);
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        save(temp.toString());
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+        if (log != null) {
+            log.truncate();
+        }
+    }
+
+
+    /**
+     * Opens a database from a snapshot file with a pointer based quad tree.
+     *
+     * @param fileName path of the snapshot file
+     * @return database holding the points of the snapshot
+     * @throws IOException if the snapshot cannot be read or is corrupted
+     */
+    public static Database open(String fileName) throws IOException {
+        return open(fileName, new PointerQuadTree());
+    }
+
+
+    /**
+     * Opens a database from a snapshot file with the given quad tree engine.
+     * The SkipList and the tree layout are restored as they were saved.
+     *
+     * @param fileName path of the snapshot file
+     * @param tree     empty quad tree engine to load the points in
+     * @return database holding the points of the snapshot
+     * @throws IOException if the snapshot cannot be read or is corrupted
+     */
+    public static Database open(String fileName, QuadTree tree)
+            throws IOException {
+        return open(fileName, tree, new ConsoleSink());
+    }
+
+
+    /**
+     * Opens a database from a snapshot file with the given quad tree engine
+     * and the given sink for the output of the commands.
+     *
+     * @param fileName path of the snapshot file
+     * @param tree     empty quad tree engine to load the points in
+     * @param out      sink to print the output of the commands to
+     * @return database holding the points of the snapshot
+     * @throws IOException if the snapshot cannot be read or is corrupted
+     */
+    public static Database open(String fileName, QuadTree tree,
+                                OutputSink out) throws IOException {
+        Database database = new Database(tree, out);
+        Snapshot.read(Paths.get(fileName), database.list, tree);
+        return database;
+    }
+
+
+    /**
+     * Recovers a database after a restart. The snapshot is opened if it
+     * exists, the records of the log that are newer than the snapshot are
+     * replayed on top of it, and the following mutations are written to
+     * the same log.
+     *
+     * @param fileName path of the snapshot file, which may not exist yet
+     * @param log      write-ahead log of the database
+     * @param tree     empty quad tree engine to load the points in
+     * @return database holding the recovered points
+     * @throws IOException if the snapshot or the log cannot be read
+     */
+    public static Database recover(String fileName, WriteAheadLog log,
+                                   QuadTree tree) throws IOException {
+        return recover(fileName, log, tree, new ConsoleSink());
+    }
+
+
+    /**
+     * Recovers a database after a restart as recover does, with the given
+     * sink for the output of the commands. Replaying the log prints
+     * nothing.
+     *
+     * @param fileName path of the snapshot file, which may not exist yet
+     * @param log      write-ahead log of the database
+     * @param tree     empty quad tree engine to load the points in
+     * @param out      sink to print the output of the commands to
+     * @return database holding the recovered points
+     * @throws IOException if the snapshot or the log cannot be read
+     */
+    public static Database recover(String fileName, WriteAheadLog log,
+                                   QuadTree tree, OutputSink out)
+            throws IOException {
+        Database database = new Database(tree, out);
+        long sequence = 0;
+        if (Files.exists(Paths.get(fileName))) {
+            sequence = Snapshot.read(Paths.get(fileName), database.list,
+                    tree);
+        }
+        log.replay(sequence, database::apply);
+        database.log = log;
+        return database;
+    }
+
+
+    /**
+     * Closes the write-ahead log after its last records are forced to the
+     * storage device.
+     *
+     * @throws IOException if the log cannot be written
+     */
+    public void close() throws IOException {
+        if (log != null) {
+            log.close();
+        }
+    }
+
+
+    /**
+     * Applies a record of the write-ahead log without any output.
+     *
+     * @param type  INSERT or REMOVE
+     * @param point the Point inserted or removed
+     */
+    private void apply(byte type, Point point) {
+        if (type == WriteAheadLog.INSERT) {
+            list.insert(new KVPair<>(point.getName(), point));
+            tree.insert(point);
+        }
+        else {
+            list.remove(point.getName(), point);
+            tree.remove(point);
+        }
+    }
+
+
+    /**
+     * Appends a mutation to the write-ahead log if there is one.
+     *
+     * @param type  INSERT or REMOVE
+     * @param point the Point inserted or removed
+     * @return sequence number of the record, 0 without a log
+     */
+    private long append(byte type, Point point) {
+        return log == null ? 0 : log.append(type, point);
+    }
+
+
+    /**
+     * Waits until the write-ahead log holds the record with the given
+     * sequence number as its durability level requires.
+     *
+     * @param seq sequence number of the record
+     */
+    private void commit(long seq) {
+        if (log != null) {
+            log.commit(seq);
+        }
     }
 
 }
@@ -1,5 +1,21 @@
 import student.TestCase;
 
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
 /**
  * @author Abhinav Sethi 
  * @version 2021-10-23
@@ -125,6 +141,22 @@ public class DatabaseTest extends TestCase {
     }
 
 
+    /**
+     * Test that removing by value takes the removed point out of the
+     * SkipList when other points have the same name.
+     */
+    public void testRemoveByValueSameName() {
+        database.insert(new Point("r1", 10, 10));
+        database.insert(new Point("r1", 20, 20));
+
+        database.remove(10, 10);
+        systemOut().clearHistory();
+        database.search("r1");
+        assertEquals("Point Found (r1, 20, 20)\n",
+                systemOut().getHistory());
+    }
+
+
     /**
      * Test to check regionsearch command output.
      * Should print all rectangles that lie in the given region.
@@ -157,6 +189,25 @@ public class DatabaseTest extends TestCase {
                 "Rectangle Rejected: (5, 5, 200, 0)\n"));
     }
 
+    /**
+     * Test to check regioncount command output.
+     * Should print the number of points that lie in the given region.
+     */
+    public void testRegionCount() {
+        insertData();
+        database.insert(new Point("r6", 100, 100));
+
+        database.regioncount(5, 5, 200, 200);
+        database.regioncount(0, 0, 1024, 1024);
+        database.regioncount(300, 100, 1, 1);
+        database.regioncount(5, 5, 0, 200);
+        assertTrue(systemOut().getHistory().endsWith(
+                "Points Counted in Region (5, 5, 200, 200): 5\n" +
+                        "Points Counted in Region (0, 0, 1024, 1024): 6\n" +
+                        "Points Counted in Region (300, 100, 1, 1): 1\n" +
+                        "Rectangle Rejected: (5, 5, 0, 200)\n"));
+    }
+
     /**
      * Test to check intersections command output.
      * Should print all pairs of rectangles that intersect each other.
@@ -207,6 +258,435 @@ public class DatabaseTest extends TestCase {
 
     }
 
+    /**
+     * Test to check nearest command output.
+     * Should print the closest points first and reject invalid queries.
+     */
+    public void testNearest() {
+        insertData();
+
+        database.nearest(90, 90, 3);
+        assertTrue(systemOut().getHistory().contains(
+                "Nearest Points to (90, 90):\n" +
+                        "Point Found: (r2, 100, 100)\n" +
+                        "Point Found: (r5, 100, 200)\n" +
+                        "Point Found: (r1, 10, 10)\n" +
+                        "6 QuadTree Nodes Visited\n"));
+        database.nearest(1000, 1000, 10);
+        assertTrue(systemOut().getHistory().contains(
+                "Nearest Points to (1000, 1000):\n" +
+                        "Point Found: (r4, 300, 100)\n" +
+                        "Point Found: (r3, 200, 150)\n" +
+                        "Point Found: (r5, 100, 200)\n" +
+                        "Point Found: (r2, 100, 100)\n" +
+                        "Point Found: (r1, 10, 10)\n" +
+                        "7 QuadTree Nodes Visited\n"));
+        database.nearest(-1, 5, 1);
+        assertTrue(systemOut().getHistory().contains(
+                "Point Rejected: (-1, 5)"));
+        database.nearest(5, 5, 0);
+        assertTrue(systemOut().getHistory().contains(
+                "Nearest Rejected: 0"));
+    }
+
+    /**
+     * Test that inserting a batch of points reports every point like
+     * insert does and builds the same tree as inserting them one by one.
+     */
+    public void testInsertAll() {
+        List<Point> points = Arrays.asList(
+                new Point("r1", 10, 10), new Point("r2", 100, 100),
+                new Point("r3", 100, 100), new Point("r4", 100, 100),
+                new Point("r5", 100, 100), new Point("r6", -5, 100),
+                new Point("r2", 100, 100), new Point("r7", 300, 200),
+                new Point("r8", 12, 10));
+        for (Point point : points) {
+            database.insert(point);
+        }
+        database.regionsearch(0, 0, 1024, 1024);
+        database.duplicates();
+        String expected = systemOut().getHistory();
+        systemOut().clearHistory();
+
+        database = new Database();
+        database.insertAll(points);
+        database.regionsearch(0, 0, 1024, 1024);
+        database.duplicates();
+        assertEquals(expected, systemOut().getHistory());
+        assertTrue(expected.contains("Point Rejected: (r2, 100, 100)\n"));
+
+        database.insertAll(Arrays.asList(new Point("r9", 500, 500),
+                new Point("r1", 10, 10)));
+        assertTrue(systemOut().getHistory().endsWith(
+                "Point Inserted: (r9, 500, 500)\n" +
+                        "Point Rejected: (r1, 10, 10)\n"));
+    }
+
+    /**
+     * Test that the array based quad tree engine prints the same output
+     * as the pointer based engine for the same commands, including
+     * splits, merges and duplicates. The SkipList dump is left out as
+     * its levels are random.
+     */
+    public void testArrayQuadTree() {
+        runCommands();
+        String expected = systemOut().getHistory();
+        systemOut().clearHistory();
+
+        database = new Database(new ArrayQuadTree());
+        runCommands();
+        assertEquals(expected, systemOut().getHistory());
+    }
+
+    /**
+     * Test that the parallel region search prints the same points and
+     * node count as the sequential search, and that a threshold below 1 is
+     * rejected.
+     */
+    public void testParallelRegionSearch() {
+        runCommands();
+        String expected = systemOut().getHistory();
+        systemOut().clearHistory();
+
+        database = new Database(new PointerQuadTree(1));
+        runCommands();
+        assertEquals(expected, systemOut().getHistory());
+
+        Exception thrown = null;
+        try {
+            new PointerQuadTree(0);
+        }
+        catch (IllegalArgumentException e) {
+            thrown = e;
+        }
+        assertNotNull(thrown);
+    }
+
+    /**
+     * Test that the linear engine gives the same output as the pointer
+     * engine, records of every leaf included.
+     */
+    public void testLinearQuadTree() {
+        runCommands();
+        String expected = systemOut().getHistory();
+        systemOut().clearHistory();
+
+        database = new Database(new LinearQuadTree());
+        runCommands();
+        assertEquals(expected, systemOut().getHistory());
+    }
+
+    /**
+     * Test that the three engines print the same output and visit the same
+     * nodes through random inserts, removes and queries, with many points
+     * sharing coordinates so that removes leave internal nodes over a
+     * single coordinate and merges reorder records. The layout of the
+     * pointer engine is then loaded into every engine.
+     *
+     * @throws IOException if the layout cannot be written
+     */
+    public void testEnginesAgree() throws IOException {
+        int[][] spots = {{10, 10}, {11, 10}, {10, 11}, {600, 600},
+            {601, 600}, {10, 600}};
+        for (int seed = 0; seed < 40; seed++) {
+            QuadTree[] engines = {new PointerQuadTree(), new ArrayQuadTree(),
+                new LinearQuadTree()};
+            ListSink[] sinks = new ListSink[engines.length];
+            for (int e = 0; e < engines.length; e++) {
+                sinks[e] = new ListSink();
+            }
+            Random random = new Random(seed);
+            List<Point> model = new ArrayList<>();
+            for (int step = 0; step < 300; step++) {
+                int op = random.nextInt(10);
+                if (op < 8 && model.isEmpty()) {
+                    op = 0;
+                }
+                Point point = null;
+                if (op < 5) {
+                    int[] spot = spots[random.nextInt(spots.length)];
+                    point = random.nextInt(4) == 0
+                        ? new Point("p" + random.nextInt(8),
+                            random.nextInt(1024), random.nextInt(1024))
+                        : new Point("p" + random.nextInt(8), spot[0],
+                            spot[1]);
+                    model.add(point);
+                }
+                else if (op < 8) {
+                    point = model.get(random.nextInt(model.size()));
+                    Point removed = point;
+                    model.removeIf(p -> p.equals(removed));
+                }
+                int x = random.nextInt(1024);
+                int y = random.nextInt(1024);
+                int w = 1 + random.nextInt(700);
+                int h = 1 + random.nextInt(700);
+                for (int e = 0; e < engines.length; e++) {
+                    QuadTree engine = engines[e];
+                    ListSink out = sinks[e];
+                    if (op < 5) {
+                        engine.insert(point);
+                    }
+                    else if (op < 8) {
+                        engine.remove(point);
+                    }
+                    else if (op == 8) {
+                        out.println("" + engine.regionSearch(
+                                new Rectangle(x, y, w, h), out));
+                        out.println("" + engine.regionCount(
+                                new Rectangle(x, y, w, h)));
+                        out.println("" + engine.nearest(x, y, 3, out));
+                    }
+                    else {
+                        engine.duplicates(out);
+                        out.println("" + engine.dump(out));
+                        out.println("" + engine.search(
+                                new Point("", 10, 10)));
+                    }
+                }
+            }
+            for (int e = 1; e < engines.length; e++) {
+                assertEquals("seed " + seed, sinks[0].getText(),
+                        sinks[e].getText());
+            }
+
+            // every engine restores the layout of the pointer engine
+            Point[] points = model.toArray(new Point[0]);
+            Map<Point, Integer> ids = new HashMap<>();
+            for (int i = 0; i < points.length; i++) {
+                ids.putIfAbsent(points[i], i);
+            }
+            ByteArrayOutputStream layout = new ByteArrayOutputStream();
+            engines[0].writeLayout(new DataOutputStream(layout), ids);
+            ListSink expected = new ListSink();
+            engines[0].dump(expected);
+            for (QuadTree engine : new QuadTree[] {new PointerQuadTree(),
+                new ArrayQuadTree(), new LinearQuadTree()}) {
+                engine.readLayout(ByteBuffer.wrap(layout.toByteArray()),
+                        points);
+                ListSink actual = new ListSink();
+                engine.dump(actual);
+                assertEquals("seed " + seed, expected.getText(),
+                        actual.getText());
+            }
+        }
+    }
+
+    /**
+     * Test that a database opened from a snapshot dumps the same SkipList
+     * levels and tree layout with every engine and to a given sink, and
+     * that a corrupted snapshot is rejected.
+     *
+     * @throws IOException if the snapshot file cannot be used
+     */
+    public void testSnapshot() throws IOException {
+        runCommands();
+        systemOut().clearHistory();
+        database.dump();
+        String expected = systemOut().getHistory();
+
+        File file = File.createTempFile("snapshot", ".bin");
+        file.deleteOnExit();
+        database.save(file.getPath());
+        QuadTree[] engines = {new PointerQuadTree(), new ArrayQuadTree(),
+            new LinearQuadTree()};
+        for (QuadTree engine : engines) {
+            systemOut().clearHistory();
+            Database.open(file.getPath(), engine).dump();
+            assertEquals(expected, systemOut().getHistory());
+        }
+        ListSink list = new ListSink();
+        Database.open(file.getPath(), new PointerQuadTree(), list).dump();
+        assertEquals(expected, list.getText());
+
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.seek(20);
+            int b = raf.read();
+            raf.seek(20);
+            raf.write(b ^ 1);
+        }
+        try {
+            Database.open(file.getPath());
+            fail("corrupted snapshot opened");
+        }
+        catch (IOException e) {
+            assertTrue(e.getMessage().startsWith("Snapshot checksum mismatch"));
+        }
+    }
+
+    /**
+     * Test that a database recovered from its snapshot and write-ahead log
+     * holds the same points, across a checkpoint and with a torn record at
+     * the end of the log, and prints to a given sink.
+     *
+     * @throws IOException if the snapshot or log file cannot be used
+     */
+    public void testWriteAheadLog() throws IOException {
+        File dir = Files.createTempDirectory("wal").toFile();
+        dir.deleteOnExit();
+        String snapshot = new File(dir, "snapshot.bin").getPath();
+        File logFile = new File(dir, "wal.bin");
+        logFile.deleteOnExit();
+        new File(snapshot).deleteOnExit();
+
+        database = Database.recover(snapshot, new WriteAheadLog(
+                logFile.toPath(), WriteAheadLog.Durability.SYNC, 10),
+                new PointerQuadTree());
+        runCommands();
+        String expected = contents();
+        database.close();
+
+        database = Database.recover(snapshot, new WriteAheadLog(
+                logFile.toPath(), WriteAheadLog.Durability.WRITE, 10),
+                new ArrayQuadTree());
+        assertEquals(expected, contents());
+        database.checkpoint(snapshot);
+        assertEquals(0, logFile.length());
+        database.insert(new Point("r10", 900, 900));
+        database.remove("r1");
+        expected = contents();
+        database.close();
+
+        try (RandomAccessFile raf = new RandomAccessFile(logFile, "rw")) {
+            raf.seek(raf.length());
+            raf.writeInt(100);
+        }
+        database = Database.recover(snapshot, new WriteAheadLog(
+                logFile.toPath(), WriteAheadLog.Durability.ASYNC, 10),
+                new PointerQuadTree());
+        assertEquals(expected, contents());
+        database.close();
+
+        ListSink list = new ListSink();
+        database = Database.recover(snapshot, new WriteAheadLog(
+                logFile.toPath(), WriteAheadLog.Durability.ASYNC, 10),
+                new PointerQuadTree(), list);
+        systemOut().clearHistory();
+        database.search("r10");
+        assertEquals("", systemOut().getHistory());
+        assertEquals(new Point("r10", 900, 900), list.getEntries(
+                Constants.SEARCH_FOUND).get(0).getArguments()[0]);
+        database.close();
+    }
+
+    /**
+     * Test that the byte-level parser runs the same commands as the
+     * CommandProcessor regardless of case, blank lines and whitespace, and
+     * that an unfinished last line is left for the next chunk.
+     */
+    public void testCommandParser() {
+        String[] lines = {"insert r1 10 10", "insert r2 100 100",
+            "insert r3 100 100", "insert bad -5 20", "duplicates",
+            "regionsearch 0 0 300 300", "regioncount 0 0 300 300",
+            "search r2", "remove 100 100", "remove r1", "remove r1",
+            "nearest 90 90 2"};
+        CommandProcessor processor = new CommandProcessor(database);
+        for (String line : lines) {
+            processor.processor(line);
+        }
+        String expected = systemOut().getHistory();
+        systemOut().clearHistory();
+
+        String text = "\n  " + String.join("\r\n\t", lines)
+                .replace("insert r2", "INSERT\tr2").replace("search", "Search")
+                + "\n\n";
+        CommandParser parser = new CommandParser(new Database());
+        ByteBuffer buffer = ByteBuffer.wrap(text.getBytes(UTF_8));
+        assertEquals(buffer.limit(), parser.parse(buffer, true));
+        assertEquals(expected, systemOut().getHistory());
+        systemOut().clearHistory();
+
+        parser = new CommandParser(new Database());
+        buffer = ByteBuffer.wrap("insert r1 10 10\ninsert r2 1".getBytes(
+                UTF_8));
+        assertEquals(16, parser.parse(buffer, false));
+        assertEquals("Point Inserted: (r1, 10, 10)\n",
+                systemOut().getHistory());
+    }
+
+    /**
+     * Test that every sink receives the same text as the console, that the
+     * list sink keeps the messages and arguments of the lines and that the
+     * tree dump keeps its indentation.
+     */
+    public void testOutputSinks() {
+        runCommands();
+        String expected = systemOut().getHistory();
+        systemOut().clearHistory();
+
+        ListSink list = new ListSink();
+        database = new Database(new PointerQuadTree(), list);
+        runCommands();
+        assertEquals(expected, list.getText());
+        assertEquals(9, list.getEntries(Constants.INSERT_ACCEPTED).size());
+        List<ListSink.Entry> rejected = list.getEntries(Constants.REJECTED);
+        assertEquals(1, rejected.size());
+        assertEquals(new Point("r9", 600, 700),
+                rejected.get(0).getArguments()[0]);
+
+        // a small buffer hands off many times per command
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        BufferedSink buffered = new BufferedSink(bytes, UTF_8, 16);
+        database = new Database(new PointerQuadTree(), buffered);
+        runCommands();
+        buffered.close();
+        assertEquals(expected, bytes.toString(UTF_8).replace(
+                System.lineSeparator(), "\n"));
+
+        CountingSink counting = new CountingSink();
+        database = new Database(new PointerQuadTree(), counting);
+        runCommands();
+        assertEquals(expected.split("\n").length, counting.getLines());
+
+        PointerQuadTree tree = new PointerQuadTree();
+        for (int i = 0; i < 8; i++) {
+            tree.insert(new Point("p" + i, i * 100, 50));
+        }
+        list = new ListSink();
+        tree.dump(list);
+        systemOut().clearHistory();
+        tree.dump(new ConsoleSink());
+        assertEquals(systemOut().getHistory(), list.getText());
+    }
+
+    /**
+     * Utility method to print all points of the database by coordinates
+     * and by name without the random SkipList levels.
+     *
+     * @return printed output
+     */
+    private String contents() {
+        systemOut().clearHistory();
+        database.regionsearch(0, 0, 1024, 1024);
+        database.duplicates();
+        for (int i = 1; i <= 10; i++) {
+            database.search("r" + i);
+        }
+        return systemOut().getHistory();
+    }
+
+    /**
+     * Utility method to run a set of commands that split and merge nodes.
+     */
+    private void runCommands() {
+        insertData();
+        database.insert(new Point("r6", 100, 100));
+        database.insert(new Point("r7", 100, 100));
+        database.insert(new Point("r8", 100, 100));
+        database.insert(new Point("r9", 600, 700));
+        database.insert(new Point("r9", 600, 700));
+        database.duplicates();
+        database.regionsearch(0, 0, 300, 300);
+        database.regioncount(0, 0, 300, 300);
+        database.remove(100, 100);
+        database.remove("r3");
+        database.remove("r9");
+        database.search("r7");
+        database.nearest(120, 120, 4);
+        database.regionsearch(0, 0, 1024, 1024);
+        database.regioncount(64, 64, 512, 512);
+    }
+
     /**
      * Utility method to insert 5 nodes to the skiplist.
      */
@@ -0,0 +1,771 @@
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * @author Abhinav Sethi
+ * @version 2021-10-23
+ * <p>
+ * Linear QuadTree engine that stores every point as a 64 bit key in a
+ * sorted primitive array instead of a tree of nodes.
+ * <p>
+ * The high bits of a key hold the Morton (Z-order) code of the point,
+ * formed by interleaving the 10 bit x and y coordinates, and the low bits
+ * hold an insertion sequence number so points with the same coordinates
+ * stay in insertion order. The quadrant numbering of the tree follows the
+ * Z-order, so every quadrant of the PR quadtree covers one contiguous
+ * range of keys. The nodes are never stored: a quadrant is a leaf when its
+ * key range passes the decomposition rule, and the ranges of its children
+ * are found by binary search. Region search, dump and duplicates descend
+ * these implicit nodes, splitting the query into Z-order key ranges, and
+ * visit the same nodes as the pointer engine.
+ * <p>
+ * The pointer engine only merges an internal node once it holds 3 points
+ * or fewer, so after removes an internal node can hold more points that
+ * all share one coordinate. Those quadrants are kept in a set and stay
+ * internal. The records of a leaf are listed by sequence number, which is
+ * insertion order until a merge: the pointer engine then lists the records
+ * of the merged children in quadrant order, so the merged records are
+ * numbered again in that order. A merged node left without points stays
+ * an empty leaf until a point is inserted into it, so those quadrants are
+ * kept in a second set.
+ * <p>
+ * Inserts are collected in a small sorted buffer that is merged into the
+ * main array in one pass when it fills up or before a query that walks the
+ * tree or a remove. Removes only clear the name of an entry, and cleared
+ * entries are dropped by the same merge. Batches of inserts into an empty
+ * tree should use bulkLoad, which sorts the keys once. The engine is meant
+ * for reads and batched inserts: a remove costs a pass over the keys.
+ */
+public class LinearQuadTree implements QuadTree {
+
+    /**
+     * Number of low key bits holding the insertion sequence number
+     */
+    private static final int SEQ_BITS = 40;
+
+    private static final long SEQ_MASK = (1L << SEQ_BITS) - 1;
+
+    /**
+     * Number of inserts collected before they are merged
+     */
+    private static final int PENDING_LIMIT = 1024;
+
+    private static final int NUM_QUADRANTS = 4;
+
+    /**
+     * Sorted keys of the merged points
+     */
+    private long[] keys;
+
+    /**
+     * Names of the merged points, null for removed entries
+     */
+    private String[] names;
+
+    private int count;
+    private int removed;
+
+    /**
+     * Sorted keys of the points inserted since the last merge
+     */
+    private final long[] pendingKeys;
+
+    private final String[] pendingNames;
+
+    private int pendingCount;
+
+    private long nextSeq;
+
+    /**
+     * Quadrants kept as internal nodes although all their points share
+     * one coordinate, see node
+     */
+    private final Set<Long> keptInternal = new HashSet<>();
+
+    /**
+     * Quadrants without points that are leaf nodes, see node
+     */
+    private final Set<Long> emptyLeaves = new HashSet<>();
+
+    /**
+     * Constructor to initialize an empty tree
+     */
+    public LinearQuadTree() {
+        keys = new long[PENDING_LIMIT];
+        names = new String[PENDING_LIMIT];
+        pendingKeys = new long[PENDING_LIMIT];
+        pendingNames = new String[PENDING_LIMIT];
+    }
+
+    @Override
+    public void insert(Point point) {
+        long key = toKey(point.x, point.y, nextSeq++);
+        int i = lowerBound(pendingKeys, 0, pendingCount, key);
+        System.arraycopy(pendingKeys, i, pendingKeys, i + 1, pendingCount - i);
+        System.arraycopy(pendingNames, i, pendingNames, i + 1,
+                pendingCount - i);
+        pendingKeys[i] = key;
+        pendingNames[i] = point.getName();
+        pendingCount++;
+        if (!emptyLeaves.isEmpty()) {
+            for (int s = WORLD_SIZE; s > 0; s >>= 1) {
+                emptyLeaves.remove(node(point.x & -s, point.y & -s, s));
+            }
+        }
+        if (pendingCount == PENDING_LIMIT) {
+            merge();
+        }
+    }
+
+    @Override
+    public void bulkLoad(Point[] points) {
+        long[] sorted = new long[points.length];
+        for (int i = 0; i < points.length; i++) {
+            sorted[i] = toKey(points[i].x, points[i].y, nextSeq + i);
+        }
+        Arrays.sort(sorted);
+        names = new String[Math.max(points.length, PENDING_LIMIT)];
+        for (int i = 0; i < sorted.length; i++) {
+            names[i] = points[(int) ((sorted[i] & SEQ_MASK) - nextSeq)]
+                    .getName();
+        }
+        keys = Arrays.copyOf(sorted, names.length);
+        count = points.length;
+        nextSeq += points.length;
+        keptInternal.clear();
+        emptyLeaves.clear();
+    }
+
+    @Override
+    public void remove(Point point) {
+        // the structure depends on every point, the pending ones included
+        merge();
+        long from = toKey(point.x, point.y, 0);
+        int first = lowerBound(keys, 0, count, from);
+        int last = lowerBound(keys, first, count, from + SEQ_MASK + 1);
+        int matches = 0;
+        for (int i = first; i < last; i++) {
+            if (point.getName().equals(names[i])) {
+                matches++;
+            }
+        }
+        if (matches == 0) {
+            return;
+        }
+        restructure(point, first, last, matches);
+        for (int i = first; i < last; i++) {
+            if (point.getName().equals(names[i])) {
+                names[i] = null;
+                removed++;
+            }
+        }
+    }
+
+    /**
+     * Apply the merge rule of the pointer engine to the nodes holding a
+     * point about to be removed. The topmost internal node left with 3
+     * points or fewer becomes a leaf, and its remaining records are
+     * numbered again in the order its leaves list them, or it is an empty
+     * leaf when none remain. Internal nodes above it that are left with
+     * points of a single coordinate are kept internal.
+     *
+     * @param point   point about to be removed
+     * @param first   index of the first key with the coordinates
+     * @param last    index after the last key with the coordinates
+     * @param matches number of entries to be removed
+     */
+    private void restructure(Point point, int first, int last, int matches) {
+        int lo = 0;
+        int hi = count;
+        int x = 0;
+        int y = 0;
+        int size = WORLD_SIZE;
+        while (!isLeaf(lo, hi, x, y, size)) {
+            if (hi - lo - matches <= 3) {
+                renumber(lo, hi, x, y, size, point);
+                for (int s = size; s > 0; s >>= 1) {
+                    keptInternal.remove(node(point.x & -s, point.y & -s, s));
+                }
+                int left = x;
+                int top = y;
+                int end = size;
+                emptyLeaves.removeIf(n -> inside(n, left, top, end));
+                if (hi - lo == matches) {
+                    emptyLeaves.add(node(x, y, size));
+                }
+                return;
+            }
+            // the points left are at the coordinates unless there are
+            // others, and then they are all at the others' coordinate
+            // when those sit on one side and none remain at the point
+            boolean below = first > lo;
+            boolean above = last < hi;
+            boolean single = !below && !above
+                    || last - first == matches && below != above
+                    && (below ? sameCoordinate(lo, first)
+                        : sameCoordinate(last, hi));
+            if (single) {
+                keptInternal.add(node(x, y, size));
+            }
+            int i = Quadrant.childIndex(point.x, point.y, x, y, size);
+            int[] bounds = childBounds(lo, hi, x, y, size);
+            lo = bounds[i];
+            hi = bounds[i + 1];
+            x = Quadrant.childX(i, x, size);
+            y = Quadrant.childY(i, y, size);
+            size >>= 1;
+        }
+    }
+
+    /**
+     * Number the records of a node again in the order its leaves list
+     * them, skipping the entries of a point about to be removed.
+     *
+     * @param lo    index of the first key of the node
+     * @param hi    index after the last key of the node
+     * @param x     x-coordinate of the node origin
+     * @param y     y-coordinate of the node origin
+     * @param size  size of the node
+     * @param point point about to be removed
+     */
+    private void renumber(int lo, int hi, int x, int y, int size,
+                          Point point) {
+        if (lo == hi) {
+            return;
+        }
+        if (!isLeaf(lo, hi, x, y, size)) {
+            int[] bounds = childBounds(lo, hi, x, y, size);
+            for (int i = 0; i < NUM_QUADRANTS; ++i) {
+                renumber(bounds[i], bounds[i + 1],
+                        Quadrant.childX(i, x, size),
+                        Quadrant.childY(i, y, size), size >> 1, point);
+            }
+            return;
+        }
+        // records with the same coordinates keep their order, so the keys
+        // stay sorted
+        for (int i : leafOrder(lo, hi)) {
+            int morton = (int) (keys[i] >>> SEQ_BITS);
+            if (!point.getName().equals(names[i])
+                    || compact(morton) != point.x
+                    || compact(morton >>> 1) != point.y) {
+                keys[i] = (keys[i] & ~SEQ_MASK) | nextSeq++;
+            }
+        }
+    }
+
+    @Override
+    public boolean exists(Point point) {
+        return find(point.x, point.y, point.getName()) != null;
+    }
+
+    @Override
+    public Point search(Point point) {
+        return find(point.x, point.y, null);
+    }
+
+    /**
+     * Find the first point with the given coordinates in insertion order
+     *
+     * @param x    x-coordinate to search
+     * @param y    y-coordinate to search
+     * @param name name to match or null for any name
+     * @return point found or null
+     */
+    private Point find(int x, int y, String name) {
+        long from = toKey(x, y, 0);
+        long to = from + SEQ_MASK;
+        // merged points are older than the pending ones
+        for (int i = lowerBound(keys, 0, count, from);
+             i < count && keys[i] <= to; i++) {
+            if (names[i] != null && (name == null || name.equals(names[i]))) {
+                return new Point(names[i], x, y);
+            }
+        }
+        for (int i = lowerBound(pendingKeys, 0, pendingCount, from);
+             i < pendingCount && pendingKeys[i] <= to; i++) {
+            if (name == null || name.equals(pendingNames[i])) {
+                return new Point(pendingNames[i], x, y);
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public int regionSearch(Rectangle region, OutputSink out) {
+        merge();
+        return regionSearch(region, 0, count, 0, 0, WORLD_SIZE, out);
+    }
+
+    private int regionSearch(Rectangle region, int lo, int hi, int x, int y,
+                             int size, OutputSink out) {
+        if (lo == hi) {
+            return emptyLeaves.contains(node(x, y, size)) ? 1 : 0;
+        }
+        if (isLeaf(lo, hi, x, y, size)) {
+            for (int i : leafOrder(lo, hi)) {
+                Point p = toPoint(i);
+                if (region.contains(p)) {
+                    out.println(Constants.REGION_SEARCH_FOUND, p);
+                }
+            }
+            return 1;
+        }
+        int numVisited = 1;
+        int half = size >> 1;
+        int[] bounds = childBounds(lo, hi, x, y, size);
+        for (int i = 0; i < NUM_QUADRANTS; ++i) {
+            int childX = Quadrant.childX(i, x, size);
+            int childY = Quadrant.childY(i, y, size);
+            if (Quadrant.intersects(region, childX, childY, half)) {
+                numVisited += regionSearch(region, bounds[i], bounds[i + 1],
+                        childX, childY, half, out);
+            }
+        }
+        return numVisited;
+    }
+
+    @Override
+    public int regionCount(Rectangle region) {
+        merge();
+        return regionCount(region, 0, count, 0, 0, WORLD_SIZE);
+    }
+
+    private int regionCount(Rectangle region, int lo, int hi, int x, int y,
+                            int size) {
+        if (Quadrant.isInside(region, x, y, size)) {
+            return hi - lo;
+        }
+        if (isLeaf(lo, hi, x, y, size)) {
+            int numPoints = 0;
+            for (int i = lo; i < hi; i++) {
+                int morton = (int) (keys[i] >>> SEQ_BITS);
+                if (region.contains(compact(morton), compact(morton >>> 1))) {
+                    numPoints++;
+                }
+            }
+            return numPoints;
+        }
+        int numPoints = 0;
+        int half = size >> 1;
+        int[] bounds = childBounds(lo, hi, x, y, size);
+        for (int i = 0; i < NUM_QUADRANTS; ++i) {
+            int childX = Quadrant.childX(i, x, size);
+            int childY = Quadrant.childY(i, y, size);
+            if (Quadrant.intersects(region, childX, childY, half)) {
+                numPoints += regionCount(region, bounds[i], bounds[i + 1],
+                        childX, childY, half);
+            }
+        }
+        return numPoints;
+    }
+
+    @Override
+    public int nearest(int x, int y, int k, OutputSink out) {
+        merge();
+        NearestQueue queue = new NearestQueue(x, y, k);
+        if (count > 0 || emptyLeaves.contains(node(0, 0, WORLD_SIZE))) {
+            queue.offer(0, 0, 0, WORLD_SIZE);
+        }
+        int numVisited = 0;
+        int numFound = 0;
+        NearestQueue.Entry entry = queue.poll();
+        while (entry != null && numFound < k) {
+            if (entry.getPoint() != null) {
+                out.println(Constants.REGION_SEARCH_FOUND, entry.getPoint());
+                numFound++;
+            }
+            else {
+                offerChildren(queue, entry.getX(), entry.getY(),
+                        entry.getSize());
+                numVisited++;
+            }
+            entry = queue.poll();
+        }
+        return numVisited;
+    }
+
+    private void offerChildren(NearestQueue queue, int x, int y, int size) {
+        int lo = lowerBound(keys, 0, count, toKey(x, y, 0));
+        int hi = lowerBound(keys, lo, count, toKey(x, y, 0)
+                + ((long) size * size << SEQ_BITS));
+        if (isLeaf(lo, hi, x, y, size)) {
+            for (int i : leafOrder(lo, hi)) {
+                queue.offer(toPoint(i));
+            }
+            return;
+        }
+        int[] bounds = childBounds(lo, hi, x, y, size);
+        for (int i = 0; i < NUM_QUADRANTS; ++i) {
+            int childX = Quadrant.childX(i, x, size);
+            int childY = Quadrant.childY(i, y, size);
+            if (bounds[i] < bounds[i + 1]
+                    || emptyLeaves.contains(node(childX, childY, size >> 1))) {
+                queue.offer(0, childX, childY, size >> 1);
+            }
+        }
+    }
+
+    @Override
+    public void duplicates(OutputSink out) {
+        merge();
+        duplicates(0, count, 0, 0, WORLD_SIZE, out);
+    }
+
+    private void duplicates(int lo, int hi, int x, int y, int size,
+                            OutputSink out) {
+        if (lo == hi) {
+            return;
+        }
+        if (!isLeaf(lo, hi, x, y, size)) {
+            int[] bounds = childBounds(lo, hi, x, y, size);
+            for (int i = 0; i < NUM_QUADRANTS; ++i) {
+                duplicates(bounds[i], bounds[i + 1],
+                        Quadrant.childX(i, x, size),
+                        Quadrant.childY(i, y, size), size >> 1, out);
+            }
+            return;
+        }
+        // same map of coordinates as the pointer leaf node
+        // so that duplicates print in the same order
+        HashMap<String, List<Point>> pointsMap = new HashMap<>();
+        for (int i = lo; i < hi; i++) {
+            Point p = toPoint(i);
+            String key = Constants.DUPLICATE_FOUND.format(p.x, p.y);
+            pointsMap.computeIfAbsent(key, k -> new ArrayList<>()).add(p);
+        }
+        for (Map.Entry<String, List<Point>> entry : pointsMap.entrySet()) {
+            if (entry.getValue().size() > 1) {
+                out.println(entry.getKey());
+            }
+        }
+    }
+
+    @Override
+    public int dump(OutputSink out) {
+        merge();
+        return dump(0, count, 0, 0, WORLD_SIZE, 1, out);
+    }
+
+    private int dump(int lo, int hi, int x, int y, int size, int depth,
+                     OutputSink out) {
+        Quadrant quadrant = new Quadrant(x, y, size);
+        if (lo == hi && !emptyLeaves.contains(node(x, y, size))) {
+            out.println(Constants.DUMP_EMPTY_NODE, quadrant);
+            return 1;
+        }
+        if (isLeaf(lo, hi, x, y, size)) {
+            out.println(Constants.DUMP_LEAF_NODE, quadrant);
+            for (int i : leafOrder(lo, hi)) {
+                for (int j = 0; j < depth - 1; j++) {
+                    out.print("  ");
+                }
+                out.println(toPoint(i).toString());
+            }
+            return 1;
+        }
+        int numVisited = 1;
+        out.println(Constants.DUMP_INTERNAL_NODE, quadrant);
+        int[] bounds = childBounds(lo, hi, x, y, size);
+        for (int i = 0; i < NUM_QUADRANTS; ++i) {
+            for (int j = 0; j < depth; j++) {
+                out.print("  ");
+            }
+            numVisited += dump(bounds[i], bounds[i + 1],
+                    Quadrant.childX(i, x, size), Quadrant.childY(i, y, size),
+                    size >> 1, depth + 1, out);
+        }
+        return numVisited;
+    }
+
+    @Override
+    public void writeLayout(DataOutput out, Map<Point, Integer> ids)
+            throws IOException {
+        merge();
+        writeNode(0, count, 0, 0, WORLD_SIZE, out, ids);
+    }
+
+    private void writeNode(int lo, int hi, int x, int y, int size,
+                           DataOutput out, Map<Point, Integer> ids)
+            throws IOException {
+        if (lo == hi || isLeaf(lo, hi, x, y, size)) {
+            out.writeInt(hi - lo);
+            for (int i : leafOrder(lo, hi)) {
+                out.writeInt(ids.get(toPoint(i)));
+            }
+            return;
+        }
+        out.writeInt(Snapshot.INTERNAL);
+        int[] bounds = childBounds(lo, hi, x, y, size);
+        for (int i = 0; i < NUM_QUADRANTS; ++i) {
+            writeNode(bounds[i], bounds[i + 1], Quadrant.childX(i, x, size),
+                    Quadrant.childY(i, y, size), size >> 1, out, ids);
+        }
+    }
+
+    @Override
+    public void readLayout(ByteBuffer in, Point[] points) {
+        // the records are numbered in the order the leaves list them
+        List<Point> records = new ArrayList<>(points.length);
+        List<Long> kept = new ArrayList<>();
+        readRecords(in, points, records, kept, 0, 0, WORLD_SIZE);
+        bulkLoad(records.toArray(new Point[0]));
+        keptInternal.addAll(kept);
+    }
+
+    private static void readRecords(ByteBuffer in, Point[] points,
+                                    List<Point> records, List<Long> kept,
+                                    int x, int y, int size) {
+        int tag = in.getInt();
+        if (tag == Snapshot.INTERNAL) {
+            int start = records.size();
+            for (int i = 0; i < NUM_QUADRANTS; ++i) {
+                readRecords(in, points, records, kept,
+                        Quadrant.childX(i, x, size),
+                        Quadrant.childY(i, y, size), size >> 1);
+            }
+            Point p = records.get(start);
+            boolean single = true;
+            for (int i = start + 1; i < records.size() && single; i++) {
+                single = records.get(i).x == p.x && records.get(i).y == p.y;
+            }
+            if (single) {
+                kept.add(node(x, y, size));
+            }
+            return;
+        }
+        for (int i = 0; i < tag; i++) {
+            records.add(points[in.getInt()]);
+        }
+    }
+
+    /**
+     * Apply the decomposition rule to the non-empty range of keys of a
+     * quadrant. A range of more than 3 keys with a single coordinate is a
+     * leaf unless the quadrant was kept internal by a remove.
+     *
+     * @param lo   index of the first key
+     * @param hi   index after the last key
+     * @param x    x-coordinate of the quadrant origin
+     * @param y    y-coordinate of the quadrant origin
+     * @param size size of the quadrant
+     * @return true if the range forms a leaf node
+     */
+    private boolean isLeaf(int lo, int hi, int x, int y, int size) {
+        return hi - lo <= 3 || sameCoordinate(lo, hi)
+                && !keptInternal.contains(node(x, y, size));
+    }
+
+    /**
+     * Check if a non-empty range of keys holds a single coordinate. Keys
+     * with the same coordinates share their Morton code and sort next to
+     * each other, so it does when its first and last keys have the same
+     * code.
+     *
+     * @param lo index of the first key
+     * @param hi index after the last key
+     * @return true if every key has the same coordinates
+     */
+    private boolean sameCoordinate(int lo, int hi) {
+        return keys[lo] >>> SEQ_BITS == keys[hi - 1] >>> SEQ_BITS;
+    }
+
+    /**
+     * List the entries of a leaf by sequence number. A leaf of more than 3
+     * entries holds a single coordinate and is already in that order.
+     *
+     * @param lo index of the first key of the leaf
+     * @param hi index after the last key of the leaf
+     * @return indices of the entries in the order the leaf lists them
+     */
+    private int[] leafOrder(int lo, int hi) {
+        int[] order = new int[hi - lo];
+        for (int i = 0; i < order.length; i++) {
+            int j = i;
+            while (j > 0 && (keys[order[j - 1]] & SEQ_MASK)
+                    > (keys[lo + i] & SEQ_MASK)) {
+                order[j] = order[j - 1];
+                j--;
+            }
+            order[j] = lo + i;
+        }
+        return order;
+    }
+
+    /**
+     * Identify a quadrant by its origin and size
+     *
+     * @param x    x-coordinate of the quadrant origin
+     * @param y    y-coordinate of the quadrant origin
+     * @param size size of the quadrant
+     * @return key of the quadrant in keptInternal and emptyLeaves
+     */
+    private static long node(int x, int y, int size) {
+        return (long) x << 32 | (long) y << 16 | size;
+    }
+
+    /**
+     * Check if a quadrant lies inside another one
+     *
+     * @param node key of the quadrant, see node
+     * @param x    x-coordinate of the other quadrant origin
+     * @param y    y-coordinate of the other quadrant origin
+     * @param size size of the other quadrant
+     * @return true if the quadrant is inside the other one
+     */
+    private static boolean inside(long node, int x, int y, int size) {
+        int nodeX = (int) (node >>> 32);
+        int nodeY = (int) (node >>> 16) & 0xFFFF;
+        return nodeX >= x && nodeX < x + size && nodeY >= y
+                && nodeY < y + size;
+    }
+
+    /**
+     * Split the key range of a quadrant into the ranges of its children.
+     *
+     * @param lo   index of the first key of the quadrant
+     * @param hi   index after the last key of the quadrant
+     * @param x    x-coordinate of the quadrant origin
+     * @param y    y-coordinate of the quadrant origin
+     * @param size size of the quadrant
+     * @return start index of every child range followed by the end index
+     */
+    private int[] childBounds(int lo, int hi, int x, int y, int size) {
+        int[] bounds = new int[NUM_QUADRANTS + 1];
+        bounds[0] = lo;
+        bounds[NUM_QUADRANTS] = hi;
+        for (int i = 1; i < NUM_QUADRANTS; ++i) {
+            bounds[i] = lowerBound(keys, bounds[i - 1], hi,
+                    toKey(Quadrant.childX(i, x, size),
+                            Quadrant.childY(i, y, size), 0));
+        }
+        return bounds;
+    }
+
+    /**
+     * Merge the pending inserts into the main array and drop removed
+     * entries, in a single pass from the back of the arrays.
+     */
+    private void merge() {
+        if (pendingCount == 0 && removed == 0) {
+            return;
+        }
+        int live = count - removed + pendingCount;
+        if (live > keys.length) {
+            int capacity = Math.max(live, keys.length * 2);
+            keys = Arrays.copyOf(keys, capacity);
+            names = Arrays.copyOf(names, capacity);
+        }
+        if (removed > 0) {
+            // compact the main array first
+            int j = 0;
+            for (int i = 0; i < count; i++) {
+                if (names[i] != null) {
+                    keys[j] = keys[i];
+                    names[j++] = names[i];
+                }
+            }
+            Arrays.fill(names, j, count, null);
+            count = j;
+            removed = 0;
+        }
+        int i = count - 1;
+        int p = pendingCount - 1;
+        for (int j = live - 1; p >= 0; j--) {
+            if (i >= 0 && keys[i] > pendingKeys[p]) {
+                keys[j] = keys[i];
+                names[j] = names[i--];
+            }
+            else {
+                keys[j] = pendingKeys[p];
+                names[j] = pendingNames[p];
+                pendingNames[p--] = null;
+            }
+        }
+        count = live;
+        pendingCount = 0;
+    }
+
+    /**
+     * Build a point object for output from a merged entry
+     *
+     * @param i index of the entry
+     * @return new point instance
+     */
+    private Point toPoint(int i) {
+        int morton = (int) (keys[i] >>> SEQ_BITS);
+        return new Point(names[i], compact(morton), compact(morton >>> 1));
+    }
+
+    /**
+     * Build the key of a point from its coordinates and sequence number
+     *
+     * @param x   x-coordinate
+     * @param y   y-coordinate
+     * @param seq insertion sequence number
+     * @return key sorting by Morton code, then by insertion
+     */
+    static long toKey(int x, int y, long seq) {
+        return ((long) (spread(x) | spread(y) << 1) << SEQ_BITS) | seq;
+    }
+
+    /**
+     * Spread the low 16 bits of a value to the even bit positions
+     *
+     * @param v value to spread
+     * @return spread value
+     */
+    private static int spread(int v) {
+        v &= 0xFFFF;
+        v = (v | (v << 8)) & 0x00FF00FF;
+        v = (v | (v << 4)) & 0x0F0F0F0F;
+        v = (v | (v << 2)) & 0x33333333;
+        return (v | (v << 1)) & 0x55555555;
+    }
+
+    /**
+     * Collect the even bits of a value into the low 16 bits
+     *
+     * @param v value to compact
+     * @return compacted value
+     */
+    private static int compact(int v) {
+        v &= 0x55555555;
+        v = (v | (v >>> 1)) & 0x33333333;
+        v = (v | (v >>> 2)) & 0x0F0F0F0F;
+        v = (v | (v >>> 4)) & 0x00FF00FF;
+        return (v | (v >>> 8)) & 0xFFFF;
+    }
+
+    /**
+     * Return the index of the first key in the range not less than key
+     *
+     * @param a    sorted keys
+     * @param from index of the first key of the range
+     * @param to   index after the last key of the range
+     * @param key  key to look for
+     * @return insertion point of the key
+     */
+    private static int lowerBound(long[] a, int from, int to, long key) {
+        int lo = from;
+        int hi = to;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (a[mid] < key) {
+                lo = mid + 1;
+            }
+            else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+}
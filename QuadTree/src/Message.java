@@ -0,0 +1,59 @@
+import java.text.FieldPosition;
+import java.text.MessageFormat;
+
+/**
+ * @author Abhinav Sethi
+ * @version 2021-10-23
+ * <p>
+ * Output pattern compiled once into a MessageFormat, so printing a line
+ * does not parse the pattern again. Formatting gives exactly the text of
+ * MessageFormat.format with the same pattern and arguments.
+ */
+public final class Message {
+
+    private final String pattern;
+    private final MessageFormat format;
+
+    /**
+     * Compile an output pattern.
+     *
+     * @param pattern MessageFormat pattern of the line
+     */
+    public Message(String pattern) {
+        this.pattern = pattern;
+        this.format = new MessageFormat(pattern);
+    }
+
+    /**
+     * Format the arguments into a new String.
+     *
+     * @param arguments values of the pattern placeholders
+     * @return formatted text
+     */
+    public String format(Object... arguments) {
+        StringBuffer text = new StringBuffer();
+        format(text, arguments);
+        return text.toString();
+    }
+
+    /**
+     * Append the formatted arguments to a buffer. A MessageFormat cannot be
+     * used by two threads at once, so calls are serialized.
+     *
+     * @param text      buffer to append to
+     * @param arguments values of the pattern placeholders
+     */
+    public void format(StringBuffer text, Object... arguments) {
+        synchronized (format) {
+            format.format(arguments, text, new FieldPosition(0));
+        }
+    }
+
+    /**
+     * @return the uncompiled pattern
+     */
+    @Override
+    public String toString() {
+        return pattern;
+    }
+}
@@ -0,0 +1,196 @@
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.PriorityQueue;
+
+/**
+ * @author Abhinav Sethi
+ * @version 2021-10-23
+ * <p>
+ * Priority queue for the best-first k nearest neighbour search.
+ * Quadrants are queued by the squared distance from the query coordinates
+ * to the closest cell of the quadrant, points by their own squared
+ * distance. A point is polled before any quadrant at the same distance,
+ * and equal entries leave the queue in the order they were offered, so
+ * the search is deterministic.
+ * <p>
+ * The queue also keeps the distances of the k closest points offered so
+ * far. Quadrants and points farther than the k-th of them cannot be part
+ * of the result and are not queued at all.
+ */
+public class NearestQueue {
+
+    /**
+     * Entry of the queue holding either a point or a quadrant.
+     * Quadrants carry the node object of the pointer engine or the node
+     * reference of the array based engines.
+     */
+    static class Entry {
+        private final long distance;
+        private final long order;
+        private final Point point;
+        private final QuadTreeNode node;
+        private final int ref;
+        private final int x;
+        private final int y;
+        private final int size;
+
+        private Entry(long distance, long order, Point point,
+                      QuadTreeNode node, int ref, int x, int y, int size) {
+            this.distance = distance;
+            this.order = order;
+            this.point = point;
+            this.node = node;
+            this.ref = ref;
+            this.x = x;
+            this.y = y;
+            this.size = size;
+        }
+
+        /**
+         * @return the point of the entry or null for quadrants
+         */
+        Point getPoint() {
+            return point;
+        }
+
+        /**
+         * @return the node of the pointer engine
+         */
+        QuadTreeNode getNode() {
+            return node;
+        }
+
+        /**
+         * @return the node reference of the array based engines
+         */
+        int getRef() {
+            return ref;
+        }
+
+        /**
+         * @return x-coordinate of the quadrant origin
+         */
+        int getX() {
+            return x;
+        }
+
+        /**
+         * @return y-coordinate of the quadrant origin
+         */
+        int getY() {
+            return y;
+        }
+
+        /**
+         * @return size of the quadrant
+         */
+        int getSize() {
+            return size;
+        }
+    }
+
+    private static final Comparator<Entry> ORDER =
+            Comparator.<Entry>comparingLong(e -> e.distance)
+                    .thenComparing(e -> e.point == null)
+                    .thenComparingLong(e -> e.order);
+
+    private final PriorityQueue<Entry> queue;
+
+    /**
+     * Distances of the k closest points offered so far, largest first
+     */
+    private final PriorityQueue<Long> best;
+
+    private final int queryX;
+    private final int queryY;
+    private final int k;
+    private long offered;
+
+    /**
+     * Constructor to initialize the queue for a query
+     *
+     * @param x x-coordinate of the query
+     * @param y y-coordinate of the query
+     * @param k number of points to find
+     */
+    public NearestQueue(int x, int y, int k) {
+        this.queue = new PriorityQueue<>(ORDER);
+        this.best = new PriorityQueue<>(Collections.reverseOrder());
+        this.queryX = x;
+        this.queryY = y;
+        this.k = k;
+    }
+
+    /**
+     * Queue a point unless k closer points have already been offered
+     *
+     * @param point candidate point
+     */
+    public void offer(Point point) {
+        long distance = distance(point.x - queryX, point.y - queryY);
+        if (isPruned(distance)) {
+            return;
+        }
+        best.add(distance);
+        if (best.size() > k) {
+            best.poll();
+        }
+        queue.add(new Entry(distance, offered++, point, null, 0, 0, 0, 0));
+    }
+
+    /**
+     * Queue a quadrant of the pointer engine
+     *
+     * @param node node covering the quadrant
+     * @param x    x-coordinate of the quadrant origin
+     * @param y    y-coordinate of the quadrant origin
+     * @param size size of the quadrant
+     */
+    public void offer(QuadTreeNode node, int x, int y, int size) {
+        offer(node, 0, x, y, size);
+    }
+
+    /**
+     * Queue a quadrant of an array based engine
+     *
+     * @param ref  reference of the node covering the quadrant
+     * @param x    x-coordinate of the quadrant origin
+     * @param y    y-coordinate of the quadrant origin
+     * @param size size of the quadrant
+     */
+    public void offer(int ref, int x, int y, int size) {
+        offer(null, ref, x, y, size);
+    }
+
+    private void offer(QuadTreeNode node, int ref, int x, int y, int size) {
+        long distance = distance(gap(queryX, x, size), gap(queryY, y, size));
+        if (!isPruned(distance)) {
+            queue.add(new Entry(distance, offered++, null, node, ref, x, y,
+                    size));
+        }
+    }
+
+    /**
+     * Remove the closest entry from the queue
+     *
+     * @return closest entry or null if the queue is empty
+     */
+    Entry poll() {
+        return queue.poll();
+    }
+
+    private boolean isPruned(long distance) {
+        return best.size() == k && distance > best.peek();
+    }
+
+    private static int gap(int value, int start, int size) {
+        if (value < start) {
+            return start - value;
+        }
+        return Math.max(0, value - (start + size - 1));
+    }
+
+    private static long distance(long dx, long dy) {
+        return dx * dx + dy * dy;
+    }
+}
@@ -0,0 +1,450 @@
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Random;
+
+/**
+ * @author Abhinav Sethi
+ * @version 2021-10-23
+ * <p>
+ * SkipList keyed by name that keeps its keys, values and links off the
+ * heap, like the memtable of a log structured store. It has the same
+ * search, insert, remove and iterator behaviour as SkipList, but a pair
+ * costs no object at all until it is read.
+ * <p>
+ * Every node is written once into an arena of direct byte buffers and is
+ * addressed by a long offset into the arena. A node holds its level, the
+ * lengths of its key and value, one link per level, the UTF-8 bytes of the
+ * key and the value written by a codec:
+ * <pre>
+ *   level | key length | value length | links | key | value
+ * </pre>
+ * Keys are compared as unsigned bytes right in the arena, which orders
+ * them like String.compareTo for the ASCII names the database accepts.
+ * Pairs are decoded when they are returned, so a search or iteration
+ * creates its KVPairs and values on the heap.
+ * <p>
+ * A removed node is unlinked but its bytes stay in the arena until clear,
+ * as a memtable is flushed and dropped as a whole.
+ *
+ * @param <V> Value
+ */
+public class OffHeapSkipList<V> implements Iterable<KVPair<String, V>> {
+
+    /**
+     * Writes values into the arena and reads them back.
+     *
+     * @param <V> Value
+     */
+    public interface Codec<V> {
+        /**
+         * @param value value to be written
+         * @return number of bytes the value takes
+         */
+        int size(V value);
+
+        /**
+         * @param buffer chunk to write to
+         * @param offset position of the first byte
+         * @param value  value to be written
+         */
+        void write(ByteBuffer buffer, int offset, V value);
+
+        /**
+         * @param buffer chunk to read from
+         * @param offset position of the first byte
+         * @param length number of bytes of the value
+         * @param key    key of the pair the value belongs to
+         * @return the value
+         */
+        V read(ByteBuffer buffer, int offset, int length, String key);
+    }
+
+    /**
+     * Codec of the database points, which stores only the coordinates as
+     * the name is the key of the pair.
+     */
+    public static final Codec<Point> POINTS = new Codec<Point>() {
+        @Override
+        public int size(Point value) {
+            return 8;
+        }
+
+        @Override
+        public void write(ByteBuffer buffer, int offset, Point value) {
+            buffer.putInt(offset, value.x);
+            buffer.putInt(offset + 4, value.y);
+        }
+
+        @Override
+        public Point read(ByteBuffer buffer, int offset, int length,
+                          String key) {
+            return new Point(key, buffer.getInt(offset),
+                    buffer.getInt(offset + 4));
+        }
+    };
+
+    /**
+     * Number of levels of the head, the most a node can have
+     */
+    static final int MAX_LEVEL = 32;
+
+    /**
+     * Default number of bytes of an arena chunk
+     */
+    static final int CHUNK_SIZE = 1 << 24;
+
+    // positions of the fields within a node
+    private static final int LEVEL = 0;
+    private static final int KEY_LENGTH = 4;
+    private static final int VALUE_LENGTH = 8;
+    private static final int FORWARD = 12;
+
+    // address of the head, which no link points to, so it also ends a level
+    private static final long NIL = 0;
+
+    private final Codec<V> codec;
+    private final int chunkSize;
+    private final int chunkShift;
+    private final ArrayList<ByteBuffer> chunks = new ArrayList<>();
+    private long top; // address of the first free byte
+    private int level; // highest level of any node
+    private int size; // number of entries in the Skip List
+    private final Random random = new Random(); // source of the levels
+
+    // last node before the key per level, filled by findBefore
+    private final long[] update = new long[MAX_LEVEL];
+
+    /**
+     * Create an empty list.
+     *
+     * @param codec codec of the values
+     */
+    public OffHeapSkipList(Codec<V> codec) {
+        this(codec, CHUNK_SIZE);
+    }
+
+    /**
+     * Create an empty list with chunks of a given size.
+     *
+     * @param codec     codec of the values
+     * @param chunkSize number of bytes of an arena chunk, a power of two
+     *                  large enough for the head
+     * @throws IllegalArgumentException if the chunk size is not valid
+     */
+    OffHeapSkipList(Codec<V> codec, int chunkSize) {
+        if (Integer.bitCount(chunkSize) != 1
+                || chunkSize < FORWARD + 8 * MAX_LEVEL) {
+            throw new IllegalArgumentException(
+                    "Invalid chunk size " + chunkSize);
+        }
+        this.codec = codec;
+        this.chunkSize = chunkSize;
+        chunkShift = Integer.numberOfTrailingZeros(chunkSize);
+        clear();
+    }
+
+    /**
+     * Returns a random level number, each level half as likely as the one
+     * below it.
+     *
+     * @return a random level number
+     */
+    int randomLevel() {
+        return Integer.numberOfTrailingZeros(random.nextInt() | 1 << 31);
+    }
+
+    /**
+     * Removes every pair and releases all the chunks but the first one.
+     */
+    public void clear() {
+        while (chunks.size() > 1) {
+            chunks.remove(chunks.size() - 1);
+        }
+        top = NIL;
+        long head = allocate(FORWARD + 8 * MAX_LEVEL);
+        ByteBuffer chunk = chunk(head);
+        chunk.putInt(LEVEL, MAX_LEVEL - 1);
+        chunk.putInt(KEY_LENGTH, 0);
+        chunk.putInt(VALUE_LENGTH, 0);
+        for (int i = 0; i < MAX_LEVEL; i++) {
+            setNext(head, i, NIL);
+        }
+        level = 0;
+        size = 0;
+    }
+
+    /**
+     * Searches for the pairs with a key.
+     *
+     * @param key key to be searched for
+     * @return pairs with the key in list order
+     */
+    public ArrayList<KVPair<String, V>> search(String key) {
+        byte[] bytes = key.getBytes(StandardCharsets.UTF_8);
+        ArrayList<KVPair<String, V>> result = new ArrayList<>();
+        findBefore(bytes);
+        for (long x = next(update[0], 0); x != NIL && compare(x, bytes) == 0;
+             x = next(x, 0)) {
+            result.add(new KVPair<>(key, value(x, key)));
+        }
+        return result;
+    }
+
+    /**
+     * @return the number of pairs in the list
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return number of bytes of the arena written so far, removed pairs
+     * included
+     */
+    public long usedBytes() {
+        return top;
+    }
+
+    /**
+     * @return number of bytes held by the arena chunks
+     */
+    public long arenaBytes() {
+        return (long) chunks.size() * chunkSize;
+    }
+
+    /**
+     * Inserts a pair before all the pairs with the same key, as SkipList
+     * does.
+     *
+     * @param it the KVPair to be inserted
+     * @throws IllegalArgumentException if the pair does not fit in a chunk
+     */
+    public void insert(KVPair<String, V> it) {
+        byte[] key = it.getKey().getBytes(StandardCharsets.UTF_8);
+        V value = it.getValue();
+        int valueLength = codec.size(value);
+        int newLevel = randomLevel();
+        // the head links above the old level all end the level
+        level = Math.max(level, newLevel);
+        findBefore(key);
+
+        int keyOffset = FORWARD + 8 * (newLevel + 1);
+        long node = allocate(keyOffset + key.length + valueLength);
+        ByteBuffer chunk = chunk(node);
+        int offset = offset(node);
+        chunk.putInt(offset + LEVEL, newLevel);
+        chunk.putInt(offset + KEY_LENGTH, key.length);
+        chunk.putInt(offset + VALUE_LENGTH, valueLength);
+        for (int i = 0; i < key.length; i++) {
+            chunk.put(offset + keyOffset + i, key[i]);
+        }
+        codec.write(chunk, offset + keyOffset + key.length, value);
+        for (int i = 0; i <= newLevel; i++) {
+            setNext(node, i, next(update[i], i));
+            setNext(update[i], i, node);
+        }
+        size++;
+    }
+
+    /**
+     * Removes the first pair with a key.
+     *
+     * @param key the key of the pair to be removed
+     * @return the removed pair, or null if no pair has the key
+     */
+    public KVPair<String, V> remove(String key) {
+        byte[] bytes = key.getBytes(StandardCharsets.UTF_8);
+        findBefore(bytes);
+        long x = next(update[0], 0);
+        if (x == NIL || compare(x, bytes) != 0) {
+            return null;
+        }
+        unlink(x);
+        return new KVPair<>(key, value(x, key));
+    }
+
+    /**
+     * Removes the pair with the given key and value. Pairs with the same
+     * key but another value are left in the list.
+     *
+     * @param key   the key of the pair to be removed
+     * @param value the value of the pair to be removed
+     * @return the removed pair, or null if it was not found
+     */
+    public KVPair<String, V> remove(String key, V value) {
+        byte[] bytes = key.getBytes(StandardCharsets.UTF_8);
+        findBefore(bytes);
+        for (long x = next(update[0], 0); x != NIL && compare(x, bytes) == 0;
+             x = next(x, 0)) {
+            V found = value(x, key);
+            if (found.equals(value)) {
+                unlink(x);
+                return new KVPair<>(key, found);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Populates update with the last node before the key on every level.
+     *
+     * @param key key to look for
+     */
+    private void findBefore(byte[] key) {
+        long x = NIL;
+        for (int i = level; i >= 0; i--) {
+            long next = next(x, i);
+            while (next != NIL && compare(next, key) < 0) {
+                x = next;
+                next = next(x, i);
+            }
+            update[i] = x;
+        }
+    }
+
+    /**
+     * Unlinks a node from every level. Nodes with the same key can precede
+     * the target on any level, so each update entry is first moved forward
+     * up to the target.
+     *
+     * @param target node to be removed
+     */
+    private void unlink(long target) {
+        int targetLevel = chunk(target).getInt(offset(target) + LEVEL);
+        for (int i = 0; i <= targetLevel; i++) {
+            long next = next(update[i], i);
+            while (next != target) {
+                update[i] = next;
+                next = next(next, i);
+            }
+            setNext(update[i], i, next(target, i));
+        }
+        size--;
+    }
+
+    /**
+     * Reserve space for a node. A node never spans two chunks, so the end
+     * of a chunk too small for it is left unused.
+     *
+     * @param bytes number of bytes of the node
+     * @return address of the node
+     * @throws IllegalArgumentException if the node does not fit in a chunk
+     */
+    private long allocate(int bytes) {
+        if (bytes > chunkSize) {
+            throw new IllegalArgumentException(
+                    "Pair of " + bytes + " bytes does not fit in a chunk");
+        }
+        long end = arenaBytes();
+        if (top + bytes > end) {
+            top = end;
+            chunks.add(ByteBuffer.allocateDirect(chunkSize)
+                    .order(ByteOrder.nativeOrder()));
+        }
+        long address = top;
+        top += bytes;
+        return address;
+    }
+
+    private ByteBuffer chunk(long node) {
+        return chunks.get((int) (node >>> chunkShift));
+    }
+
+    private int offset(long node) {
+        return (int) node & chunkSize - 1;
+    }
+
+    private long next(long node, int i) {
+        return chunk(node).getLong(offset(node) + FORWARD + 8 * i);
+    }
+
+    private void setNext(long node, int i, long next) {
+        chunk(node).putLong(offset(node) + FORWARD + 8 * i, next);
+    }
+
+    /**
+     * Compare the key of a node with a key, byte by byte.
+     *
+     * @param node node whose key to compare
+     * @param key  UTF-8 bytes of the key
+     * @return negative, zero or positive as the node key sorts before, the
+     * same as or after the key
+     */
+    private int compare(long node, byte[] key) {
+        ByteBuffer chunk = chunk(node);
+        int offset = offset(node);
+        int length = chunk.getInt(offset + KEY_LENGTH);
+        int start = offset + FORWARD + 8 * (chunk.getInt(offset + LEVEL) + 1);
+        int common = Math.min(length, key.length);
+        for (int i = 0; i < common; i++) {
+            int order = (chunk.get(start + i) & 0xff) - (key[i] & 0xff);
+            if (order != 0) {
+                return order;
+            }
+        }
+        return length - key.length;
+    }
+
+    /**
+     * Decode the key of a node.
+     *
+     * @param node node to read
+     * @return the key
+     */
+    private String key(long node) {
+        ByteBuffer chunk = chunk(node);
+        int offset = offset(node);
+        int start = offset + FORWARD + 8 * (chunk.getInt(offset + LEVEL) + 1);
+        byte[] bytes = new byte[chunk.getInt(offset + KEY_LENGTH)];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = chunk.get(start + i);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Decode the value of a node.
+     *
+     * @param node node to read
+     * @param key  key of the node
+     * @return the value
+     */
+    private V value(long node, String key) {
+        ByteBuffer chunk = chunk(node);
+        int offset = offset(node);
+        int start = offset + FORWARD + 8 * (chunk.getInt(offset + LEVEL) + 1)
+                + chunk.getInt(offset + KEY_LENGTH);
+        return codec.read(chunk, start,
+                chunk.getInt(offset + VALUE_LENGTH), key);
+    }
+
+    private class OffHeapIterator implements Iterator<KVPair<String, V>> {
+
+        private long current = OffHeapSkipList.this.next(NIL, 0);
+
+        @Override
+        public boolean hasNext() {
+            return current != NIL;
+        }
+
+        @Override
+        public KVPair<String, V> next() {
+            if (current == NIL) {
+                throw new NoSuchElementException();
+            }
+            String key = key(current);
+            KVPair<String, V> pair = new KVPair<>(key, value(current, key));
+            current = OffHeapSkipList.this.next(current, 0);
+            return pair;
+        }
+    }
+
+    @Override
+    public Iterator<KVPair<String, V>> iterator() {
+        return new OffHeapIterator();
+    }
+}
@@ -0,0 +1,113 @@
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * @author Abhinav Sethi
+ * @version 2021-10-23
+ * <p>
+ * Benchmark that compares the sinks on the commands printing the most
+ * lines, a region search over the whole world and a dump. The console sink
+ * prints to a file through a PrintStream set up like System.out, the
+ * buffered sink writes to the same file and the counting sink shows the
+ * cost of the commands without any output.
+ */
+public class OutputBenchmark {
+
+    /**
+     * Size of the world quadrant used by the benchmark
+     */
+    private static final int WORLD_SIZE = 1024;
+
+    /**
+     * Number of times every measurement is repeated to warm up the JIT
+     */
+    private static final int ROUNDS = 5;
+
+    /**
+     * Entry point of the benchmark.
+     *
+     * @param args optional number of points to use
+     * @throws IOException if the output file cannot be written
+     */
+    public static void main(String[] args) throws IOException {
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : 10000;
+        Random random = new Random(1);
+        List<Point> points = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            points.add(new Point("p" + i, random.nextInt(WORLD_SIZE),
+                    random.nextInt(WORLD_SIZE)));
+        }
+        File file = File.createTempFile("output", ".txt");
+        file.deleteOnExit();
+
+        PrintStream out = System.out;
+        try (OutputStream stream = new FileOutputStream(file)) {
+            // System.out flushes a small buffer on every line
+            System.setOut(new PrintStream(
+                    new BufferedOutputStream(stream, 128), true));
+            BufferedSink buffered = new BufferedSink(stream);
+            CountingSink counting = new CountingSink();
+            Database console = load(points, new ConsoleSink());
+            Database batched = load(points, buffered);
+            Database counted = load(points, counting);
+            buffered.flush();
+
+            for (int round = 0; round < ROUNDS; round++) {
+                long lines = counting.getLines();
+                long time = System.nanoTime();
+                run(counted);
+                long none = System.nanoTime() - time;
+                lines = counting.getLines() - lines;
+
+                time = System.nanoTime();
+                run(console);
+                System.out.flush();
+                long printed = System.nanoTime() - time;
+
+                time = System.nanoTime();
+                run(batched);
+                buffered.flush();
+                long written = System.nanoTime() - time;
+
+                out.println(String.format("%d lines | console %d ns/line"
+                        + " | buffered %d ns/line | counting %d ns/line",
+                        lines, printed / lines, written / lines,
+                        none / lines));
+            }
+            buffered.close();
+        }
+        finally {
+            System.setOut(out);
+        }
+    }
+
+    /**
+     * Create a database printing to a sink and insert the points.
+     *
+     * @param points points to insert
+     * @param sink   sink of the database
+     * @return loaded database
+     */
+    static Database load(List<Point> points, OutputSink sink) {
+        Database database = new Database(new PointerQuadTree(), sink);
+        database.insertAll(points);
+        return database;
+    }
+
+    /**
+     * Run the print heavy commands.
+     *
+     * @param database database to run them on
+     */
+    static void run(Database database) {
+        database.regionsearch(0, 0, WORLD_SIZE, WORLD_SIZE);
+        database.dump();
+    }
+}
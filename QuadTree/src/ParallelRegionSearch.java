@@ -0,0 +1,100 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * @author Abhinav Sethi
+ * @version 2021-10-23
+ * <p>
+ * Fork-join task that searches a region of the pointer quad tree.
+ * Internal nodes holding at least the threshold number of points fork one
+ * subtask per child quadrant that intersects the region, smaller subtrees
+ * are searched sequentially on the worker thread.
+ * Every task collects its points in its own list and the lists are joined
+ * in quadrant order, so the points and the number of nodes visited are
+ * the same as in the sequential search.
+ */
+public class ParallelRegionSearch extends RecursiveTask<Integer> {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final int NUM_QUADRANTS = 4;
+
+    private final QuadTreeNode node;
+    private final Rectangle region;
+    private final int x;
+    private final int y;
+    private final int size;
+    private final int threshold;
+    private final List<Point> found;
+
+    /**
+     * Constructor to initialize the task for a quadrant
+     *
+     * @param node      node covering the quadrant
+     * @param region    rectangle object representing the area
+     * @param x         x-coordinate of the quadrant origin
+     * @param y         y-coordinate of the quadrant origin
+     * @param size      size of the quadrant
+     * @param threshold smallest subtree point count split into subtasks
+     */
+    public ParallelRegionSearch(QuadTreeNode node, Rectangle region, int x,
+                                int y, int size, int threshold) {
+        this.node = node;
+        this.region = region;
+        this.x = x;
+        this.y = y;
+        this.size = size;
+        this.threshold = threshold;
+        this.found = new ArrayList<>();
+    }
+
+    /**
+     * Return the points found by the task, valid after it completes
+     *
+     * @return points within the region in output order
+     */
+    public List<Point> getFound() {
+        return found;
+    }
+
+    /**
+     * Search the quadrant and return the number of nodes visited
+     *
+     * @return number of nodes visited
+     */
+    @Override
+    protected Integer compute() {
+        if (node.isLeaf() || node.getSize() < threshold) {
+            return node.regionSearch(region, x, y, size, found);
+        }
+        QuadTreeInternalNode internal = (QuadTreeInternalNode) node;
+        int half = size >> 1;
+        List<ParallelRegionSearch> tasks = new ArrayList<>(NUM_QUADRANTS);
+        for (int i = 0; i < NUM_QUADRANTS; ++i) {
+            int childX = Quadrant.childX(i, x, size);
+            int childY = Quadrant.childY(i, y, size);
+            QuadTreeNode child = internal.getChild(i);
+            if (child != QuadTreeFlyweightNode.getInstance()
+                    && Quadrant.intersects(region, childX, childY, half)) {
+                tasks.add(new ParallelRegionSearch(child, region, childX,
+                        childY, half, threshold));
+            }
+        }
+        // fork all but the last child and search that one on this thread
+        for (int i = 0; i < tasks.size() - 1; i++) {
+            tasks.get(i).fork();
+        }
+        int numVisited = 1;
+        if (!tasks.isEmpty()) {
+            numVisited += tasks.get(tasks.size() - 1).compute();
+        }
+        for (int i = 0; i < tasks.size(); i++) {
+            if (i < tasks.size() - 1) {
+                numVisited += tasks.get(i).join();
+            }
+            found.addAll(tasks.get(i).found);
+        }
+        return numVisited;
+    }
+}
@@ -0,0 +1,155 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.util.Random;
+import java.util.Scanner;
+
+/**
+ * @author Abhinav Sethi
+ * @version 2021-10-23
+ * <p>
+ * Benchmark that compares the cost of parsing a command file with a
+ * Scanner and the CommandProcessor against the byte-level CommandParser.
+ * Both feed a database that only counts the calls, so the numbers show
+ * the parsing alone.
+ */
+public class ParserBenchmark {
+
+    /**
+     * Size of the world quadrant used by the benchmark
+     */
+    private static final int WORLD_SIZE = 1024;
+
+    /**
+     * Number of times every measurement is repeated to warm up the JIT
+     */
+    private static final int ROUNDS = 5;
+
+    /**
+     * Database that counts the commands instead of running them
+     */
+    static class CountingDatabase extends Database {
+
+        /**
+         * Number of commands received, summed with their coordinates so
+         * that the parsing cannot be optimized away
+         */
+        long calls;
+
+        @Override
+        public void insert(Point point) {
+            calls += 1 + point.x + point.y;
+        }
+
+        @Override
+        public void remove(String name) {
+            calls++;
+        }
+
+        @Override
+        public void remove(int x, int y) {
+            calls += 1 + x + y;
+        }
+
+        @Override
+        public void regionsearch(int x, int y, int w, int h) {
+            calls += 1 + x + y + w + h;
+        }
+
+        @Override
+        public void regioncount(int x, int y, int w, int h) {
+            calls += 1 + x + y + w + h;
+        }
+
+        @Override
+        public void search(String name) {
+            calls++;
+        }
+
+        @Override
+        public void nearest(int x, int y, int k) {
+            calls += 1 + x + y + k;
+        }
+    }
+
+    /**
+     * Entry point of the benchmark.
+     *
+     * @param args optional number of command lines to generate
+     * @throws IOException if the command file cannot be used
+     */
+    public static void main(String[] args) throws IOException {
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+        File file = File.createTempFile("commands", ".txt");
+        file.deleteOnExit();
+        write(file, n);
+
+        for (int round = 0; round < ROUNDS; round++) {
+            CountingDatabase scanned = new CountingDatabase();
+            long bytes = QuadTreeBenchmark.allocatedBytes();
+            long time = System.nanoTime();
+            CommandProcessor processor = new CommandProcessor(scanned);
+            try (Scanner scanner = new Scanner(file)) {
+                while (scanner.hasNextLine()) {
+                    String line = scanner.nextLine();
+                    if (!line.trim().isEmpty()) {
+                        processor.processor(line.trim());
+                    }
+                }
+            }
+            String scanner = QuadTreeBenchmark.report("scanner", n, bytes,
+                    time);
+
+            CountingDatabase parsed = new CountingDatabase();
+            bytes = QuadTreeBenchmark.allocatedBytes();
+            time = System.nanoTime();
+            new CommandParser(parsed).parse(file.toPath());
+            String parser = QuadTreeBenchmark.report("parser", n, bytes,
+                    time);
+
+            if (scanned.calls != parsed.calls) {
+                throw new IllegalStateException("Parsers disagree");
+            }
+            System.out.println(scanner + " | " + parser);
+        }
+        Files.delete(file.toPath());
+    }
+
+    /**
+     * Write a command file with a mix of the commands taking arguments.
+     *
+     * @param file file to write
+     * @param n    number of lines
+     * @throws IOException if the file cannot be written
+     */
+    static void write(File file, int n) throws IOException {
+        Random random = new Random(1);
+        try (PrintWriter out = new PrintWriter(
+                Files.newBufferedWriter(file.toPath()))) {
+            for (int i = 0; i < n; i++) {
+                int x = random.nextInt(WORLD_SIZE);
+                int y = random.nextInt(WORLD_SIZE);
+                switch (i % 8) {
+                    case 0:
+                        out.println("remove " + x + " " + y);
+                        break;
+                    case 1:
+                        out.println("regionsearch " + x + " " + y + " 64 64");
+                        break;
+                    case 2:
+                        out.println("regioncount " + x + " " + y + " 64 64");
+                        break;
+                    case 3:
+                        out.println("search p" + x);
+                        break;
+                    case 4:
+                        out.println("nearest " + x + " " + y + " 4");
+                        break;
+                    default:
+                        out.println("insert p" + i + " " + x + " " + y);
+                }
+            }
+        }
+    }
+}
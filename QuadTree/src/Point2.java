@@ -1,87 +1,74 @@
-import java.io.File;
-import java.io.FileNotFoundException;
-import java.util.Scanner;
-
-// On my honor:
-//
-// - I have not used source code obtained from another student,
-// or any other unauthorized source, either modified or
-// unmodified.
-//
-// - All source code and documentation used in my program is
-// either my original work, or was derived by me from the
-// source code published in the textbook for this course.
-//
-// - I have not discussed coding details about this project with
-// anyone other than my partner (in the case of a joint
-// submission), instructor, ACM/UPE tutors or the TAs assigned
-// to this course. I understand that I may discuss the concepts
-// of this program with other students, and that another student
-// may help me debug my program so long as neither of us writes
-// anything during the discussion or modifies any computer file
-// during the discussion. I have violated neither the spirit nor
-// letter of this restriction.
-
-/**
- * The program is for storing and managing points using
- * SkipLists and PRQuadTree data structure.
- * It supports functionalities like inserting
- * points, removing nodes by key or value, searching nodes,
- * and finding duplicates. Program also provides option to print
- * out all point nodes.
- *
- * The class containing the main method, the entry point of the application. It
- * will take a command line file argument which include the commands to be read
- * and creates the appropriate SkipList and QuadTree object and outputs
- * the correct results to the console as specified in the file.
- *
- * Java version used: 1.8.0_302
- * Operating system: macOS 11.5.2
- *
- * @author Abhinav Sethi 
- * @version 2021-10-23
- */
-public class Point2 {
-
-    /**
-     * The entry point of the application.
-     *
-     * @param args The name of the command file passed in as a command line
-     *             argument.
-     */
-    public static void main(String[] args) {
-        // the file object
-        File file = null;
-
-
-        // Attempts to open the file and scan through it
-        try {
-            // takes the first command line argument and opens that file
-            file = new File(args[0]);
-
-            // creates a scanner object
-            Scanner scanner = new Scanner(file);
-
-            // creates a command processor object
-            CommandProcessor cmdProc = new CommandProcessor();
-            // reads the entire file and processes the commands
-            // line by line
-            while (scanner.hasNextLine()) {
-                String line = scanner.nextLine();
-                // determines if the file has more lines to read
-                if (!line.trim().isEmpty()) {
-                    cmdProc.processor(line.trim());
-                }
-            }
-            // closes the scanner
-            scanner.close();
-        }
-        // catches the exception if the file cannot be found
-        // and outputs the correct information to the console
-        catch (FileNotFoundException e) {
-            System.out.println("Invalid file");
-            e.printStackTrace();
-        }
-
-    }
-}
+import java.io.IOException;
+import java.nio.file.Paths;
+
+// On my honor:
+//
+// - I have not used source code obtained from another student,
+// or any other unauthorized source, either modified or
+// unmodified.
+//
+// - All source code and documentation used in my program is
+// either my original work, or was derived by me from the
+// source code published in the textbook for this course.
+//
+// - I have not discussed coding details about this project with
+// anyone other than my partner (in the case of a joint
+// submission), instructor, ACM/UPE tutors or the TAs assigned
+// to this course. I understand that I may discuss the concepts
+// of this program with other students, and that another student
+// may help me debug my program so long as neither of us writes
+// anything during the discussion or modifies any computer file
+// during the discussion. I have violated neither the spirit nor
+// letter of this restriction.
+
+/**
+ * The program is for storing and managing points using
+ * SkipLists and PRQuadTree data structure.
+ * It supports functionalities like inserting
+ * points, removing nodes by key or value, searching nodes,
+ * and finding duplicates. Program also provides option to print
+ * out all point nodes.
+ *
+ * The class containing the main method, the entry point of the application. It
+ * will take a command line file argument which include the commands to be read
+ * and creates the appropriate SkipList and QuadTree object and outputs
+ * the correct results to the console as specified in the file.
+ *
+ * Java version used: 1.8.0_302
+ * Operating system: macOS 11.5.2
+ *
+ * @author Abhinav Sethi 
+ * @version 2021-10-23
+ */
+public class Point2 {
+
+    /**
+     * The entry point of the application.
+     *
+     * @param args The name of the command file passed in as a command line
+     *             argument.
+     */
+    public static void main(String[] args) {
+        // buffers the output and writes it from a separate thread
+        BufferedSink out = new BufferedSink(System.out);
+
+        // Attempts to map the file and parse through it
+        try {
+            // takes the first command line argument as the file and
+            // processes its commands line by line
+            Database data = new Database(new PointerQuadTree(), out);
+            new CommandParser(data).parse(Paths.get(args[0]));
+        }
+        // catches the exception if the file cannot be read
+        // and outputs the correct information to the console
+        catch (IOException e) {
+            out.println(Constants.INVALID_FILE);
+            e.printStackTrace();
+        }
+        // writes the remaining output
+        finally {
+            out.close();
+        }
+
+    }
+}
@@ -0,0 +1,143 @@
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * @author Abhinav Sethi
+ * @version 2021-10-23
+ * <p>
+ * QuadTree engine built from linked QuadTreeNode objects.
+ * Internal, leaf and flyweight nodes implement the decomposition rules,
+ * this class only keeps the root and the world quadrant bounds.
+ * <p>
+ * Region search can run in parallel on the common fork-join pool by
+ * giving a subtree size threshold; the output is the same as the
+ * sequential search.
+ */
+public class PointerQuadTree implements QuadTree {
+
+    /**
+     * Root node of the quad tree.
+     */
+    private QuadTreeNode root;
+
+    /**
+     * Smallest subtree point count split into parallel region search
+     * tasks, 0 for the sequential search
+     */
+    private final int parallelThreshold;
+
+    /**
+     * Constructor to initialize an empty tree
+     */
+    public PointerQuadTree() {
+        root = QuadTreeFlyweightNode.getInstance();
+        parallelThreshold = 0;
+    }
+
+    /**
+     * Constructor to initialize an empty tree with parallel region search
+     *
+     * @param parallelThreshold smallest subtree point count that is split
+     *                          into parallel tasks, at least 1
+     * @throws IllegalArgumentException if the threshold is below 1
+     */
+    public PointerQuadTree(int parallelThreshold) {
+        if (parallelThreshold < 1) {
+            throw new IllegalArgumentException(
+                    "Invalid parallel threshold " + parallelThreshold);
+        }
+        root = QuadTreeFlyweightNode.getInstance();
+        this.parallelThreshold = parallelThreshold;
+    }
+
+    @Override
+    public void insert(Point point) {
+        root = root.insert(point, 0, 0, WORLD_SIZE);
+    }
+
+    @Override
+    public void bulkLoad(Point[] points) {
+        root = QuadTreeNode.build(points, 0, points.length,
+                new Point[points.length], 0, 0, WORLD_SIZE);
+    }
+
+    @Override
+    public void remove(Point point) {
+        root = root.remove(point, 0, 0, WORLD_SIZE);
+    }
+
+    @Override
+    public boolean exists(Point point) {
+        return root.exists(point, 0, 0, WORLD_SIZE);
+    }
+
+    @Override
+    public Point search(Point point) {
+        return root.search(point, 0, 0, WORLD_SIZE);
+    }
+
+    @Override
+    public int regionSearch(Rectangle region, OutputSink out) {
+        if (parallelThreshold == 0) {
+            return root.regionSearch(region, 0, 0, WORLD_SIZE, out);
+        }
+        ParallelRegionSearch task = new ParallelRegionSearch(root, region, 0,
+                0, WORLD_SIZE, parallelThreshold);
+        int numVisited = ForkJoinPool.commonPool().invoke(task);
+        for (Point p : task.getFound()) {
+            out.println(Constants.REGION_SEARCH_FOUND, p);
+        }
+        return numVisited;
+    }
+
+    @Override
+    public int regionCount(Rectangle region) {
+        return root.regionCount(region, 0, 0, WORLD_SIZE);
+    }
+
+    @Override
+    public int nearest(int x, int y, int k, OutputSink out) {
+        NearestQueue queue = new NearestQueue(x, y, k);
+        queue.offer(root, 0, 0, WORLD_SIZE);
+        int numVisited = 0;
+        int numFound = 0;
+        NearestQueue.Entry entry = queue.poll();
+        while (entry != null && numFound < k) {
+            if (entry.getPoint() != null) {
+                out.println(Constants.REGION_SEARCH_FOUND, entry.getPoint());
+                numFound++;
+            }
+            else if (entry.getNode() != QuadTreeFlyweightNode.getInstance()) {
+                entry.getNode().nearest(queue, entry.getX(), entry.getY(),
+                        entry.getSize());
+                numVisited++;
+            }
+            entry = queue.poll();
+        }
+        return numVisited;
+    }
+
+    @Override
+    public void duplicates(OutputSink out) {
+        root.duplicates(out);
+    }
+
+    @Override
+    public int dump(OutputSink out) {
+        return root.dump(new Quadrant(0, 0, WORLD_SIZE), 1, out);
+    }
+
+    @Override
+    public void writeLayout(DataOutput out, Map<Point, Integer> ids)
+            throws IOException {
+        root.write(out, ids);
+    }
+
+    @Override
+    public void readLayout(ByteBuffer in, Point[] points) {
+        root = QuadTreeNode.read(in, points);
+    }
+}
@@ -0,0 +1,126 @@
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Map;
+
+/**
+ * @author Abhinav Sethi
+ * @version 2021-10-23
+ * <p>
+ * Interface for the PR quadtree engines that the Database can be backed by.
+ * Every engine covers the 1024 by 1024 world, follows the decomposition
+ * rule described in QuadTreeNode and prints its results in the same format,
+ * so the engines can be swapped without changing the program output.
+ */
+public interface QuadTree {
+
+    /**
+     * Size of the world quadrant covered by the tree
+     */
+    int WORLD_SIZE = 1024;
+
+    /**
+     * Insert a point record into the tree
+     *
+     * @param point to insert
+     */
+    void insert(Point point);
+
+    /**
+     * Build the tree from a batch of points. The tree must be empty and the
+     * points valid and distinct. The resulting tree is the same as the one
+     * built by inserting the points one by one in the given order.
+     *
+     * @param points points to store, the array may be reordered
+     */
+    void bulkLoad(Point[] points);
+
+    /**
+     * Remove a point record from the tree
+     *
+     * @param point to remove
+     */
+    void remove(Point point);
+
+    /**
+     * Check if a point with the same name and coordinates exists in the tree
+     *
+     * @param point to check
+     * @return boolean to indicate if point exists or not
+     */
+    boolean exists(Point point);
+
+    /**
+     * Find a point with the same coordinates as the given point
+     *
+     * @param point obj to search
+     * @return a point with the coordinates and null if there is none
+     */
+    Point search(Point point);
+
+    /**
+     * Print out all the points that exists within the given region
+     *
+     * @param region rectangle object representing the area
+     * @param out    sink to print the points to
+     * @return number of nodes visited
+     */
+    int regionSearch(Rectangle region, OutputSink out);
+
+    /**
+     * Count the points that exists within the given region without
+     * printing them. Quadrants inside the region add their point count
+     * without being searched.
+     *
+     * @param region rectangle object representing the area
+     * @return number of points within the region
+     */
+    int regionCount(Rectangle region);
+
+    /**
+     * Print out the k points closest to the given coordinates, closest
+     * first. Quadrants are searched best-first by their distance to the
+     * coordinates and are skipped once k closer points are known.
+     *
+     * @param x   x-coordinate to search from
+     * @param y   y-coordinate to search from
+     * @param k   number of points to find
+     * @param out sink to print the points to
+     * @return number of nodes visited
+     */
+    int nearest(int x, int y, int k, OutputSink out);
+
+    /**
+     * Print out all the duplicate points that exists in the tree
+     *
+     * @param out sink to print the points to
+     */
+    void duplicates(OutputSink out);
+
+    /**
+     * Print out all nodes of the tree with their points
+     *
+     * @param out sink to print the nodes to
+     * @return number of nodes printed
+     */
+    int dump(OutputSink out);
+
+    /**
+     * Write the node layout of the tree to a snapshot in pre-order, in the
+     * tag format described in Snapshot
+     *
+     * @param out stream to write the layout to
+     * @param ids snapshot id of every point in the tree
+     * @throws IOException if the stream cannot be written
+     */
+    void writeLayout(DataOutput out, Map<Point, Integer> ids)
+            throws IOException;
+
+    /**
+     * Load the node layout read from a snapshot into an empty tree
+     *
+     * @param in     buffer positioned at the layout
+     * @param points points of the snapshot by id
+     */
+    void readLayout(ByteBuffer in, Point[] points);
+}
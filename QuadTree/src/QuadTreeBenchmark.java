@@ -0,0 +1,177 @@
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+
+/**
+ * @author Abhinav Sethi
+ * @version 2021-10-23
+ * <p>
+ * Benchmark that measures the time and the heap allocation per operation
+ * of the quadtree insert, bulkLoad, search, regionSearch and remove
+ * methods, and compares the sequential and parallel region search over
+ * large windows.
+ * The ingest curve shows the cost of the duplicate check and insert done
+ * by the database for every new point as the tree doubles in size.
+ * Allocation is read from the per thread allocation counter of the JVM,
+ * so the numbers show the garbage each operation leaves behind.
+ * Region search output is discarded while it is measured.
+ */
+public class QuadTreeBenchmark {
+
+    /**
+     * Size of the world quadrant used by the benchmark
+     */
+    private static final int WORLD_SIZE = 1024;
+
+    /**
+     * Number of times every measurement is repeated to warm up the JIT
+     */
+    private static final int ROUNDS = 5;
+
+    /**
+     * Number of large window region searches per round
+     */
+    private static final int WINDOWS = 200;
+
+    /**
+     * Smallest subtree point count split by the parallel region search
+     */
+    private static final int PARALLEL_THRESHOLD = 4096;
+
+    /**
+     * Entry point of the benchmark.
+     *
+     * @param args optional number of points to use
+     */
+    public static void main(String[] args) {
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : 200000;
+        Random random = new Random(1);
+        Point[] points = new Point[n];
+        for (int i = 0; i < n; i++) {
+            points[i] = new Point("p" + i, random.nextInt(WORLD_SIZE),
+                    random.nextInt(WORLD_SIZE));
+        }
+
+        PrintStream out = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        OutputSink sink = new ConsoleSink();
+        try {
+            for (int round = 0; round < ROUNDS; round++) {
+                QuadTreeNode root = QuadTreeFlyweightNode.getInstance();
+
+                long bytes = allocatedBytes();
+                long time = System.nanoTime();
+                for (Point p : points) {
+                    root = root.insert(p, 0, 0, WORLD_SIZE);
+                }
+                out.print(report("insert", n, bytes, time));
+
+                Point[] batch = points.clone();
+                bytes = allocatedBytes();
+                time = System.nanoTime();
+                new PointerQuadTree().bulkLoad(batch);
+                out.print(" | " + report("bulkLoad", n, bytes, time));
+
+                bytes = allocatedBytes();
+                time = System.nanoTime();
+                for (Point p : points) {
+                    root.search(p, 0, 0, WORLD_SIZE);
+                }
+                out.print(" | " + report("search", n, bytes, time));
+
+                Rectangle region = new Rectangle(0, 0, 16, 16);
+                bytes = allocatedBytes();
+                time = System.nanoTime();
+                for (Point p : points) {
+                    region.setLocation(p.x, p.y);
+                    root.regionSearch(region, 0, 0, WORLD_SIZE, sink);
+                }
+                out.print(" | " + report("regionSearch", n, bytes, time));
+
+                PointerQuadTree sequential = new PointerQuadTree();
+                sequential.bulkLoad(points.clone());
+                PointerQuadTree parallel =
+                        new PointerQuadTree(PARALLEL_THRESHOLD);
+                parallel.bulkLoad(points.clone());
+                Rectangle window = new Rectangle(0, 0, 512, 512);
+                bytes = allocatedBytes();
+                time = System.nanoTime();
+                for (int i = 0; i < WINDOWS; i++) {
+                    window.setLocation(points[i].x - 256, points[i].y - 256);
+                    sequential.regionSearch(window, sink);
+                }
+                out.print(" | " + report("windowSearch", WINDOWS, bytes, time));
+                bytes = allocatedBytes();
+                time = System.nanoTime();
+                for (int i = 0; i < WINDOWS; i++) {
+                    window.setLocation(points[i].x - 256, points[i].y - 256);
+                    parallel.regionSearch(window, sink);
+                }
+                out.print(" | " + report("parallelWindowSearch", WINDOWS,
+                        bytes, time));
+
+                bytes = allocatedBytes();
+                time = System.nanoTime();
+                for (Point p : points) {
+                    root = root.remove(p, 0, 0, WORLD_SIZE);
+                }
+                out.println(" | " + report("remove", n, bytes, time));
+            }
+            ingestCurve(points, out);
+        }
+        finally {
+            System.setOut(out);
+        }
+    }
+
+    /**
+     * Print the cost of checking and inserting a point at every doubling
+     * of the tree size, as the database does on insert.
+     *
+     * @param points points to insert
+     * @param out    stream to print the curve to
+     */
+    static void ingestCurve(Point[] points, PrintStream out) {
+        QuadTree tree = new PointerQuadTree();
+        int inserted = 0;
+        for (int size = 1000; size <= points.length; size *= 2) {
+            int count = size - inserted;
+            long bytes = allocatedBytes();
+            long time = System.nanoTime();
+            for (; inserted < size; inserted++) {
+                if (!tree.exists(points[inserted])) {
+                    tree.insert(points[inserted]);
+                }
+            }
+            out.println(report("ingest to " + size, count, bytes, time));
+        }
+    }
+
+    /**
+     * Format the cost of one measured phase.
+     *
+     * @param name  name of the operation
+     * @param n     number of operations in the phase
+     * @param bytes allocation counter at the start of the phase
+     * @param time  nano time at the start of the phase
+     * @return bytes and nanoseconds per operation
+     */
+    static String report(String name, int n, long bytes, long time) {
+        long elapsed = System.nanoTime() - time;
+        long allocated = allocatedBytes() - bytes;
+        return String.format("%s %.1f B/op %d ns/op", name,
+                allocated / (double) n, elapsed / n);
+    }
+
+    /**
+     * Return the number of bytes allocated so far by the current thread.
+     *
+     * @return allocated bytes
+     */
+    static long allocatedBytes() {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory
+                .getThreadMXBean()).getThreadAllocatedBytes(
+                Thread.currentThread().getId());
+    }
+}
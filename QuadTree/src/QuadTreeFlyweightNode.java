@@ -1,4 +1,7 @@
-import java.text.MessageFormat;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
 
 /**
  * @author Abhinav Sethi 
@@ -37,12 +40,14 @@ public class QuadTreeFlyweightNode extends QuadTreeNode {
      * If insertion at flyweight node is required then a Leaf node
      * instance is returned.
      *
-     * @param point    record to insert
-     * @param quadrant quadrant within the tree to insert at
+     * @param point record to insert
+     * @param x     x-coordinate of the quadrant origin
+     * @param y     y-coordinate of the quadrant origin
+     * @param size  size of the quadrant
      * @return new Leaf node instance
      */
     @Override
-    public QuadTreeNode insert(Point point, Quadrant quadrant) {
+    public QuadTreeNode insert(Point point, int x, int y, int size) {
         return new QuadTreeLeafNode(point);
     }
 
@@ -50,11 +55,13 @@ public class QuadTreeFlyweightNode extends QuadTreeNode {
      * No operation required if remove is called on the flyweight node.
      * And  the same instance is returned.
      * @param point obj to remove
-     * @param quadrant quadrant from which to remove point
+     * @param x     x-coordinate of the quadrant origin
+     * @param y     y-coordinate of the quadrant origin
+     * @param size  size of the quadrant
      * @return same flyweight instance
      */
     @Override
-    public QuadTreeNode remove(Point point, Quadrant quadrant) {
+    public QuadTreeNode remove(Point point, int x, int y, int size) {
         return this;
     }
 
@@ -64,7 +71,7 @@ public class QuadTreeFlyweightNode extends QuadTreeNode {
      * @return false
      */
     @Override
-    public boolean exists(Point point) {
+    public boolean exists(Point point, int x, int y, int size) {
         return false;
     }
 
@@ -83,7 +90,7 @@ public class QuadTreeFlyweightNode extends QuadTreeNode {
      * @return null
      */
     @Override
-    public Point search(Point point, Quadrant quadrant) {
+    public Point search(Point point, int x, int y, int size) {
         return null;
     }
 
@@ -93,15 +100,46 @@ public class QuadTreeFlyweightNode extends QuadTreeNode {
      * @return number of nodes visited (always 0 in this case)
      */
     @Override
-    public int regionSearch(Rectangle region, Quadrant quadrant) {
+    public int regionSearch(Rectangle region, int x, int y, int size,
+                            OutputSink out) {
         return 0;
     }
 
+    /**
+     * Collect all the points that exists within the given region
+     * outlined within the quadrant.
+     * @return number of nodes visited (always 0 in this case)
+     */
+    @Override
+    public int regionSearch(Rectangle region, int x, int y, int size,
+                            List<Point> found) {
+        return 0;
+    }
+
+    /**
+     * Count the points that exists within the given region
+     * outlined within the quadrant.
+     * @return number of points (always 0 in this case)
+     */
+    @Override
+    public int regionCount(Rectangle region, int x, int y, int size) {
+        return 0;
+    }
+
+    /**
+     * Offer nothing to the nearest neighbour search as flyweight
+     * holds no data.
+     */
+    @Override
+    public void nearest(NearestQueue queue, int x, int y, int size) {
+        // No data exists
+    }
+
     /**
      * Print out all the duplicate points that exists
      */
     @Override
-    public void duplicates() {
+    public void duplicates(OutputSink out) {
         // No data exists
     }
 
@@ -109,12 +147,12 @@ public class QuadTreeFlyweightNode extends QuadTreeNode {
      * Print out all points details that exist in the given quadrant
      * @param quadrant area within which to print points
      * @param depth used for prints leading spaces
+     * @param out sink to print the nodes to
      * @return number of nodes printed (always 0 in this case)
      */
     @Override
-    public int dump(Quadrant quadrant, int depth) {
-        System.out.println(MessageFormat.format(
-                "Node at {0}: Empty", quadrant));
+    public int dump(Quadrant quadrant, int depth, OutputSink out) {
+        out.println(Constants.DUMP_EMPTY_NODE, quadrant);
         return 1;
     }
 
@@ -127,4 +165,16 @@ public class QuadTreeFlyweightNode extends QuadTreeNode {
     public int getSize() {
         return 0;
     }
+
+    /**
+     * Write the tag of an empty quadrant to a snapshot layout
+     * @param out stream to write the layout to
+     * @param ids snapshot id of every point
+     * @throws IOException if the stream cannot be written
+     */
+    @Override
+    public void write(DataOutput out, Map<Point, Integer> ids)
+            throws IOException {
+        out.writeInt(0);
+    }
 }
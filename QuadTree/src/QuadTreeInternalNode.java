@@ -1,5 +1,7 @@
-import java.text.MessageFormat;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.util.List;
+import java.util.Map;
 
 /**
  * @author Abhinav Sethi 
@@ -8,6 +10,7 @@ import java.util.List;
  * Quad Tree internal node class that extends the abstract class QuadTreeNode
  * The objective of the class is to store four child nodes representing
  * the different quadrants to store the points objects within.
+ * The node also keeps the number of points stored below it.
  */
 public class QuadTreeInternalNode extends QuadTreeNode {
 
@@ -16,6 +19,11 @@ public class QuadTreeInternalNode extends QuadTreeNode {
      */
     private final QuadTreeNode[] children;
 
+    /**
+     * number of points stored in the subtree
+     */
+    private int count;
+
     /**
      * public constructor to initialize the internal node
      * with array of 4 children set to flyweight node.
@@ -27,47 +35,58 @@ public class QuadTreeInternalNode extends QuadTreeNode {
         }
     }
 
+    /**
+     * Constructor to initialize the internal node with the given children.
+     *
+     * @param children array of 4 child nodes in quadrant order
+     */
+    public QuadTreeInternalNode(QuadTreeNode[] children) {
+        this.children = children;
+        for (QuadTreeNode child : children) {
+            count += child.getSize();
+        }
+    }
+
     /**
      * Insert a point record within the given quadrant
      *
-     * @param point    to insert
-     * @param quadrant to insert data within
+     * @param point to insert
+     * @param x     x-coordinate of the quadrant origin
+     * @param y     y-coordinate of the quadrant origin
+     * @param size  size of the quadrant
      * @return instance of the node in which the point is inserted
      */
     @Override
-    public QuadTreeNode insert(Point point, Quadrant quadrant) {
-        for (int i = 0; i < NUM_QUADRANTS; ++i) {
-            Quadrant subQuadrant = quadrant.getNewQuadrant(i);
-            if (subQuadrant.contains(point)) {
-                children[i] = children[i].insert(point, subQuadrant);
-                break;
-            }
-        }
+    public QuadTreeNode insert(Point point, int x, int y, int size) {
+        int i = Quadrant.childIndex(point.x, point.y, x, y, size);
+        children[i] = children[i].insert(point, Quadrant.childX(i, x, size),
+                Quadrant.childY(i, y, size), size >> 1);
+        count++;
         return this;
     }
 
     /**
      * Remove a point record from the given quadrant
-     * First, remove the point.
+     * First, remove the point and update the point count.
      * Then check if according to the decomposition rules,
      * the child nodes need to be merged.
      * If yes, find all the point records from the children
      * Then insert them to a new leaf node and return the leaf node.
      * Else, return the current instance without any changes.
      *
-     * @param point    to remove
-     * @param quadrant from which the point needs to be removed.
+     * @param point to remove
+     * @param x     x-coordinate of the quadrant origin
+     * @param y     y-coordinate of the quadrant origin
+     * @param size  size of the quadrant
      * @return instance of the current node or new leaf node
      */
     @Override
-    public QuadTreeNode remove(Point point, Quadrant quadrant) {
-        for (int i = 0; i < NUM_QUADRANTS; ++i) {
-            Quadrant subQuadrant = quadrant.getNewQuadrant(i);
-            if (subQuadrant.contains(point)) {
-                children[i] = children[i].remove(point, subQuadrant);
-                break;
-            }
-        }
+    public QuadTreeNode remove(Point point, int x, int y, int size) {
+        int i = Quadrant.childIndex(point.x, point.y, x, y, size);
+        int before = children[i].getSize();
+        children[i] = children[i].remove(point, Quadrant.childX(i, x, size),
+                Quadrant.childY(i, y, size), size >> 1);
+        count += children[i].getSize() - before;
         // check if the node needs to be merged
         if (!shouldMerge()) {
             return this;
@@ -76,12 +95,12 @@ public class QuadTreeInternalNode extends QuadTreeNode {
         // accumulate all the points objects in the children and
         // insert them to a single leaf node
         QuadTreeLeafNode newLeafNode = new QuadTreeLeafNode();
-        for (int i = 0; i < NUM_QUADRANTS; ++i) {
-            if (children[i] instanceof QuadTreeLeafNode) {
+        for (int j = 0; j < NUM_QUADRANTS; ++j) {
+            if (children[j] instanceof QuadTreeLeafNode) {
                 List<Point> points =
-                        ((QuadTreeLeafNode) children[i]).getRecords();
+                        ((QuadTreeLeafNode) children[j]).getRecords();
                 for (Point p : points) {
-                    newLeafNode.insert(p, quadrant);
+                    newLeafNode.insert(p, x, y, size);
                 }
             }
         }
@@ -89,19 +108,21 @@ public class QuadTreeInternalNode extends QuadTreeNode {
     }
 
     /**
-     * Check if the given point exists within the current node instance
+     * Check if the given point exists within the given quadrant.
+     * Only the child quadrant containing the point coordinates can
+     * hold it, so a single path of the tree is searched.
      *
      * @param point to check
+     * @param x     x-coordinate of the quadrant origin
+     * @param y     y-coordinate of the quadrant origin
+     * @param size  size of the quadrant
      * @return boolean to indicate if point exists or not
      */
     @Override
-    public boolean exists(Point point) {
-        for (QuadTreeNode node : children) {
-            if (node.exists(point)) {
-                return true;
-            }
-        }
-        return false;
+    public boolean exists(Point point, int x, int y, int size) {
+        int i = Quadrant.childIndex(point.x, point.y, x, y, size);
+        return children[i].exists(point, Quadrant.childX(i, x, size),
+                Quadrant.childY(i, y, size), size >> 1);
     }
 
     /**
@@ -120,14 +141,10 @@ public class QuadTreeInternalNode extends QuadTreeNode {
      * @return the instance of the point object found and null otherwise
      */
     @Override
-    public Point search(Point point, Quadrant quadrant) {
-        for (int i = 0; i < NUM_QUADRANTS; ++i) {
-            Quadrant subQuadrant = quadrant.getNewQuadrant(i);
-            if (subQuadrant.contains(point)) {
-                return children[i].search(point, subQuadrant);
-            }
-        }
-        return null;
+    public Point search(Point point, int x, int y, int size) {
+        int i = Quadrant.childIndex(point.x, point.y, x, y, size);
+        return children[i].search(point, Quadrant.childX(i, x, size),
+                Quadrant.childY(i, y, size), size >> 1);
     }
 
     /**
@@ -137,25 +154,104 @@ public class QuadTreeInternalNode extends QuadTreeNode {
      * @return number of nodes visited
      */
     @Override
-    public int regionSearch(Rectangle region, Quadrant quadrant) {
+    public int regionSearch(Rectangle region, int x, int y, int size,
+                            OutputSink out) {
         int numVisited = 1;
+        int half = size >> 1;
         for (int i = 0; i < children.length; ++i) {
-            Quadrant subQuadrant = quadrant.getNewQuadrant(i);
-            if (region.intersects(subQuadrant)) {
-                numVisited += children[i].regionSearch(region, subQuadrant);
+            int childX = Quadrant.childX(i, x, size);
+            int childY = Quadrant.childY(i, y, size);
+            if (Quadrant.intersects(region, childX, childY, half)) {
+                numVisited += children[i].regionSearch(region, childX,
+                        childY, half, out);
+            }
+        }
+        return numVisited;
+    }
+
+    /**
+     * Collect all the points that exists within the given region
+     * outlined within the quadrant, children in quadrant order.
+     *
+     * @return number of nodes visited
+     */
+    @Override
+    public int regionSearch(Rectangle region, int x, int y, int size,
+                            List<Point> found) {
+        int numVisited = 1;
+        int half = size >> 1;
+        for (int i = 0; i < children.length; ++i) {
+            int childX = Quadrant.childX(i, x, size);
+            int childY = Quadrant.childY(i, y, size);
+            if (Quadrant.intersects(region, childX, childY, half)) {
+                numVisited += children[i].regionSearch(region, childX,
+                        childY, half, found);
             }
         }
         return numVisited;
     }
 
+    /**
+     * Count the points that exists within the given region.
+     * Children whose quadrant lies inside the region add their point
+     * count without being visited.
+     *
+     * @return number of points within the region
+     */
+    @Override
+    public int regionCount(Rectangle region, int x, int y, int size) {
+        if (Quadrant.isInside(region, x, y, size)) {
+            return count;
+        }
+        int numPoints = 0;
+        int half = size >> 1;
+        for (int i = 0; i < children.length; ++i) {
+            int childX = Quadrant.childX(i, x, size);
+            int childY = Quadrant.childY(i, y, size);
+            if (Quadrant.intersects(region, childX, childY, half)) {
+                numPoints += children[i].regionCount(region, childX, childY,
+                        half);
+            }
+        }
+        return numPoints;
+    }
+
+    /**
+     * Return the child node covering the given quadrant
+     *
+     * @param i index of the quadrant
+     * @return child node
+     */
+    QuadTreeNode getChild(int i) {
+        return children[i];
+    }
+
+    /**
+     * Offer the non-empty child quadrants to the nearest neighbour search
+     *
+     * @param queue queue of the nearest neighbour search
+     * @param x     x-coordinate of the quadrant origin
+     * @param y     y-coordinate of the quadrant origin
+     * @param size  size of the quadrant
+     */
+    @Override
+    public void nearest(NearestQueue queue, int x, int y, int size) {
+        for (int i = 0; i < NUM_QUADRANTS; ++i) {
+            if (children[i] != QuadTreeFlyweightNode.getInstance()) {
+                queue.offer(children[i], Quadrant.childX(i, x, size),
+                        Quadrant.childY(i, y, size), size >> 1);
+            }
+        }
+    }
+
     /**
      * Print out all the duplicate points that exists within
      * the current node instance
      */
     @Override
-    public void duplicates() {
+    public void duplicates(OutputSink out) {
         for (QuadTreeNode child : children) {
-            child.duplicates();
+            child.duplicates(out);
         }
     }
 
@@ -164,19 +260,19 @@ public class QuadTreeInternalNode extends QuadTreeNode {
      *
      * @param quadrant area within which to print points
      * @param depth    used for prints leading spaces
+     * @param out      sink to print the nodes to
      * @return number of nodes printed
      */
     @Override
-    public int dump(Quadrant quadrant, int depth) {
+    public int dump(Quadrant quadrant, int depth, OutputSink out) {
         int numVisited = 1;
-        System.out.println(MessageFormat.format(
-                "Node at {0}: Internal", quadrant));
+        out.println(Constants.DUMP_INTERNAL_NODE, quadrant);
         for (int i = 0; i < children.length; ++i) {
             Quadrant subQuadrant = quadrant.getNewQuadrant(i);
             for (int j = 0; j < depth; j++) {
-                System.out.print("  ");
+                out.print("  ");
             }
-            numVisited += children[i].dump(subQuadrant, depth + 1);
+            numVisited += children[i].dump(subQuadrant, depth + 1, out);
         }
         return numVisited;
     }
@@ -185,27 +281,34 @@ public class QuadTreeInternalNode extends QuadTreeNode {
      * Return the number of points under the node.
      * Used during decomposition rules calculations
      *
-     * @return 0 in this case as internal nodes do not hold points data.
+     * @return number of points stored in the subtree
      */
     @Override
     public int getSize() {
-        return 0;
+        return count;
     }
 
-    private boolean shouldMerge() {
-        // if any child is an internal node then no need to merge
-        for (QuadTreeNode child : children) {
-            if (!child.isLeaf()) {
-                return false;
-            }
-        }
-        // count the number of points in the children
-        // if the number of points is less than or equal to 3 then merge
-        int numPoints = 0;
+    /**
+     * Write the internal node tag followed by the children in quadrant
+     * order to a snapshot layout
+     *
+     * @param out stream to write the layout to
+     * @param ids snapshot id of every point
+     * @throws IOException if the stream cannot be written
+     */
+    @Override
+    public void write(DataOutput out, Map<Point, Integer> ids)
+            throws IOException {
+        out.writeInt(Snapshot.INTERNAL);
         for (QuadTreeNode child : children) {
-            numPoints += child.getSize();
+            child.write(out, ids);
         }
-        return numPoints <= 3;
+    }
+
+    private boolean shouldMerge() {
+        // an internal child always holds more than 3 points, so
+        // the subtree count alone tells if the children fit in a leaf
+        return count <= 3;
     }
 
     private static final short NUM_QUADRANTS = 4;
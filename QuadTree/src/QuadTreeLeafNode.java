@@ -1,8 +1,7 @@
-import java.text.MessageFormat;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.util.*;
 
-import static java.text.MessageFormat.format;
-
 /**
  * @author Abhinav Sethi 
  * @version 2021-10-23
@@ -37,6 +36,20 @@ public class QuadTreeLeafNode extends QuadTreeNode {
         this.records.add(p);
     }
 
+    /**
+     * Constructor to initialize Leaf node with a range of point objects.
+     *
+     * @param points array holding the points
+     * @param from   index of the first point
+     * @param to     index after the last point
+     */
+    public QuadTreeLeafNode(Point[] points, int from, int to) {
+        this.records = new LinkedList<>();
+        for (int i = from; i < to; i++) {
+            this.records.add(points[i]);
+        }
+    }
+
     /**
      * To get all the point records held by the current node.
      *
@@ -54,12 +67,14 @@ public class QuadTreeLeafNode extends QuadTreeNode {
      * And return the new internal node or the
      * same instance depending on the outcome.
      *
-     * @param point    to insert
-     * @param quadrant to insert data within
+     * @param point to insert
+     * @param x     x-coordinate of the quadrant origin
+     * @param y     y-coordinate of the quadrant origin
+     * @param size  size of the quadrant
      * @return instance of the node in which the point is inserted
      */
     @Override
-    public QuadTreeNode insert(Point point, Quadrant quadrant) {
+    public QuadTreeNode insert(Point point, int x, int y, int size) {
         records.add(point);
 
         // check if node needs to be split
@@ -67,7 +82,7 @@ public class QuadTreeLeafNode extends QuadTreeNode {
             // insert all records in a new internal node and return it
             QuadTreeNode newNode = new QuadTreeInternalNode();
             for (Point p : records) {
-                newNode.insert(p, quadrant);
+                newNode.insert(p, x, y, size);
             }
             return newNode;
         }
@@ -98,12 +113,14 @@ public class QuadTreeLeafNode extends QuadTreeNode {
      * Then if the records list is empty, then return flyweight instance,
      * else return current instance.
      *
-     * @param point    to remove
-     * @param quadrant from which the point needs to be removed.
+     * @param point to remove
+     * @param x     x-coordinate of the quadrant origin
+     * @param y     y-coordinate of the quadrant origin
+     * @param size  size of the quadrant
      * @return instance of the current node or flyweight node
      */
     @Override
-    public QuadTreeNode remove(Point point, Quadrant quadrant) {
+    public QuadTreeNode remove(Point point, int x, int y, int size) {
         records.removeIf(point1 -> point1.equals(point));
         if (records.isEmpty()) {
             return QuadTreeFlyweightNode.getInstance();
@@ -115,10 +132,13 @@ public class QuadTreeLeafNode extends QuadTreeNode {
      * Check if the given point exists within the current node instance
      *
      * @param point to check
+     * @param x     x-coordinate of the quadrant origin
+     * @param y     y-coordinate of the quadrant origin
+     * @param size  size of the quadrant
      * @return boolean to indicate if point exists or not
      */
     @Override
-    public boolean exists(Point point) {
+    public boolean exists(Point point, int x, int y, int size) {
         for (Point p : records) {
             if (point.equals(p)) {
                 return true;
@@ -143,7 +163,7 @@ public class QuadTreeLeafNode extends QuadTreeNode {
      * @return the instance of the point object found and null otherwise
      */
     @Override
-    public Point search(Point point, Quadrant quadrant) {
+    public Point search(Point point, int x, int y, int size) {
         for (Point p : records) {
             if (point.x == p.x && point.y == p.y) {
                 return p;
@@ -159,25 +179,78 @@ public class QuadTreeLeafNode extends QuadTreeNode {
      * @return number of nodes visited
      */
     @Override
-    public int regionSearch(Rectangle region, Quadrant quadrant) {
+    public int regionSearch(Rectangle region, int x, int y, int size,
+                            OutputSink out) {
         for (Point p : records) {
             if (region.contains(p)) {
-                System.out.println(format(Constants.REGION_SEARCH_FOUND, p));
+                out.println(Constants.REGION_SEARCH_FOUND, p);
             }
         }
         return 1;
     }
 
+    /**
+     * Collect all the points that exists within the given region
+     * outlined within the quadrant.
+     *
+     * @return number of nodes visited
+     */
+    @Override
+    public int regionSearch(Rectangle region, int x, int y, int size,
+                            List<Point> found) {
+        for (Point p : records) {
+            if (region.contains(p)) {
+                found.add(p);
+            }
+        }
+        return 1;
+    }
+
+    /**
+     * Count the points that exists within the given region
+     * outlined within the quadrant.
+     *
+     * @return number of points within the region
+     */
+    @Override
+    public int regionCount(Rectangle region, int x, int y, int size) {
+        if (Quadrant.isInside(region, x, y, size)) {
+            return records.size();
+        }
+        int numPoints = 0;
+        for (Point p : records) {
+            if (region.contains(p)) {
+                numPoints++;
+            }
+        }
+        return numPoints;
+    }
+
+    /**
+     * Offer all the point records to the nearest neighbour search
+     *
+     * @param queue queue of the nearest neighbour search
+     * @param x     x-coordinate of the quadrant origin
+     * @param y     y-coordinate of the quadrant origin
+     * @param size  size of the quadrant
+     */
+    @Override
+    public void nearest(NearestQueue queue, int x, int y, int size) {
+        for (Point p : records) {
+            queue.offer(p);
+        }
+    }
+
     /**
      * Print out all the duplicate points that exists within
      * the current node instance
      */
     @Override
-    public void duplicates() {
+    public void duplicates(OutputSink out) {
         HashMap<String, List<Point>> pointsMap = new HashMap<>();
         // create a map of coordinates with a list of point objects
         for (Point p : records) {
-            String key = format("({0}, {1})", p.x, p.y);
+            String key = Constants.DUPLICATE_FOUND.format(p.x, p.y);
             if (!pointsMap.containsKey(key)) {
                 pointsMap.put(key, new ArrayList<>());
             }
@@ -186,7 +259,7 @@ public class QuadTreeLeafNode extends QuadTreeNode {
         // print all points having more than 1 occurrence
         for (Map.Entry<String, List<Point>> entry : pointsMap.entrySet()) {
             if (entry.getValue().size() > 1) {
-                System.out.println(entry.getKey());
+                out.println(entry.getKey());
             }
         }
     }
@@ -196,16 +269,17 @@ public class QuadTreeLeafNode extends QuadTreeNode {
      *
      * @param quadrant area within which to print points
      * @param depth    used for prints leading spaces
+     * @param out      sink to print the nodes to
      * @return number of nodes printed
      */
     @Override
-    public int dump(Quadrant quadrant, int depth) {
-        System.out.println(MessageFormat.format("Node at {0}:", quadrant));
+    public int dump(Quadrant quadrant, int depth, OutputSink out) {
+        out.println(Constants.DUMP_LEAF_NODE, quadrant);
         for (Point p : records) {
             for (int j = 0; j < depth - 1; j++) {
-                System.out.print("  ");
+                out.print("  ");
             }
-            System.out.println(p);
+            out.println(p.toString());
         }
         return 1;
     }
@@ -220,4 +294,21 @@ public class QuadTreeLeafNode extends QuadTreeNode {
     public int getSize() {
         return records.size();
     }
+
+    /**
+     * Write the number of records followed by their ids to a snapshot
+     * layout
+     *
+     * @param out stream to write the layout to
+     * @param ids snapshot id of every point
+     * @throws IOException if the stream cannot be written
+     */
+    @Override
+    public void write(DataOutput out, Map<Point, Integer> ids)
+            throws IOException {
+        out.writeInt(records.size());
+        for (Point p : records) {
+            out.writeInt(ids.get(p));
+        }
+    }
 }
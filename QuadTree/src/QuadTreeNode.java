@@ -1,3 +1,9 @@
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Map;
+
 /**
  * The PRQuadTree abstract class.
  * <p>
@@ -19,31 +25,119 @@
 
 abstract class QuadTreeNode {
 
+    /**
+     * Build the subtree holding the given points directly, without
+     * splitting leaves along the way. The points are partitioned by
+     * quadrant with a stable partition, so every leaf holds its records in
+     * the order they are given, the same as inserting them one by one.
+     *
+     * @param points  points to store, reordered by quadrant
+     * @param from    index of the first point
+     * @param to      index after the last point
+     * @param scratch array of the same length used while partitioning
+     * @param x       x-coordinate of the quadrant origin
+     * @param y       y-coordinate of the quadrant origin
+     * @param size    size of the quadrant
+     * @return root node of the subtree
+     */
+    static QuadTreeNode build(Point[] points, int from, int to,
+                              Point[] scratch, int x, int y, int size) {
+        if (from == to) {
+            return QuadTreeFlyweightNode.getInstance();
+        }
+        if (fitsInLeaf(points, from, to)) {
+            return new QuadTreeLeafNode(points, from, to);
+        }
+        int[] bounds = Quadrant.partition(points, from, to, scratch, x, y,
+                size);
+        QuadTreeNode[] children = new QuadTreeNode[bounds.length - 1];
+        for (int i = 0; i < children.length; ++i) {
+            children[i] = build(points, bounds[i], bounds[i + 1], scratch,
+                    Quadrant.childX(i, x, size), Quadrant.childY(i, y, size),
+                    size >> 1);
+        }
+        return new QuadTreeInternalNode(children);
+    }
+
+    /**
+     * Read a subtree written by write from a snapshot layout.
+     *
+     * @param in     buffer positioned at the subtree
+     * @param points points of the snapshot by id
+     * @return root of the subtree
+     */
+    static QuadTreeNode read(ByteBuffer in, Point[] points) {
+        int tag = in.getInt();
+        if (tag == Snapshot.INTERNAL) {
+            QuadTreeNode[] children = new QuadTreeNode[4];
+            for (int i = 0; i < children.length; ++i) {
+                children[i] = read(in, points);
+            }
+            return new QuadTreeInternalNode(children);
+        }
+        if (tag == 0) {
+            return QuadTreeFlyweightNode.getInstance();
+        }
+        Point[] records = new Point[tag];
+        for (int i = 0; i < tag; i++) {
+            records[i] = points[in.getInt()];
+        }
+        return new QuadTreeLeafNode(records, 0, tag);
+    }
+
+    /**
+     * Check the decomposition rule for a range of points.
+     *
+     * @param points points of the quadrant
+     * @param from   index of the first point
+     * @param to     index after the last point
+     * @return true if the points stay in a single leaf node
+     */
+    static boolean fitsInLeaf(Point[] points, int from, int to) {
+        if (to - from <= 3) {
+            return true;
+        }
+        for (int i = from + 1; i < to; i++) {
+            if (points[i].x != points[from].x
+                    || points[i].y != points[from].y) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     /**
      * Insert a point record within the given quadrant
      *
-     * @param point    to insert
-     * @param quadrant to insert data within
+     * @param point to insert
+     * @param x     x-coordinate of the quadrant origin
+     * @param y     y-coordinate of the quadrant origin
+     * @param size  size of the quadrant
      * @return instance of the node in which the point is inserted
      */
-    public abstract QuadTreeNode insert(Point point, Quadrant quadrant);
+    public abstract QuadTreeNode insert(Point point, int x, int y, int size);
 
     /**
      * Remove a point record from the given quadrant
      *
-     * @param point    to remove
-     * @param quadrant from which the point needs to be removed.
+     * @param point to remove
+     * @param x     x-coordinate of the quadrant origin
+     * @param y     y-coordinate of the quadrant origin
+     * @param size  size of the quadrant
      * @return instance of the node from which the node is removed
      */
-    public abstract QuadTreeNode remove(Point point, Quadrant quadrant);
+    public abstract QuadTreeNode remove(Point point, int x, int y, int size);
 
     /**
-     * Check if the given point exists within the current node instance
+     * Check if the given point exists within the given quadrant
      *
      * @param point to check
+     * @param x     x-coordinate of the quadrant origin
+     * @param y     y-coordinate of the quadrant origin
+     * @param size  size of the quadrant
      * @return boolean to indicate if point exists or not
      */
-    public abstract boolean exists(Point point);
+    public abstract boolean exists(Point point, int x, int y, int size);
 
     /**
      * Check if the current node instance is a leaf node
@@ -55,36 +149,83 @@ abstract class QuadTreeNode {
     /**
      * Check if a point with the same coordinates in the node.
      *
-     * @param point    obj to search
-     * @param quadrant area to search within
+     * @param point obj to search
+     * @param x     x-coordinate of the quadrant origin
+     * @param y     y-coordinate of the quadrant origin
+     * @param size  size of the quadrant
      * @return the instance of the point object found and null otherwise
      */
-    public abstract Point search(Point point, Quadrant quadrant);
+    public abstract Point search(Point point, int x, int y, int size);
 
     /**
      * Print out all the points that exists within the given region
      * outlined within the quadrant.
      *
-     * @param region   rectangle object representing the area
-     * @param quadrant area to search within
+     * @param region rectangle object representing the area
+     * @param x      x-coordinate of the quadrant origin
+     * @param y      y-coordinate of the quadrant origin
+     * @param size   size of the quadrant
+     * @param out    sink to print the points to
+     * @return number of nodes visited
+     */
+    public abstract int regionSearch(Rectangle region, int x, int y,
+                                     int size, OutputSink out);
+
+    /**
+     * Collect all the points that exists within the given region
+     * outlined within the quadrant instead of printing them.
+     *
+     * @param region rectangle object representing the area
+     * @param x      x-coordinate of the quadrant origin
+     * @param y      y-coordinate of the quadrant origin
+     * @param size   size of the quadrant
+     * @param found  list to add the points found to, in output order
      * @return number of nodes visited
      */
-    public abstract int regionSearch(Rectangle region, Quadrant quadrant);
+    public abstract int regionSearch(Rectangle region, int x, int y,
+                                     int size, List<Point> found);
+
+    /**
+     * Count the points that exists within the given region
+     * outlined within the quadrant.
+     *
+     * @param region rectangle object representing the area
+     * @param x      x-coordinate of the quadrant origin
+     * @param y      y-coordinate of the quadrant origin
+     * @param size   size of the quadrant
+     * @return number of points within the region
+     */
+    public abstract int regionCount(Rectangle region, int x, int y,
+                                    int size);
+
+    /**
+     * Offer the children or the points of the node to a best-first
+     * nearest neighbour search
+     *
+     * @param queue queue of the nearest neighbour search
+     * @param x     x-coordinate of the quadrant origin
+     * @param y     y-coordinate of the quadrant origin
+     * @param size  size of the quadrant
+     */
+    public abstract void nearest(NearestQueue queue, int x, int y, int size);
 
     /**
      * Print out all the duplicate points that exists within
      * the current node instance
+     *
+     * @param out sink to print the points to
      */
-    public abstract void duplicates();
+    public abstract void duplicates(OutputSink out);
 
     /**
      * Print out all points details that exist in the given quadrant
      *
      * @param quadrant area within which to print points
      * @param depth    used for prints leading spaces
+     * @param out      sink to print the nodes to
      * @return number of nodes printed
      */
-    public abstract int dump(Quadrant quadrant, int depth);
+    public abstract int dump(Quadrant quadrant, int depth, OutputSink out);
 
     /**
      * Return the number of points under the node.
@@ -93,4 +234,14 @@ abstract class QuadTreeNode {
      * @return integer value for the size
      */
     public abstract int getSize();
+
+    /**
+     * Write the node and its subtree to a snapshot layout in pre-order
+     *
+     * @param out stream to write the layout to
+     * @param ids snapshot id of every point
+     * @throws IOException if the stream cannot be written
+     */
+    public abstract void write(DataOutput out, Map<Point, Integer> ids)
+            throws IOException;
 }
@@ -2,6 +2,11 @@
 /**
  * Quadrant represents the two-dimensional sheet where point objects are
  * inserted by creating new sub quadrants as required.
+ * <p>
+ * Tree traversal does not create Quadrant objects. The static helpers
+ * work out child indices and origins from the integer origin and size
+ * of the current quadrant. Quadrant instances are only built when output
+ * such as dump needs them.
  *
  * @author Abhinav Sethi 
  * @version 2021-10-23
@@ -30,25 +35,124 @@ public class Quadrant extends Rectangle {
      * @return new quadrant instance
      */
     public Quadrant getNewQuadrant(int index) {
-        // new quadrant will have half the size
-        int newSize = (int) getHeight() / 2;
+        return new Quadrant(childX(index, x, width), childY(index, y, width),
+                width >> 1);
+    }
 
-        if (index == 0) {
-            // return NW quadrant
-            return new Quadrant(x, y, newSize);
-        }
-        else if (index == 1) {
-            // return NE quadrant
-            return new Quadrant(x + newSize, y, newSize);
+
+    /**
+     * Return the index of the child quadrant that contains the given
+     * coordinates. The quadrant size is a power of two, so the index is
+     * formed from the bit of the offset that selects the half in each
+     * dimension, using the same numbering as getNewQuadrant.
+     *
+     * @param px   x-coordinate of the point
+     * @param py   y-coordinate of the point
+     * @param x    x-coordinate of the quadrant origin
+     * @param y    y-coordinate of the quadrant origin
+     * @param size size of the quadrant
+     * @return index of the child quadrant holding the point
+     */
+    public static int childIndex(int px, int py, int x, int y, int size) {
+        int shift = Integer.numberOfTrailingZeros(size) - 1;
+        return (((py - y) >>> shift) << 1) | ((px - x) >>> shift);
+    }
+
+
+    /**
+     * Return the x-coordinate of the origin of the child quadrant
+     *
+     * @param index child index
+     * @param x     x-coordinate of the parent origin
+     * @param size  size of the parent quadrant
+     * @return x-coordinate of the child origin
+     */
+    public static int childX(int index, int x, int size) {
+        return x + ((index & 1) * (size >> 1));
+    }
+
+
+    /**
+     * Return the y-coordinate of the origin of the child quadrant
+     *
+     * @param index child index
+     * @param y     y-coordinate of the parent origin
+     * @param size  size of the parent quadrant
+     * @return y-coordinate of the child origin
+     */
+    public static int childY(int index, int y, int size) {
+        return y + ((index >> 1) * (size >> 1));
+    }
+
+
+    /**
+     * Partition a range of points by the child quadrant holding them.
+     * The partition is stable, so the points of every child quadrant keep
+     * their relative order.
+     *
+     * @param points  points inside the quadrant, reordered in place
+     * @param from    index of the first point
+     * @param to      index after the last point
+     * @param scratch array at least as long as points
+     * @param x       x-coordinate of the quadrant origin
+     * @param y       y-coordinate of the quadrant origin
+     * @param size    size of the quadrant
+     * @return start index of every child range followed by the end index
+     */
+    public static int[] partition(Point[] points, int from, int to,
+                                  Point[] scratch, int x, int y, int size) {
+        int[] bounds = new int[5];
+        for (int i = from; i < to; i++) {
+            bounds[childIndex(points[i].x, points[i].y, x, y, size) + 1]++;
         }
-        else if (index == 2) {
-            // return SW quadrant
-            return new Quadrant(x, y + newSize, newSize);
+        bounds[0] = from;
+        for (int i = 1; i < bounds.length; i++) {
+            bounds[i] += bounds[i - 1];
         }
-        else {
-            // return SE quadrant
-            return new Quadrant(x + newSize, y + newSize, newSize);
+        int[] next = {bounds[0], bounds[1], bounds[2], bounds[3]};
+        for (int i = from; i < to; i++) {
+            scratch[next[childIndex(points[i].x, points[i].y, x, y,
+                    size)]++] = points[i];
         }
+        System.arraycopy(scratch, from, points, from, to - from);
+        return bounds;
+    }
+
+    /**
+     * Check if the region intersects the quadrant with the given origin and
+     * size. Follows the semantics of java.awt.Rectangle.intersects, with the
+     * region edges widened to long so large regions cannot overflow.
+     *
+     * @param region rectangle with positive width and height
+     * @param x      x-coordinate of the quadrant origin
+     * @param y      y-coordinate of the quadrant origin
+     * @param size   size of the quadrant
+     * @return true if the two areas overlap
+     */
+    public static boolean intersects(Rectangle region, int x, int y,
+                                     int size) {
+        return region.x < x + size
+                && region.y < y + size
+                && (long) region.x + region.width > x
+                && (long) region.y + region.height > y;
+    }
+
+    /**
+     * Check if the quadrant with the given origin and size lies inside the
+     * region, so every point of the quadrant is contained by the region.
+     *
+     * @param region rectangle with positive width and height
+     * @param x      x-coordinate of the quadrant origin
+     * @param y      y-coordinate of the quadrant origin
+     * @param size   size of the quadrant
+     * @return true if the region covers the whole quadrant
+     */
+    public static boolean isInside(Rectangle region, int x, int y,
+                                   int size) {
+        return region.x <= x
+                && region.y <= y
+                && (long) region.x + region.width >= x + size
+                && (long) region.y + region.height >= y + size;
     }
 
     @Override
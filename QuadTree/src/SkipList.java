@@ -1,7 +1,6 @@
 import java.lang.reflect.Array;
 import java.util.*;
-
-import static java.text.MessageFormat.format;
+import java.util.function.Predicate;
 
 
 /**
@@ -17,28 +16,99 @@ public class SkipList<K extends Comparable<? super K>, V>
         implements Iterable<KVPair<K, V>> {
     private SkipNode head; // First element of the top level
     private int size; // number of entries in the Skip List
+    private final Random random = new Random(); // source of the levels
 
     /**
      * Initializes the fields head, size and level
      */
     public SkipList() {
         head = new SkipNode(null, 0);
+        head.width[0] = 1;
         size = 0;
     }
 
 
     /**
-     * Returns a random level number which is used as the depth of the SkipNode
+     * Returns a random level number which is used as the depth of the SkipNode.
+     * Every level is half as likely as the one below, read from the trailing
+     * zero bits of one random number.
      *
      * @return a random level number
      */
     int randomLevel() {
-        int lev;
-        Random value = new Random();
-        for (lev = 0; Math.abs(value.nextInt()) % 2 == 0; lev++) {
-            // Do nothing
+        return Integer.numberOfTrailingZeros(random.nextInt() | 1 << 31);
+    }
+
+
+    /**
+     * Builds a SkipList from KVPairs already in list order, linking every
+     * node after the previous one in a single pass instead of searching for
+     * its place.
+     *
+     * @param sorted the KVPairs sorted by key
+     * @param <K>    Key
+     * @param <V>    Value
+     * @return the new SkipList
+     * @throws IllegalArgumentException if a key sorts before the one
+     *                                  preceding it
+     */
+    public static <K extends Comparable<? super K>, V> SkipList<K, V> build(
+            Iterable<KVPair<K, V>> sorted) {
+        SkipList<K, V> list = new SkipList<>();
+        SkipList<K, V>.Appender appender = list.new Appender(0);
+        K previous = null;
+        for (KVPair<K, V> pair : sorted) {
+            checkOrder(previous, pair);
+            previous = pair.getKey();
+            appender.append(list.new SkipNode(pair, list.randomLevel()));
+        }
+        appender.finish();
+        return list;
+    }
+
+
+    /**
+     * Inserts KVPairs already sorted by key in a single sweep that merges
+     * them with the list and relinks every node, which costs O(n + m)
+     * instead of one search per pair. A new pair goes before the pairs
+     * already in the list with the same key, as with insert.
+     *
+     * @param sorted the KVPairs sorted by key
+     * @throws IllegalArgumentException if a key sorts before the one
+     *                                  preceding it, before anything is
+     *                                  inserted
+     */
+    public void insertAll(List<KVPair<K, V>> sorted) {
+        for (int i = 1; i < sorted.size(); i++) {
+            checkOrder(sorted.get(i - 1).getKey(), sorted.get(i));
+        }
+        SkipNode old = head.forward[0];
+        Appender appender = new Appender(head.level);
+        for (KVPair<K, V> pair : sorted) {
+            while (old != null
+                    && old.pair.getKey().compareTo(pair.getKey()) < 0) {
+                SkipNode x = old;
+                old = old.forward[0];
+                appender.append(x);
+            }
+            appender.append(new SkipNode(pair, randomLevel()));
+        }
+        while (old != null) {
+            SkipNode x = old;
+            old = old.forward[0];
+            appender.append(x);
+        }
+        appender.finish();
+    }
+
+
+    private static <K extends Comparable<? super K>> void checkOrder(
+            K previous, KVPair<K, ?> pair) {
+        if (previous != null && pair.getKey().compareTo(previous) < 0) {
+            throw new IllegalArgumentException(
+                    "Pairs are not sorted: " + pair.getKey()
+                            + " after " + previous);
         }
-        return lev; // returns a random level
     }
 
 
@@ -79,6 +149,179 @@ public class SkipList<K extends Comparable<? super K>, V>
     }
 
 
+    /**
+     * Returns the KVPair at a position in list order, found by adding up
+     * the widths of the links followed.
+     *
+     * @param index position of the pair, starting at 0
+     * @return the KVPair at the position
+     * @throws IndexOutOfBoundsException if there is no such position
+     */
+    public KVPair<K, V> get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException(
+                    "Index: " + index + ", Size: " + size);
+        }
+        SkipNode x = head;
+        int position = 0;
+        for (int i = head.level; i >= 0; --i) {
+            while (x.forward[i] != null
+                    && position + x.width[i] <= index + 1) {
+                position += x.width[i];
+                x = x.forward[i];
+            }
+        }
+        return x.pair;
+    }
+
+
+    /**
+     * Returns the number of KVPairs whose key sorts before the given key,
+     * which is also the index of the first pair with the key.
+     *
+     * @param key key to be ranked
+     * @return number of pairs with a smaller key
+     */
+    public int rank(K key) {
+        return position(key, false);
+    }
+
+
+    /**
+     * Returns the number of KVPairs whose key is between two keys.
+     *
+     * @param from smallest key counted
+     * @param to   largest key counted
+     * @return number of pairs with from <= key <= to
+     */
+    public int count(K from, K to) {
+        return Math.max(0, position(to, true) - position(from, false));
+    }
+
+
+    /**
+     * Returns the last KVPair whose key sorts before or equal to a key.
+     *
+     * @param key key to compare with
+     * @return the pair, or null if every key is larger
+     */
+    public KVPair<K, V> floor(K key) {
+        return last(key, true).pair;
+    }
+
+
+    /**
+     * Returns the last KVPair whose key sorts before a key.
+     *
+     * @param key key to compare with
+     * @return the pair, or null if no key is smaller
+     */
+    public KVPair<K, V> lower(K key) {
+        return last(key, false).pair;
+    }
+
+
+    /**
+     * Returns the first KVPair whose key sorts after or equal to a key.
+     *
+     * @param key key to compare with
+     * @return the pair, or null if every key is smaller
+     */
+    public KVPair<K, V> ceiling(K key) {
+        SkipNode x = last(key, false).forward[0];
+        return x != null ? x.pair : null;
+    }
+
+
+    /**
+     * Returns the first KVPair whose key sorts after a key.
+     *
+     * @param key key to compare with
+     * @return the pair, or null if no key is larger
+     */
+    public KVPair<K, V> higher(K key) {
+        SkipNode x = last(key, true).forward[0];
+        return x != null ? x.pair : null;
+    }
+
+
+    /**
+     * Returns the KVPairs whose key is between two keys. The start is found
+     * through the levels and the pairs are read from the list while the
+     * iterator advances, so the list must not change meanwhile.
+     *
+     * @param from smallest key returned
+     * @param to   largest key returned
+     * @return pairs with from <= key <= to in list order
+     */
+    public Iterable<KVPair<K, V>> subList(K from, K to) {
+        return () -> new RangeIterator(last(from, false).forward[0],
+                key -> key.compareTo(to) <= 0);
+    }
+
+
+    /**
+     * Returns the KVPairs whose key starts with a prefix, comparing the
+     * keys as text. The pairs are read from the list while the iterator
+     * advances, so the list must not change meanwhile.
+     *
+     * @param prefix start of the keys returned
+     * @return pairs with the prefix in list order
+     */
+    public Iterable<KVPair<K, V>> prefix(K prefix) {
+        String text = prefix.toString();
+        return () -> new RangeIterator(last(prefix, false).forward[0],
+                key -> key.toString().startsWith(text));
+    }
+
+
+    /**
+     * Returns the last node before a key, or the head if there is none.
+     *
+     * @param key       key to look for
+     * @param inclusive true to go past the nodes with the key as well
+     * @return the last node before the key
+     */
+    private SkipNode last(K key, boolean inclusive) {
+        SkipNode x = head;
+        for (int i = head.level; i >= 0; --i) {
+            while (x.forward[i] != null) {
+                int order = x.forward[i].pair.getKey().compareTo(key);
+                if (order > 0 || order == 0 && !inclusive) {
+                    break;
+                }
+                x = x.forward[i];
+            }
+        }
+        return x;
+    }
+
+
+    /**
+     * Returns the position of the last node before a key, the head being
+     * position 0.
+     *
+     * @param key       key to look for
+     * @param inclusive true to go past the nodes with the key as well
+     * @return number of pairs before the key
+     */
+    private int position(K key, boolean inclusive) {
+        SkipNode x = head;
+        int position = 0;
+        for (int i = head.level; i >= 0; --i) {
+            while (x.forward[i] != null) {
+                int order = x.forward[i].pair.getKey().compareTo(key);
+                if (order > 0 || order == 0 && !inclusive) {
+                    break;
+                }
+                position += x.width[i];
+                x = x.forward[i];
+            }
+        }
+        return position;
+    }
+
+
     /**
      * Inserts the KVPair in the SkipList at its appropriate spot as designated
      * by its lexicoragraphical order.
@@ -92,26 +335,82 @@ public class SkipList<K extends Comparable<? super K>, V>
         if (newLevel > head.level) {
             adjustHead(newLevel);
         }
-        SkipNode[] update = new SkipList.SkipNode[newLevel + 1];
+        // populate update array from the top level of the head, so the
+        // links passing over the new node can be widened
+        SkipNode[] update = new SkipList.SkipNode[head.level + 1];
+        int[] rank = new int[head.level + 1];
+        findBefore(it.getKey(), update, rank);
+        int position = rank[0] + 1;
+
+        // create new node and set its forward pointers
+        // and set update array's forward pointers to inserted node
+        SkipNode x = new SkipNode(it, newLevel);
+        for (int i = 0; i <= head.level; i++) {
+            if (i <= newLevel) {
+                x.forward[i] = update[i].forward[i];
+                x.width[i] = rank[i] + update[i].width[i] + 1 - position;
+                update[i].forward[i] = x;
+                update[i].width[i] = position - rank[i];
+            }
+            else {
+                update[i].width[i]++;
+            }
+        }
+        // increment size
+        size++;
+    }
+
+
+    /**
+     * Populates update with the last node before the key on every level
+     * and rank with the position of that node, the head being position 0.
+     *
+     * @param key    key to look for
+     * @param update receives the last node before the key per level
+     * @param rank   receives the position of the update nodes
+     */
+    private void findBefore(K key, SkipNode[] update, int[] rank) {
         SkipNode x = head;
-        // populate update array by iterating over the list
-        for (int i = newLevel; i >= 0; i--) {
+        int position = 0;
+        for (int i = head.level; i >= 0; i--) {
             while (x.forward[i] != null
-                    && x.forward[i].pair.compareTo(it) < 0) {
+                    && x.forward[i].pair.getKey().compareTo(key) < 0) {
+                position += x.width[i];
                 x = x.forward[i];
             }
             update[i] = x;
+            rank[i] = position;
         }
+    }
 
-        // create new node and set its forward pointers
-        // and set update array's forward pointers to inserted node
-        x = new SkipNode(it, newLevel);
-        for (int i = 0; i <= newLevel; i++) {
-            x.forward[i] = update[i].forward[i];
-            update[i].forward[i] = x;
+
+    /**
+     * Unlinks a node from every level and narrows the links passing over
+     * it. Nodes with the same key can precede the target on any level, so
+     * each update entry is first moved forward up to the target position.
+     *
+     * @param target   node to be removed
+     * @param position position of the node
+     * @param update   last node before the key of the node per level
+     * @param rank     position of the update nodes
+     */
+    private void unlink(SkipNode target, int position, SkipNode[] update,
+                        int[] rank) {
+        for (int i = 0; i < update.length; i++) {
+            while (rank[i] + update[i].width[i] < position) {
+                rank[i] += update[i].width[i];
+                update[i] = update[i].forward[i];
+            }
+            if (i <= target.level) {
+                update[i].forward[i] = target.forward[i];
+                update[i].width[i] += target.width[i] - 1;
+            }
+            else {
+                update[i].width[i]--;
+            }
         }
-        // increment size
-        size++;
+        // decrement size
+        size--;
     }
 
 
@@ -131,6 +430,11 @@ public class SkipList<K extends Comparable<? super K>, V>
         head = new SkipNode(null, newLevel);
         for (int i = 0; i <= level; ++i) {
             head.forward[i] = temp.forward[i];
+            head.width[i] = temp.width[i];
+        }
+        // the new levels link past the last node
+        for (int i = level + 1; i <= newLevel; ++i) {
+            head.width[i] = size + 1;
         }
     }
 
@@ -145,27 +449,17 @@ public class SkipList<K extends Comparable<? super K>, V>
 
     @SuppressWarnings("unchecked")
     public KVPair<K, V> remove(K key) {
-        SkipNode x = head;
         SkipNode[] update = new SkipList.SkipNode[head.level + 1];
+        int[] rank = new int[head.level + 1];
 
         // populate update array by iterating over the list
-        for (int i = update.length - 1; i >= 0; i--) {
-            while (x.forward[i] != null
-                    && x.forward[i].pair.getKey().compareTo(key) < 0) {
-                x = x.forward[i];
-            }
-            update[i] = x;
-        }
-        x = x.forward[0];
+        findBefore(key, update, rank);
+        SkipNode x = update[0].forward[0];
 
         // if the node with matching key is found then
         // change update array's forward pointers to the next node
         if (x != null && x.pair.getKey().compareTo(key) == 0) {
-            for (int i = 0; i <= x.level; i++) {
-                update[i].forward[i] = x.forward[i];
-            }
-            // decrement size
-            size--;
+            unlink(x, rank[0] + 1, update, rank);
             return x.pair;
         }
         return null;
@@ -173,19 +467,157 @@ public class SkipList<K extends Comparable<? super K>, V>
 
 
     /**
-     * Prints out the SkipList in a human readable format to the console.
+     * Returns the level of every node in list order, starting with the head
+     * node, so that a snapshot can restore the exact same list.
+     *
+     * @return array of size + 1 levels
+     */
+    int[] levels() {
+        int[] levels = new int[size + 1];
+        SkipNode node = head;
+        for (int i = 0; node != null; i++) {
+            levels[i] = node.level;
+            node = node.forward[0];
+        }
+        return levels;
+    }
+
+
+    /**
+     * Replaces the contents of the SkipList with the given pairs, which must
+     * already be in list order. Every node gets the given level instead of a
+     * random one and is linked after the last node of each of its levels.
+     *
+     * @param pairs  the KVPairs in list order
+     * @param levels the head level followed by the level of every pair,
+     *               none of them above the head level
+     */
+    void load(List<KVPair<K, V>> pairs, int[] levels) {
+        Appender appender = new Appender(levels[0]);
+        for (int i = 0; i < pairs.size(); i++) {
+            appender.append(new SkipNode(pairs.get(i), levels[i + 1]));
+        }
+        appender.finish();
+    }
+
+
+    /**
+     * Removes the KVPair with the given key and value. Pairs with the same
+     * key but another value are left in the list.
+     *
+     * @param key   the key of the pair to be removed
+     * @param value the value of the pair to be removed
+     * @return returns the removed pair if it was found and null if not
+     */
+    public KVPair<K, V> remove(K key, V value) {
+        SkipNode[] update = newNodes(head.level + 1);
+        int[] rank = new int[head.level + 1];
+
+        // populate update array with the last node before the key
+        findBefore(key, update, rank);
+
+        // find the node holding the value among the nodes with the key
+        SkipNode target = update[0].forward[0];
+        int position = rank[0] + 1;
+        while (target != null && target.pair.getKey().compareTo(key) == 0
+                && !target.pair.getValue().equals(value)) {
+            target = target.forward[0];
+            position++;
+        }
+        if (target == null || target.pair.getKey().compareTo(key) != 0) {
+            return null;
+        }
+        unlink(target, position, update, rank);
+        return target.pair;
+    }
+
+
+    /**
+     * Prints out the SkipList in a human readable format.
+     *
+     * @param out sink to print the nodes to
      */
-    public void dump() {
+    public void dump(OutputSink out) {
         SkipNode node = head;
-        System.out.println(Constants.DUMP_HEADER_LIST);
+        out.println(Constants.DUMP_HEADER_LIST);
         while (node != null) {
-            System.out.println(format(Constants.DUMP_DETAIL_LIST,
-                    node.level + 1, node.element() != null
-                            ? node.element().getValue() : null));
+            out.println(Constants.DUMP_DETAIL_LIST, node.level + 1,
+                    node.element() != null ? node.element().getValue() : null);
             node = node.forward[0];
         }
-        System.out.println("The SkipList's " + format(
-                Constants.DUMP_SIZE_LIST, size));
+        out.println(Constants.DUMP_SIZE_LIST, size);
+    }
+
+    /**
+     * @param length number of levels
+     * @return an empty array with a node per level
+     */
+    @SuppressWarnings("unchecked")
+    private SkipNode[] newNodes(int length) {
+        // the node class is generic through the list, so its arrays can
+        // only be created with wildcard type arguments
+        return (SkipNode[]) new SkipList<?, ?>.SkipNode[length];
+    }
+
+    /**
+     * Links nodes one after the other behind a new head, keeping the last
+     * node of every level and its position so each link gets its width
+     * without a search.
+     */
+    private class Appender {
+
+        private SkipNode[] tail;
+        private int[] rank;
+        private int count;
+
+        /**
+         * Replace the head of the list with an empty one.
+         *
+         * @param level level of the new head
+         */
+        Appender(int level) {
+            head = new SkipNode(null, level);
+            tail = newNodes(level + 1);
+            Arrays.fill(tail, head);
+            rank = new int[level + 1];
+        }
+
+        /**
+         * Link a node after the last one, raising the head if needed.
+         *
+         * @param x node to link, its forward pointers are overwritten
+         */
+        void append(SkipNode x) {
+            if (x.level > head.level) {
+                SkipNode old = head;
+                adjustHead(x.level);
+                tail = Arrays.copyOf(tail, x.level + 1);
+                rank = Arrays.copyOf(rank, x.level + 1);
+                for (int j = 0; j < tail.length; j++) {
+                    if (tail[j] == old || tail[j] == null) {
+                        tail[j] = head;
+                    }
+                }
+            }
+            count++;
+            for (int j = 0; j <= x.level; j++) {
+                tail[j].forward[j] = x;
+                tail[j].width[j] = count - rank[j];
+                tail[j] = x;
+                rank[j] = count;
+            }
+        }
+
+        /**
+         * End every level after the last node linked to it.
+         */
+        void finish() {
+            for (int j = 0; j < tail.length; j++) {
+                tail[j].forward[j] = null;
+                tail[j].width[j] = count + 1 - rank[j];
+            }
+            size = count;
+        }
     }
 
     /**
@@ -200,6 +632,9 @@ public class SkipList<K extends Comparable<? super K>, V>
         private KVPair<K, V> pair;
         // what is this
         private SkipNode[] forward;
+        // number of bottom level steps each forward pointer skips,
+        // counting to one past the last node for null pointers
+        private int[] width;
         // the number of levels
         private int level;
 
@@ -215,6 +650,7 @@ public class SkipList<K extends Comparable<? super K>, V>
             pair = tempPair;
             forward = (SkipNode[]) Array.newInstance(SkipList.SkipNode.class,
                     level + 1);
+            width = new int[level + 1];
             this.level = level;
         }
 
@@ -255,6 +691,45 @@ public class SkipList<K extends Comparable<? super K>, V>
 
     }
 
+    /**
+     * Iterates from a node along the bottom level while the keys match.
+     */
+    private class RangeIterator implements Iterator<KVPair<K, V>> {
+
+        private SkipNode next;
+        private final Predicate<K> match;
+
+        /**
+         * @param first first node to return if its key matches
+         * @param match test of the keys to return, true up to some key
+         */
+        RangeIterator(SkipNode first, Predicate<K> match) {
+            this.match = match;
+            next = first != null && match.test(first.pair.getKey())
+                    ? first : null;
+        }
+
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+
+        @Override
+        public KVPair<K, V> next() {
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            KVPair<K, V> pair = next.pair;
+            next = next.forward[0];
+            if (next != null && !match.test(next.pair.getKey())) {
+                next = null;
+            }
+            return pair;
+        }
+    }
+
     @Override
     public Iterator<KVPair<K, V>> iterator() {
         return new SkipListIterator();
@@ -0,0 +1,170 @@
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * @author Abhinav Sethi
+ * @version 2021-10-23
+ * <p>
+ * Binary snapshot of a database, so that it can be opened again without
+ * replaying the command file.
+ * <p>
+ * A snapshot starts with a magic number, the format version, the sequence
+ * number of the last write-ahead log record it contains, the number of
+ * points and the level of the SkipList head. Every point follows in
+ * SkipList order with its SkipList level, coordinates and name, and its
+ * position in that order is the id used by the tree. The node layout of
+ * the tree is written next in pre-order, one int tag per node: INTERNAL
+ * for an internal node followed by its four children, otherwise the
+ * number of leaf records followed by their ids, 0 being an empty quadrant.
+ * The file ends with the CRC32 of all the bytes before it.
+ * <p>
+ * Opening maps the file and restores the SkipList levels and the tree
+ * layout as they were saved, so dump prints the same output.
+ */
+public class Snapshot {
+
+    /**
+     * Magic number at the start of every snapshot, "QTSN"
+     */
+    static final int MAGIC = 0x5154534E;
+
+    /**
+     * Version of the snapshot format
+     */
+    static final int VERSION = 2;
+
+    /**
+     * Layout tag of an internal node
+     */
+    static final int INTERNAL = -1;
+
+    private static final int HEADER_BYTES = 4 * Integer.BYTES + Long.BYTES;
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /**
+     * Private constructor to prevent class instantiation.
+     */
+    private Snapshot() {
+    }
+
+    /**
+     * Write a snapshot of the SkipList and the tree to a file and force it
+     * to the storage device.
+     *
+     * @param file     path of the snapshot, replaced if it exists
+     * @param list     SkipList holding the points by name
+     * @param tree     tree holding the same points
+     * @param sequence sequence number of the last log record applied
+     * @throws IOException if the file cannot be written
+     */
+    static void write(Path file, SkipList<String, Point> list, QuadTree tree,
+                      long sequence) throws IOException {
+        try (FileChannel channel = FileChannel.open(file,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            OutputStream stream = new BufferedOutputStream(
+                    Channels.newOutputStream(channel), BUFFER_SIZE);
+            CRC32 checksum = new CRC32();
+            DataOutputStream out = new DataOutputStream(
+                    new CheckedOutputStream(stream, checksum));
+
+            int[] levels = list.levels();
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(sequence);
+            out.writeInt(list.size());
+            out.writeInt(levels[0]);
+            Map<Point, Integer> ids = new HashMap<>();
+            for (KVPair<String, Point> pair : list) {
+                Point point = pair.getValue();
+                byte[] name = point.getName().getBytes(UTF_8);
+                out.writeInt(levels[ids.size() + 1]);
+                out.writeInt(point.x);
+                out.writeInt(point.y);
+                out.writeInt(name.length);
+                out.write(name);
+                ids.put(point, ids.size());
+            }
+            tree.writeLayout(out, ids);
+            out.flush();
+
+            // the checksum itself is written past the checked stream
+            new DataOutputStream(stream).writeLong(checksum.getValue());
+            stream.flush();
+            channel.force(true);
+        }
+    }
+
+    /**
+     * Read a snapshot into an empty SkipList and an empty tree. The whole
+     * file is mapped and its checksum verified before anything is loaded.
+     *
+     * @param file path of the snapshot
+     * @param list empty SkipList to load the points into
+     * @param tree empty tree to load the layout into
+     * @return sequence number of the last log record in the snapshot
+     * @throws IOException if the file cannot be read or is not a valid
+     *                     snapshot
+     */
+    static long read(Path file, SkipList<String, Point> list, QuadTree tree)
+            throws IOException {
+        try (FileChannel channel = FileChannel.open(file,
+                StandardOpenOption.READ)) {
+            long length = channel.size();
+            if (length < HEADER_BYTES + Long.BYTES
+                    || length > Integer.MAX_VALUE) {
+                throw new IOException("Invalid snapshot size: " + file);
+            }
+            MappedByteBuffer buffer = channel.map(
+                    FileChannel.MapMode.READ_ONLY, 0, length);
+            int end = (int) length - Long.BYTES;
+            ByteBuffer data = buffer.duplicate();
+            data.limit(end);
+            CRC32 checksum = new CRC32();
+            checksum.update(data);
+            if (checksum.getValue() != buffer.getLong(end)) {
+                throw new IOException("Snapshot checksum mismatch: " + file);
+            }
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                throw new IOException("Unsupported snapshot: " + file);
+            }
+            long sequence = buffer.getLong();
+
+            int numPoints = buffer.getInt();
+            int[] levels = new int[numPoints + 1];
+            levels[0] = buffer.getInt();
+            Point[] points = new Point[numPoints];
+            List<KVPair<String, Point>> pairs = new ArrayList<>(numPoints);
+            for (int i = 0; i < numPoints; i++) {
+                levels[i + 1] = buffer.getInt();
+                int x = buffer.getInt();
+                int y = buffer.getInt();
+                byte[] name = new byte[buffer.getInt()];
+                buffer.get(name);
+                points[i] = new Point(new String(name, UTF_8), x, y);
+                pairs.add(new KVPair<>(points[i].getName(), points[i]));
+            }
+            list.load(pairs, levels);
+            buffer.limit(end);
+            tree.readLayout(buffer, points);
+            return sequence;
+        }
+    }
+}
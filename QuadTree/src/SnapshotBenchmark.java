@@ -0,0 +1,73 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.Random;
+
+/**
+ * @author Abhinav Sethi
+ * @version 2021-10-23
+ * <p>
+ * Benchmark that compares a cold start from a binary snapshot with
+ * rebuilding the same database by inserting every point again, as a
+ * replay of the command file does.
+ */
+public class SnapshotBenchmark {
+
+    /**
+     * Size of the world quadrant used by the benchmark
+     */
+    private static final int WORLD_SIZE = 1024;
+
+    /**
+     * Number of times every measurement is repeated to warm up the JIT
+     */
+    private static final int ROUNDS = 5;
+
+    /**
+     * Entry point of the benchmark.
+     *
+     * @param args optional number of points to use
+     * @throws IOException if the snapshot file cannot be used
+     */
+    public static void main(String[] args) throws IOException {
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+        Random random = new Random(1);
+        Point[] points = new Point[n];
+        for (int i = 0; i < n; i++) {
+            points[i] = new Point("p" + random.nextInt(n),
+                    random.nextInt(WORLD_SIZE), random.nextInt(WORLD_SIZE));
+        }
+        File file = File.createTempFile("snapshot", ".bin");
+        file.deleteOnExit();
+
+        PrintStream out = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        try {
+            for (int round = 0; round < ROUNDS; round++) {
+                long time = System.nanoTime();
+                Database database = new Database();
+                for (Point p : points) {
+                    database.insert(p);
+                }
+                long replay = System.nanoTime() - time;
+
+                time = System.nanoTime();
+                database.save(file.getPath());
+                long save = System.nanoTime() - time;
+
+                time = System.nanoTime();
+                Database.open(file.getPath());
+                long open = System.nanoTime() - time;
+
+                out.println(String.format(
+                        "replay %d ms | save %d ms | open %d ms | %d bytes",
+                        replay / 1000000, save / 1000000, open / 1000000,
+                        file.length()));
+            }
+        }
+        finally {
+            System.setOut(out);
+        }
+    }
+}
@@ -0,0 +1,142 @@
+import java.io.File;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * @author Abhinav Sethi
+ * @version 2021-10-23
+ * <p>
+ * Benchmark that compares the insert throughput of a database kept in
+ * memory only with a database writing a write-ahead log at every
+ * durability level, for single inserts and for one batch, and shows how
+ * many records concurrent committers share per fsync.
+ */
+public class WalBenchmark {
+
+    /**
+     * Size of the world quadrant used by the benchmark
+     */
+    private static final int WORLD_SIZE = 1024;
+
+    /**
+     * Flush interval of the logs in milliseconds
+     */
+    private static final long FLUSH_INTERVAL = 5;
+
+    /**
+     * Number of threads committing to the log concurrently
+     */
+    private static final int THREADS = 8;
+
+    /**
+     * Entry point of the benchmark.
+     *
+     * @param args optional number of points to use
+     * @throws Exception if the log files cannot be used
+     */
+    public static void main(String[] args) throws Exception {
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+        Random random = new Random(1);
+        Point[] points = new Point[n];
+        for (int i = 0; i < n; i++) {
+            points[i] = new Point("p" + i, random.nextInt(WORLD_SIZE),
+                    random.nextInt(WORLD_SIZE));
+        }
+        File dir = Files.createTempDirectory("wal").toFile();
+
+        PrintStream out = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        try {
+            long time = System.nanoTime();
+            Database database = new Database();
+            for (Point p : points) {
+                database.insert(p);
+            }
+            out.println(report("memory insert", n, time, 0));
+
+            for (WriteAheadLog.Durability durability
+                    : WriteAheadLog.Durability.values()) {
+                for (boolean batch : new boolean[] {false, true}) {
+                    File log = new File(dir, "wal.bin");
+                    File snapshot = new File(dir, "snapshot.bin");
+                    WriteAheadLog wal = new WriteAheadLog(log.toPath(),
+                            durability, FLUSH_INTERVAL);
+                    time = System.nanoTime();
+                    database = Database.recover(snapshot.getPath(), wal,
+                            new PointerQuadTree());
+                    if (batch) {
+                        database.insertAll(Arrays.asList(points));
+                    }
+                    else {
+                        for (Point p : points) {
+                            database.insert(p);
+                        }
+                    }
+                    database.close();
+                    out.println(report(durability + (batch ? " insertAll"
+                            : " insert"), n, time, wal.getSyncCount()));
+                    Files.delete(log.toPath());
+                }
+            }
+
+            out.println(groupCommit(new File(dir, "wal.bin"), points));
+        }
+        finally {
+            System.setOut(out);
+            Files.deleteIfExists(new File(dir, "wal.bin").toPath());
+            Files.delete(dir.toPath());
+        }
+    }
+
+    /**
+     * Append and commit the points to a SYNC log from several threads at
+     * once.
+     *
+     * @param file   path of the log file
+     * @param points points to log
+     * @return cost per record and number of fsyncs
+     * @throws Exception if the log cannot be used
+     */
+    static String groupCommit(File file, Point[] points) throws Exception {
+        WriteAheadLog wal = new WriteAheadLog(file.toPath(),
+                WriteAheadLog.Durability.SYNC, FLUSH_INTERVAL);
+        Thread[] threads = new Thread[THREADS];
+        long time = System.nanoTime();
+        for (int t = 0; t < THREADS; t++) {
+            int first = t;
+            threads[t] = new Thread(() -> {
+                for (int i = first; i < points.length; i += THREADS) {
+                    wal.commit(wal.append(WriteAheadLog.INSERT, points[i]));
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        String result = report(THREADS + " threads SYNC commit",
+                points.length, time, wal.getSyncCount());
+        wal.close();
+        Files.delete(file.toPath());
+        return result;
+    }
+
+    /**
+     * Format the cost of one measured phase.
+     *
+     * @param name  name of the phase
+     * @param n     number of operations in the phase
+     * @param time  nano time at the start of the phase
+     * @param syncs number of fsyncs in the phase
+     * @return nanoseconds per operation and records per fsync
+     */
+    static String report(String name, int n, long time, long syncs) {
+        long elapsed = System.nanoTime() - time;
+        return String.format("%s %d ns/op %d fsyncs %.1f records/fsync",
+                name, elapsed / n, syncs, syncs == 0 ? 0.0
+                        : n / (double) syncs);
+    }
+}
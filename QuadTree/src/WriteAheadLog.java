@@ -0,0 +1,382 @@
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * @author Abhinav Sethi
+ * @version 2021-10-23
+ * <p>
+ * Append-only log of the database mutations, written through a
+ * FileChannel before the mutation is acknowledged.
+ * <p>
+ * Every record is the length and the CRC32 of its payload followed by the
+ * payload: the sequence number of the record, its type and the point that
+ * was inserted or removed. Records are encoded into a memory buffer by the
+ * calling thread and written by a single flusher thread, so all records
+ * appended while a write or an fsync is in progress share the next one
+ * (group commit). The flusher also wakes up once every flush interval to
+ * write whatever was appended. The durability level decides what commit
+ * waits for.
+ * <p>
+ * Opening a log scans it and cuts off a torn or corrupted tail left by a
+ * crash, so new records always follow the last valid one.
+ */
+public class WriteAheadLog implements Closeable {
+
+    /**
+     * Guarantee given by commit once it returns
+     */
+    public enum Durability {
+        /**
+         * Commit returns at once, records reach the disk within the flush
+         * interval, so a crash loses at most one interval of mutations
+         */
+        ASYNC,
+        /**
+         * Commit waits until the record is written to the operating system,
+         * which survives a process crash but not a power loss
+         */
+        WRITE,
+        /**
+         * Commit waits until the record is forced to the storage device
+         */
+        SYNC
+    }
+
+    /**
+     * Callback receiving the records of the log during a replay
+     */
+    public interface Mutation {
+
+        /**
+         * Apply one record of the log
+         *
+         * @param type  INSERT or REMOVE
+         * @param point point inserted or removed
+         */
+        void apply(byte type, Point point);
+    }
+
+    /**
+     * Record type of an inserted point
+     */
+    static final byte INSERT = 1;
+
+    /**
+     * Record type of a removed point
+     */
+    static final byte REMOVE = 2;
+
+    private static final int RECORD_HEADER_BYTES = 2 * Integer.BYTES;
+
+    private final FileChannel channel;
+    private final Durability durability;
+    private final long flushInterval;
+    private final Thread flusher;
+
+    private final Object lock = new Object();
+    private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+    private final DataOutputStream out = new DataOutputStream(buffer);
+    private final CRC32 checksum = new CRC32();
+
+    private long sequence;
+    private long writtenSequence;
+    private long durableSequence;
+    private long syncCount;
+    private boolean flushRequested;
+    private boolean closed;
+    private IOException failure;
+
+    /**
+     * Open or create a log and start its flusher thread
+     *
+     * @param file          path of the log file
+     * @param durability    what commit waits for
+     * @param flushInterval longest time in milliseconds between two
+     *                      flushes, at least 1
+     * @throws IOException if the file cannot be opened
+     */
+    public WriteAheadLog(Path file, Durability durability,
+                         long flushInterval) throws IOException {
+        if (flushInterval <= 0) {
+            throw new IllegalArgumentException(
+                    "Flush interval must be positive: " + flushInterval);
+        }
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.durability = durability;
+        this.flushInterval = flushInterval;
+        long end = scan(null, Long.MAX_VALUE);
+        channel.truncate(end);
+        channel.position(end);
+        writtenSequence = sequence;
+        durableSequence = sequence;
+        flusher = new Thread(this::flushLoop, "wal-flusher");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    /**
+     * Replay the records of the log that follow the given sequence number.
+     * Numbering of new records continues after the larger of the given
+     * sequence number and the last record.
+     *
+     * @param after  sequence number already contained in the snapshot
+     * @param target callback applying the records
+     * @throws IOException if the log cannot be read
+     */
+    public void replay(long after, Mutation target) throws IOException {
+        synchronized (lock) {
+            scan(target, after);
+            sequence = Math.max(sequence, after);
+            writtenSequence = Math.max(writtenSequence, sequence);
+            durableSequence = Math.max(durableSequence, sequence);
+        }
+    }
+
+    /**
+     * Read the valid records from the start of the file
+     *
+     * @param target callback for the records or null to only scan
+     * @param after  records up to this sequence number are skipped
+     * @return file position after the last valid record
+     * @throws IOException if the log cannot be read
+     */
+    private long scan(Mutation target, long after) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER_BYTES);
+        CRC32 crc = new CRC32();
+        long position = 0;
+        long size = channel.size();
+        while (position + RECORD_HEADER_BYTES <= size) {
+            header.clear();
+            channel.read(header, position);
+            int length = header.getInt(0);
+            if (length <= 0
+                    || position + RECORD_HEADER_BYTES + length > size) {
+                break;
+            }
+            ByteBuffer payload = ByteBuffer.allocate(length);
+            channel.read(payload, position + RECORD_HEADER_BYTES);
+            payload.flip();
+            crc.reset();
+            crc.update(payload.duplicate());
+            if ((int) crc.getValue() != header.getInt(Integer.BYTES)) {
+                break;
+            }
+            long seq = payload.getLong();
+            byte type = payload.get();
+            int x = payload.getInt();
+            int y = payload.getInt();
+            byte[] name = new byte[payload.getInt()];
+            payload.get(name);
+            if (target != null && seq > after) {
+                target.apply(type, new Point(new String(name, UTF_8), x, y));
+            }
+            sequence = seq;
+            position += RECORD_HEADER_BYTES + length;
+        }
+        return position;
+    }
+
+    /**
+     * Encode a record into the log buffer
+     *
+     * @param type  INSERT or REMOVE
+     * @param point point inserted or removed
+     * @return sequence number of the record
+     */
+    public long append(byte type, Point point) {
+        byte[] name = point.getName().getBytes(UTF_8);
+        ByteBuffer payload = ByteBuffer.allocate(
+                Long.BYTES + 1 + 3 * Integer.BYTES + name.length);
+        synchronized (lock) {
+            payload.putLong(++sequence).put(type).putInt(point.x)
+                    .putInt(point.y).putInt(name.length).put(name);
+            checksum.reset();
+            checksum.update(payload.array());
+            try {
+                out.writeInt(payload.capacity());
+                out.writeInt((int) checksum.getValue());
+                out.write(payload.array());
+            }
+            catch (IOException e) {
+                // writing to a memory buffer does not fail
+                throw new UncheckedIOException(e);
+            }
+            return sequence;
+        }
+    }
+
+    /**
+     * Wait until the record with the given sequence number is as durable
+     * as the durability level of the log requires. Records appended before
+     * it are committed with it.
+     *
+     * @param seq sequence number returned by append
+     */
+    public void commit(long seq) {
+        if (durability == Durability.ASYNC) {
+            return;
+        }
+        synchronized (lock) {
+            while (failure == null && (durability == Durability.SYNC
+                    ? durableSequence : writtenSequence) < seq) {
+                requestFlush();
+                waitForFlusher();
+            }
+            if (failure != null) {
+                throw new UncheckedIOException(failure);
+            }
+        }
+    }
+
+    /**
+     * Write and force every appended record, then empty the log. Used by
+     * a checkpoint once a snapshot holds all the records, while no other
+     * thread appends.
+     *
+     * @throws IOException if the log cannot be written or truncated
+     */
+    public void truncate() throws IOException {
+        synchronized (lock) {
+            while (failure == null && durableSequence < sequence) {
+                requestFlush();
+                waitForFlusher();
+            }
+            if (failure != null) {
+                throw failure;
+            }
+            channel.truncate(0);
+            channel.force(true);
+        }
+    }
+
+    /**
+     * @return sequence number of the last appended record
+     */
+    public long getSequence() {
+        synchronized (lock) {
+            return sequence;
+        }
+    }
+
+    /**
+     * @return number of times the log was forced to the storage device
+     */
+    public long getSyncCount() {
+        synchronized (lock) {
+            return syncCount;
+        }
+    }
+
+    /**
+     * Flush and force the remaining records, stop the flusher and close
+     * the file.
+     *
+     * @throws IOException if the remaining records cannot be written
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (lock) {
+            closed = true;
+            lock.notifyAll();
+        }
+        try {
+            flusher.join();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        channel.close();
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Wake up the flusher unless a flush is already requested, so that
+     * waiting committers do not keep waking each other
+     */
+    private void requestFlush() {
+        if (!flushRequested) {
+            flushRequested = true;
+            lock.notifyAll();
+        }
+    }
+
+    private void waitForFlusher() {
+        try {
+            lock.wait();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new UncheckedIOException(
+                    new IOException("Interrupted while committing", e));
+        }
+    }
+
+    /**
+     * Body of the flusher thread. Takes everything appended so far, writes
+     * it, forces it unless the level is WRITE, and wakes up the committing
+     * threads.
+     */
+    private void flushLoop() {
+        boolean stop = false;
+        while (!stop) {
+            byte[] data;
+            long seq;
+            synchronized (lock) {
+                if (!closed && !flushRequested) {
+                    try {
+                        lock.wait(flushInterval);
+                    }
+                    catch (InterruptedException e) {
+                        closed = true;
+                    }
+                }
+                stop = closed;
+                flushRequested = false;
+                data = buffer.toByteArray();
+                buffer.reset();
+                seq = sequence;
+            }
+            try {
+                ByteBuffer bytes = ByteBuffer.wrap(data);
+                while (bytes.hasRemaining()) {
+                    channel.write(bytes);
+                }
+                synchronized (lock) {
+                    writtenSequence = seq;
+                    lock.notifyAll();
+                }
+                if ((data.length > 0 && durability != Durability.WRITE)
+                        || stop) {
+                    channel.force(false);
+                    synchronized (lock) {
+                        syncCount++;
+                    }
+                }
+                synchronized (lock) {
+                    durableSequence = seq;
+                    lock.notifyAll();
+                }
+            }
+            catch (IOException e) {
+                synchronized (lock) {
+                    failure = e;
+                    lock.notifyAll();
+                }
+                return;
+            }
+        }
+    }
+}
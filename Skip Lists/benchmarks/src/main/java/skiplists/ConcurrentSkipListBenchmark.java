@@ -0,0 +1,160 @@
+package skiplists;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author Abhinav Sethi
+ * @version 2021-09-26
+ * <p>
+ * Benchmark that compares the throughput of the lock-free skip list with
+ * SkipList behind one lock. Every thread runs a mix of 80% searches, 10%
+ * inserts and 10% removals on random keys of a preloaded list, so the list
+ * keeps about the same size. An operation is one search, insert or
+ * removal.
+ * <p>
+ * Run through JMH it measures the thread count given with "-t". Run as a
+ * program, for example "java -cp benchmarks.jar
+ * skiplists.ConcurrentSkipListBenchmark", it measures every thread count
+ * from 1 to 32 and prints the scaling curve of both lists at the end; any
+ * JMH options given are passed on.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ConcurrentSkipListBenchmark {
+
+    /**
+     * Thread counts of the scaling curve
+     */
+    private static final int[] THREADS = {1, 2, 4, 8, 16, 32};
+
+    @Param({"10000", "1000000"})
+    public int size;
+
+    private String[] keys;
+    private ConcurrentSkipList<String, Integer> concurrent;
+    private SkipList<String, Integer> locked;
+    private final Object lock = new Object();
+
+    /**
+     * Preload both lists with the same pairs.
+     */
+    @Setup(Level.Trial)
+    public void preload() {
+        keys = new String[size];
+        concurrent = new ConcurrentSkipList<>();
+        locked = new SkipList<>();
+        for (int i = 0; i < size; i++) {
+            keys[i] = "k" + i;
+            concurrent.insert(new KVPair<>(keys[i], i));
+            locked.insert(new KVPair<>(keys[i], i));
+        }
+    }
+
+    /**
+     * Run one operation of the mix on the lock-free list.
+     *
+     * @return number of pairs found or removed
+     */
+    @Benchmark
+    public int lockFree() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int i = random.nextInt(size);
+        int op = random.nextInt(10);
+        if (op == 0) {
+            concurrent.insert(new KVPair<>(keys[i], i));
+            return 0;
+        }
+        if (op == 1) {
+            return concurrent.remove(keys[i]) != null ? 1 : 0;
+        }
+        return concurrent.search(keys[i]).size();
+    }
+
+    /**
+     * Run one operation of the mix on SkipList, holding the lock.
+     *
+     * @return number of pairs found or removed
+     */
+    @Benchmark
+    public int locked() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int i = random.nextInt(size);
+        int op = random.nextInt(10);
+        synchronized (lock) {
+            if (op == 0) {
+                locked.insert(new KVPair<>(keys[i], i));
+                return 0;
+            }
+            if (op == 1) {
+                return locked.remove(keys[i]) != null ? 1 : 0;
+            }
+            return locked.search(keys[i]).size();
+        }
+    }
+
+    /**
+     * Measure every thread count and print the scaling curve.
+     *
+     * @param args JMH options
+     * @throws CommandLineOptionException if the options are not valid
+     * @throws RunnerException            if a benchmark fails
+     */
+    public static void main(String[] args)
+            throws CommandLineOptionException, RunnerException {
+        CommandLineOptions options = new CommandLineOptions(args);
+        // operations per second by size, thread count and list
+        Map<String, Map<Integer, double[]>> curve = new TreeMap<>();
+        for (int threads : THREADS) {
+            for (RunResult result : new Runner(new OptionsBuilder()
+                    .parent(options)
+                    .include(ConcurrentSkipListBenchmark.class.getName())
+                    .threads(threads)
+                    .build()).run()) {
+                String name = result.getParams().getBenchmark();
+                double[] scores = curve
+                        .computeIfAbsent(result.getParams().getParam("size"),
+                                size -> new TreeMap<>())
+                        .computeIfAbsent(threads, count -> new double[2]);
+                scores[name.endsWith("lockFree") ? 0 : 1] =
+                        result.getPrimaryResult().getScore();
+            }
+        }
+        for (Map.Entry<String, Map<Integer, double[]>> size
+                : curve.entrySet()) {
+            System.out.println(size.getKey() + " pairs");
+            for (Map.Entry<Integer, double[]> point
+                    : size.getValue().entrySet()) {
+                System.out.println(String.format(
+                        "%2d threads | lock-free %,14.0f ops/s"
+                                + " | locked %,14.0f ops/s", point.getKey(),
+                        point.getValue()[0], point.getValue()[1]));
+            }
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package skiplists;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author Abhinav Sethi
+ * @version 2021-09-26
+ * <p>
+ * Benchmark of the spatial indexes the database can be backed by: the
+ * R-tree, the scan of the rectangle store and grids of several cell sizes,
+ * named "grid" followed by the cell size. For every index it measures
+ * inserting the rectangles one by one and region searches of several
+ * window sizes, printing the average number of nodes, cells or slots each
+ * search visits.
+ * <p>
+ * The rectangles are small, with sides up to 24 as in the R-tree
+ * benchmark. An operation of insert is the whole index, and of search one
+ * search. Output is counted, not printed.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class IndexBenchmark {
+
+    /**
+     * Number of search windows of a run
+     */
+    private static final int QUERIES = 1000;
+
+    /**
+     * Rectangles of one size for one engine
+     */
+    @State(Scope.Thread)
+    public static class Rectangles {
+
+        @Param({"10000", "100000", "1000000"})
+        public int size;
+
+        @Param({"rtree", "scan", "grid8", "grid16", "grid32", "grid64"})
+        public String engine;
+
+        List<KVPair<String, Rectangle>> pairs;
+
+        /**
+         * Generate the rectangles.
+         */
+        @Setup(Level.Trial)
+        public void generate() {
+            pairs = pairs(size);
+        }
+    }
+
+    /**
+     * Index of one size and engine searched with windows of one side
+     */
+    @State(Scope.Thread)
+    public static class Searched {
+
+        @Param({"10000", "100000", "1000000"})
+        public int size;
+
+        @Param({"rtree", "scan", "grid8", "grid16", "grid32", "grid64"})
+        public String engine;
+
+        @Param({"1", "16", "256"})
+        public int side;
+
+        List<KVPair<String, Rectangle>> pairs;
+        RectangleIndex index;
+        Rectangle[] regions;
+        final CountingSink sink = new CountingSink();
+        private int next;
+
+        /**
+         * Fill the index, generate the windows and print the average
+         * number of nodes, cells or slots a search visits.
+         */
+        @Setup(Level.Trial)
+        public void fill() {
+            pairs = pairs(size);
+            index = index(engine);
+            for (KVPair<String, Rectangle> pair : pairs) {
+                index.insert(pair.getValue());
+            }
+            Random random = new Random(side);
+            regions = new Rectangle[QUERIES];
+            long visited = 0;
+            for (int i = 0; i < QUERIES; i++) {
+                regions[i] = new Rectangle(random.nextInt(1024 - side),
+                        random.nextInt(1024 - side), side, side);
+                visited += index.regionSearch(regions[i], id -> { });
+            }
+            System.out.println(String.format("%d rectangles %s %dx%d %.1f"
+                    + " visited", size, engine, side, side, visited
+                    / (double) QUERIES));
+        }
+
+        /**
+         * Return the windows one after the other.
+         *
+         * @return next window to search
+         */
+        Rectangle next() {
+            Rectangle region = regions[next];
+            next = next + 1 == QUERIES ? 0 : next + 1;
+            return region;
+        }
+    }
+
+    /**
+     * Fill an index by inserting the rectangles one by one.
+     *
+     * @param state rectangles to insert
+     * @return size of the index
+     */
+    @Benchmark
+    public int insert(Rectangles state) {
+        RectangleIndex index = index(state.engine);
+        for (KVPair<String, Rectangle> pair : state.pairs) {
+            index.insert(pair.getValue());
+        }
+        return index.size();
+    }
+
+    /**
+     * Search the index.
+     *
+     * @param state index to search
+     * @return number of lines printed so far
+     */
+    @Benchmark
+    public long search(Searched state) {
+        List<KVPair<String, Rectangle>> pairs = state.pairs;
+        CountingSink sink = state.sink;
+        state.index.regionSearch(state.next(), id ->
+                sink.println(Constants.RECTANGLE_FOUND, pairs.get(id)));
+        return sink.getLines();
+    }
+
+    /**
+     * Create an empty index of an engine.
+     *
+     * @param engine "rtree", "scan", or "grid" and the cell size
+     * @return the index
+     */
+    static RectangleIndex index(String engine) {
+        if (engine.equals("rtree")) {
+            return new RTreeIndex();
+        }
+        if (engine.equals("scan")) {
+            return new ScanIndex();
+        }
+        return new GridIndex(Integer.parseInt(engine.substring(4)));
+    }
+
+    /**
+     * Generate small rectangles at random, with sides up to 24.
+     *
+     * @param n number of rectangles
+     * @return pairs of names and rectangles
+     */
+    static List<KVPair<String, Rectangle>> pairs(int n) {
+        Random random = new Random(1);
+        List<KVPair<String, Rectangle>> pairs = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            int x = random.nextInt(1000);
+            int y = random.nextInt(1000);
+            pairs.add(new KVPair<>("r" + i, new Rectangle(x, y,
+                    1 + random.nextInt(24), 1 + random.nextInt(24))));
+        }
+        return pairs;
+    }
+}
@@ -0,0 +1,230 @@
+package skiplists;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author Abhinav Sethi
+ * @version 2021-09-26
+ * <p>
+ * Benchmark of the intersections command, which streams the pairs the
+ * database keeps up to date, against the plane sweep over all the
+ * rectangles and the nested loops over the list and over the columns of a
+ * rectangle store. The nested loops are quadratic, so they only run up to
+ * ten thousand rectangles. The cost of keeping the pairs is measured as
+ * rounds of removes and inserts, an operation then being one rectangle
+ * removed and inserted again.
+ * <p>
+ * The rectangles are placed at random in the 1024 by 1024 world, with
+ * sides shrinking as their number grows so that each one intersects a few
+ * others at every size. Every other operation is one run of the command
+ * over all the rectangles. Output is counted, not printed, and every size
+ * prints the number of pairs found.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class IntersectionBenchmark {
+
+    /**
+     * Number of rectangles removed and inserted again by one invocation
+     */
+    private static final int UPDATES = 300;
+
+    /**
+     * Database and list holding the same rectangles
+     */
+    @State(Scope.Thread)
+    public static class Rectangles {
+
+        @Param({"10000", "100000", "1000000"})
+        public int size;
+
+        List<KVPair<String, Rectangle>> pairs;
+        Database database;
+        SkipList<String, Rectangle> list;
+        final CountingSink sink = new CountingSink();
+        final Random random = new Random(2);
+
+        /**
+         * Fill the database and the list, and print the number of pairs.
+         */
+        @Setup(Level.Trial)
+        public void fill() {
+            pairs = pairs(size);
+            database = new Database(sink);
+            list = new SkipList<>();
+            for (KVPair<String, Rectangle> pair : pairs) {
+                database.insert(pair);
+                list.insert(pair);
+            }
+            long lines = sink.getLines();
+            database.intersections();
+            System.out.println(size + " rectangles pairs "
+                    + (sink.getLines() - lines));
+        }
+    }
+
+    /**
+     * Rectangles few enough for the nested loops
+     */
+    @State(Scope.Thread)
+    public static class Few {
+
+        @Param({"1000", "10000"})
+        public int size;
+
+        List<KVPair<String, Rectangle>> pairs;
+        SkipList<String, Rectangle> list;
+        final RectangleStore store = new RectangleStore();
+        final CountingSink sink = new CountingSink();
+
+        /**
+         * Fill the list and the store, the id of every rectangle being its
+         * position in pairs.
+         */
+        @Setup(Level.Trial)
+        public void fill() {
+            pairs = pairs(size);
+            list = new SkipList<>();
+            for (KVPair<String, Rectangle> pair : pairs) {
+                list.insert(pair);
+                store.add(pair.getValue());
+            }
+        }
+    }
+
+    /**
+     * Print the pairs the database keeps up to date.
+     *
+     * @param state database to print
+     * @return number of lines printed so far
+     */
+    @Benchmark
+    public long maintained(Rectangles state) {
+        state.database.intersections();
+        return state.sink.getLines();
+    }
+
+    /**
+     * Print the pairs found by the plane sweep over the list.
+     *
+     * @param state list to sweep
+     * @return number of lines printed so far
+     */
+    @Benchmark
+    public long sweep(Rectangles state) {
+        CountingSink out = state.sink;
+        List<KVPair<String, Rectangle>> pairs =
+                new ArrayList<>(state.list.size());
+        for (KVPair<String, Rectangle> pair : state.list) {
+            pairs.add(pair);
+        }
+        Rectangle[] rectangles = new Rectangle[pairs.size()];
+        for (int i = 0; i < rectangles.length; i++) {
+            rectangles[i] = pairs.get(i).getValue();
+        }
+        out.println(Constants.INTERSECTIONS);
+        IntersectionSweep.intersections(rectangles, (first, second) ->
+                out.println(Constants.INTERSECTION_FOUND, pairs.get(first),
+                        pairs.get(second)));
+        return out.getLines();
+    }
+
+    /**
+     * Remove rectangles of the database and insert them again, which
+     * leaves the same pairs intersecting.
+     *
+     * @param state database to update
+     * @return number of lines printed so far
+     */
+    @Benchmark
+    @OperationsPerInvocation(UPDATES)
+    public long update(Rectangles state) {
+        int start = state.random.nextInt(state.size - UPDATES);
+        for (int i = start; i < start + UPDATES; i++) {
+            KVPair<String, Rectangle> pair = state.pairs.get(i);
+            state.database.remove(pair.getKey());
+            state.database.insert(pair);
+        }
+        return state.sink.getLines();
+    }
+
+    /**
+     * Print the pairs comparing every rectangle of the list with all the
+     * others.
+     *
+     * @param state list to compare
+     * @return number of lines printed so far
+     */
+    @Benchmark
+    public long nestedLoop(Few state) {
+        CountingSink out = state.sink;
+        out.println(Constants.INTERSECTIONS);
+        for (KVPair<String, Rectangle> pair1 : state.list) {
+            for (KVPair<String, Rectangle> pair2 : state.list) {
+                if (pair1 != pair2
+                        && pair1.getValue().intersects(pair2.getValue())) {
+                    out.println(Constants.INTERSECTION_FOUND, pair1, pair2);
+                }
+            }
+        }
+        return out.getLines();
+    }
+
+    /**
+     * Print the pairs comparing the columns of every rectangle of the store
+     * with all the others.
+     *
+     * @param state store to compare
+     * @return number of lines printed so far
+     */
+    @Benchmark
+    public long columnLoop(Few state) {
+        CountingSink out = state.sink;
+        List<KVPair<String, Rectangle>> pairs = state.pairs;
+        out.println(Constants.INTERSECTIONS);
+        state.store.intersections((first, second) ->
+                out.println(Constants.INTERSECTION_FOUND, pairs.get(first),
+                        pairs.get(second)));
+        return out.getLines();
+    }
+
+    /**
+     * Generate rectangles at random, with sides shrinking as their number
+     * grows.
+     *
+     * @param n number of rectangles
+     * @return pairs of names and rectangles
+     */
+    static List<KVPair<String, Rectangle>> pairs(int n) {
+        Random random = new Random(1);
+        int side = Math.max(2, (int) (2048 / Math.sqrt(n)));
+        List<KVPair<String, Rectangle>> pairs = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            int x = random.nextInt(1024 - side);
+            int y = random.nextInt(1024 - side);
+            pairs.add(new KVPair<>("r" + i, new Rectangle(x, y,
+                    1 + random.nextInt(side), 1 + random.nextInt(side))));
+        }
+        return pairs;
+    }
+}
@@ -0,0 +1,227 @@
+package skiplists;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author Abhinav Sethi
+ * @version 2021-09-26
+ * <p>
+ * Benchmark of the R-tree of the database. It compares building the tree
+ * by inserts with packing it from the whole batch, and region searches of
+ * several window sizes in the tree with the scan of the list they replace
+ * and with the scan of the same rectangles in a columnar store, printing
+ * the average number of nodes each search visits.
+ * <p>
+ * An operation of insert and bulkLoad is the whole tree, and of the others
+ * one search. Output is counted, not printed.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class RTreeBenchmark {
+
+    /**
+     * Number of search windows of a run
+     */
+    private static final int QUERIES = 1000;
+
+    /**
+     * Rectangles of one size in a store, the id of every rectangle being
+     * its position in pairs
+     */
+    @State(Scope.Thread)
+    public static class Stored {
+
+        @Param({"10000", "100000", "1000000"})
+        public int size;
+
+        List<KVPair<String, Rectangle>> pairs;
+        final RectangleStore store = new RectangleStore();
+        int[] ids;
+
+        /**
+         * Generate the rectangles and add them to the store.
+         */
+        @Setup(Level.Trial)
+        public void fill() {
+            pairs = pairs(size);
+            ids = new int[size];
+            for (int i = 0; i < size; i++) {
+                ids[i] = store.add(pairs.get(i).getValue());
+            }
+        }
+    }
+
+    /**
+     * Tree, list and store of one size searched with windows of one side
+     */
+    @State(Scope.Thread)
+    public static class Searched {
+
+        @Param({"10000", "100000", "1000000"})
+        public int size;
+
+        @Param({"1", "16", "256"})
+        public int side;
+
+        List<KVPair<String, Rectangle>> pairs;
+        final RectangleStore store = new RectangleStore();
+        RTree tree;
+        SkipList<String, Rectangle> list;
+        Rectangle[] regions;
+        final CountingSink sink = new CountingSink();
+        private int next;
+
+        /**
+         * Build the tree and the list, generate the windows and print the
+         * average number of nodes a search visits.
+         */
+        @Setup(Level.Trial)
+        public void fill() {
+            pairs = pairs(size);
+            int[] ids = new int[size];
+            for (int i = 0; i < size; i++) {
+                ids[i] = store.add(pairs.get(i).getValue());
+            }
+            tree = new RTree(store);
+            tree.bulkLoad(ids);
+            List<KVPair<String, Rectangle>> sorted = new ArrayList<>(pairs);
+            sorted.sort(null);
+            list = SkipList.build(sorted);
+
+            Random random = new Random(side);
+            regions = new Rectangle[QUERIES];
+            long visited = 0;
+            for (int i = 0; i < QUERIES; i++) {
+                regions[i] = new Rectangle(random.nextInt(1024 - side),
+                        random.nextInt(1024 - side), side, side);
+                visited += tree.regionSearch(regions[i], id -> { });
+            }
+            System.out.println(String.format("%d rectangles %dx%d %.1f nodes"
+                    + " visited", size, side, side, visited
+                    / (double) QUERIES));
+        }
+
+        /**
+         * Return the windows one after the other.
+         *
+         * @return next window to search
+         */
+        Rectangle next() {
+            Rectangle region = regions[next];
+            next = next + 1 == QUERIES ? 0 : next + 1;
+            return region;
+        }
+    }
+
+    /**
+     * Build the tree by inserting the rectangles one by one.
+     *
+     * @param state rectangles to insert
+     * @return height of the tree
+     */
+    @Benchmark
+    public int insert(Stored state) {
+        RTree tree = new RTree(state.store);
+        for (int id : state.ids) {
+            tree.insert(id);
+        }
+        return tree.height();
+    }
+
+    /**
+     * Pack the tree from all the rectangles at once.
+     *
+     * @param state rectangles to load
+     * @return height of the tree
+     */
+    @Benchmark
+    public int bulkLoad(Stored state) {
+        RTree tree = new RTree(state.store);
+        tree.bulkLoad(state.ids);
+        return tree.height();
+    }
+
+    /**
+     * Search the tree.
+     *
+     * @param state tree to search
+     * @return number of lines printed so far
+     */
+    @Benchmark
+    public long treeSearch(Searched state) {
+        List<KVPair<String, Rectangle>> pairs = state.pairs;
+        CountingSink sink = state.sink;
+        state.tree.regionSearch(state.next(), id ->
+                sink.println(Constants.RECTANGLE_FOUND, pairs.get(id)));
+        return sink.getLines();
+    }
+
+    /**
+     * Search by scanning the list.
+     *
+     * @param state list to scan
+     * @return number of lines printed so far
+     */
+    @Benchmark
+    public long listScan(Searched state) {
+        Rectangle region = state.next();
+        for (KVPair<String, Rectangle> pair : state.list) {
+            if (pair.getValue().intersects(region)) {
+                state.sink.println(Constants.RECTANGLE_FOUND, pair);
+            }
+        }
+        return state.sink.getLines();
+    }
+
+    /**
+     * Search by scanning the columns of the store.
+     *
+     * @param state store to scan
+     * @return number of lines printed so far
+     */
+    @Benchmark
+    public long columnScan(Searched state) {
+        List<KVPair<String, Rectangle>> pairs = state.pairs;
+        CountingSink sink = state.sink;
+        state.store.regionSearch(state.next(), id ->
+                sink.println(Constants.RECTANGLE_FOUND, pairs.get(id)));
+        return sink.getLines();
+    }
+
+    /**
+     * Generate small rectangles at random, with sides up to 24.
+     *
+     * @param n number of rectangles
+     * @return pairs of names and rectangles
+     */
+    static List<KVPair<String, Rectangle>> pairs(int n) {
+        Random random = new Random(1);
+        List<KVPair<String, Rectangle>> pairs = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            int x = random.nextInt(1000);
+            int y = random.nextInt(1000);
+            pairs.add(new KVPair<>("r" + i, new Rectangle(x, y,
+                    1 + random.nextInt(24), 1 + random.nextInt(24))));
+        }
+        return pairs;
+    }
+}
@@ -0,0 +1,178 @@
+package skiplists;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author Abhinav Sethi
+ * @version 2021-09-26
+ * <p>
+ * Benchmark of the database removals by coordinates, which look up the
+ * name of the rectangle in the geometry index and then remove by key. It
+ * deletes every rectangle of the database in random order, and compares a
+ * few removals with the scan of the list by value they replace. Removals
+ * by name are measured too, as they keep the index up to date as well.
+ * <p>
+ * An operation of the database removals is the whole database, emptied in
+ * random order after being filled again before every invocation. An
+ * operation of the scan is one removal. Output is counted, not printed.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class RemoveBenchmark {
+
+    /**
+     * Number of removals by scanning done by one invocation
+     */
+    private static final int WALKS = 100;
+
+    /**
+     * Rectangles of one size, in insertion and in removal order
+     */
+    @State(Scope.Thread)
+    public static class Pairs {
+
+        @Param({"1000", "100000", "1000000"})
+        public int size;
+
+        KVPair<String, Rectangle>[] pairs;
+        KVPair<String, Rectangle>[] order;
+        final CountingSink sink = new CountingSink();
+        Database database;
+        SkipList<String, Rectangle> list;
+
+        /**
+         * Generate the rectangles and shuffle them.
+         */
+        @Setup(Level.Trial)
+        public void generate() {
+            Random random = new Random(1);
+            pairs = pairs(size, random);
+            order = pairs.clone();
+            for (int i = order.length - 1; i > 0; i--) {
+                int j = random.nextInt(i + 1);
+                KVPair<String, Rectangle> swap = order[i];
+                order[i] = order[j];
+                order[j] = swap;
+            }
+        }
+    }
+
+    /**
+     * Database filled again before every invocation
+     */
+    @State(Scope.Thread)
+    public static class Full extends Pairs {
+
+        /**
+         * Fill the database.
+         */
+        @Setup(Level.Invocation)
+        public void fill() {
+            database = new Database(sink);
+            for (KVPair<String, Rectangle> pair : pairs) {
+                database.insert(pair);
+            }
+        }
+    }
+
+    /**
+     * List filled again before every invocation
+     */
+    @State(Scope.Thread)
+    public static class Listed extends Pairs {
+
+        /**
+         * Fill the list.
+         */
+        @Setup(Level.Invocation)
+        public void fill() {
+            list = new SkipList<>();
+            for (KVPair<String, Rectangle> pair : pairs) {
+                list.insert(pair);
+            }
+        }
+    }
+
+    /**
+     * Remove every rectangle of the database by its coordinates.
+     *
+     * @param state database to empty
+     * @return number of lines printed so far
+     */
+    @Benchmark
+    public long removeByValue(Full state) {
+        for (KVPair<String, Rectangle> pair : state.order) {
+            Rectangle r = pair.getValue();
+            state.database.remove(r.x, r.y, r.width, r.height);
+        }
+        return state.sink.getLines();
+    }
+
+    /**
+     * Remove every rectangle of the database by its name.
+     *
+     * @param state database to empty
+     * @return number of lines printed so far
+     */
+    @Benchmark
+    public long removeByName(Full state) {
+        for (KVPair<String, Rectangle> pair : state.order) {
+            state.database.remove(pair.getKey());
+        }
+        return state.sink.getLines();
+    }
+
+    /**
+     * Remove rectangles from the list by scanning it for their value.
+     *
+     * @param state list to remove from
+     * @return size left
+     */
+    @Benchmark
+    @OperationsPerInvocation(WALKS)
+    public int removeByValueScan(Listed state) {
+        for (int i = 0; i < WALKS; i++) {
+            state.list.removeByValue(state.order[i].getValue());
+        }
+        return state.list.size();
+    }
+
+    /**
+     * Generate valid rectangles with random names and geometry.
+     *
+     * @param n      number of rectangles
+     * @param random source of the names and geometry
+     * @return pairs of names and rectangles
+     */
+    @SuppressWarnings("unchecked")
+    static KVPair<String, Rectangle>[] pairs(int n, Random random) {
+        KVPair<String, Rectangle>[] pairs =
+                (KVPair<String, Rectangle>[]) new KVPair<?, ?>[n];
+        for (int i = 0; i < n; i++) {
+            int x = random.nextInt(1000);
+            int y = random.nextInt(1000);
+            pairs[i] = new KVPair<>("r" + random.nextInt(n), new Rectangle(
+                    x, y, 1 + random.nextInt(1024 - x),
+                    1 + random.nextInt(1024 - y)));
+        }
+        return pairs;
+    }
+}
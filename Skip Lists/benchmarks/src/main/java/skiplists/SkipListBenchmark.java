@@ -0,0 +1,508 @@
+package skiplists;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author Abhinav Sethi
+ * @version 2021-09-26
+ * <p>
+ * Benchmark that measures the skip list insert with random and sorted
+ * keys, the one pass build from sorted pairs and the merge of a sorted
+ * batch, search hits, misses and duplicate keys, remove, removeByValue and
+ * a full iteration, for every combination of list size and key length.
+ * It also compares get and rank with the walk along the bottom level they
+ * replace. Run it with "-prof gc" for the allocation per operation. Every
+ * run of a full list also prints how many nodes were given each level.
+ * <p>
+ * Insert and remove add or take a batch of a thousand pairs and put the
+ * list back between invocations, so their scores are per pair at the given
+ * size; the sorted insert adds the batch in key order. removeByValue takes
+ * a batch of a hundred values. An operation of search, get and rank is one
+ * call, of the walks one walk, while build, insertAll and iterate score the
+ * whole list.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SkipListBenchmark {
+
+    /**
+     * Number of pairs inserted or removed by key by one invocation
+     */
+    private static final int BATCH = 1000;
+
+    /**
+     * Number of pairs removed by value by one invocation
+     */
+    private static final int WALKS = 100;
+
+    /**
+     * Number of pairs sharing each key in the duplicate key list
+     */
+    private static final int COPIES = 16;
+
+    /**
+     * Keys of one size and key length, shared by the states
+     */
+    @State(Scope.Thread)
+    public abstract static class Keys {
+
+        @Param({"1000", "10000", "100000", "1000000"})
+        public int size;
+
+        @Param({"8", "32"})
+        public int keyLength;
+
+        // keys of the list, then the new keys of a batch
+        String[] keys;
+        SkipList<String, Integer> list;
+        private int next;
+
+        /**
+         * Generate the keys and fill the list with the first size of them,
+         * paired with their index.
+         */
+        void fill() {
+            Random random = new Random(1);
+            keys = new String[size + BATCH];
+            for (int i = 0; i < keys.length; i++) {
+                keys[i] = key(random, keyLength, 'a');
+            }
+            list = build(keys, size);
+        }
+
+        /**
+         * Return the indexes of the list one after the other.
+         *
+         * @return next index of the list
+         */
+        int next() {
+            int index = next;
+            next = next + 1 == size ? 0 : next + 1;
+            return index;
+        }
+    }
+
+    /**
+     * Full list for the methods that read it
+     */
+    @State(Scope.Thread)
+    public static class Filled extends Keys {
+
+        String[] misses;
+        // list where every key is shared by COPIES pairs
+        SkipList<String, Integer> copies;
+        String[] copyKeys;
+        // positions of the list read by get, in random order
+        int[] positions;
+
+        /**
+         * Fill the lists and print the levels of the full one.
+         */
+        @Setup(Level.Trial)
+        public void setUp() {
+            fill();
+            Random random = new Random(2);
+            misses = new String[size];
+            for (int i = 0; i < size; i++) {
+                // upper case keys never match the lower case ones
+                misses[i] = key(random, keyLength, 'A');
+            }
+            copyKeys = new String[size];
+            for (int i = 0; i < size; i++) {
+                copyKeys[i] = keys[i - i % COPIES];
+            }
+            copies = build(copyKeys, size);
+            positions = new int[size];
+            for (int i = 0; i < size; i++) {
+                positions[i] = random.nextInt(size);
+            }
+            System.out.println(size + " pairs " + keyLength + " chars levels "
+                    + levels(list));
+        }
+    }
+
+    /**
+     * Full list a batch of new pairs is inserted into
+     */
+    @State(Scope.Thread)
+    public static class Growing extends Keys {
+
+        List<KVPair<String, Integer>> random;
+        List<KVPair<String, Integer>> sorted;
+
+        /**
+         * Fill the list and prepare the batch in both orders.
+         */
+        @Setup(Level.Trial)
+        public void setUp() {
+            fill();
+            random = new ArrayList<>(BATCH);
+            for (int i = size; i < size + BATCH; i++) {
+                random.add(new KVPair<>(keys[i], i));
+            }
+            sorted = new ArrayList<>(random);
+            sorted.sort(null);
+        }
+
+        /**
+         * Remove the batch inserted by the invocation, which comes first
+         * among the pairs with its keys.
+         */
+        @TearDown(Level.Invocation)
+        public void shrink() {
+            for (KVPair<String, Integer> pair : random) {
+                list.remove(pair.getKey());
+            }
+        }
+    }
+
+    /**
+     * Full list a batch of its pairs is removed from
+     */
+    @State(Scope.Thread)
+    public static class Shrinking extends Keys {
+
+        // pairs removed by key, spread over the whole list
+        KVPair<String, Integer>[] batch;
+        // pairs removed by value, the first of the batch
+        KVPair<String, Integer>[] values;
+
+        /**
+         * Fill the list and pick the batch.
+         */
+        @Setup(Level.Trial)
+        public void setUp() {
+            fill();
+            batch = pairs(BATCH);
+            for (int i = 0; i < BATCH; i++) {
+                int index = (int) ((long) i * size / BATCH);
+                batch[i] = new KVPair<>(keys[index], index);
+            }
+            values = Arrays.copyOf(batch, WALKS);
+        }
+
+        /**
+         * Insert again whatever the invocation removed.
+         */
+        @TearDown(Level.Invocation)
+        public void grow() {
+            for (KVPair<String, Integer> pair : batch) {
+                // drop the pair first if it was left, so it is there once
+                list.remove(pair.getKey(), pair.getValue());
+                list.insert(pair);
+            }
+        }
+    }
+
+    /**
+     * Sorted pairs for the one pass build and the merge of half of them
+     */
+    @State(Scope.Thread)
+    public static class Sorted extends Keys {
+
+        List<KVPair<String, Integer>> pairs;
+        List<KVPair<String, Integer>> evens;
+        List<KVPair<String, Integer>> odds;
+        SkipList<String, Integer> half;
+
+        /**
+         * Sort the pairs and split them in two halves.
+         */
+        @Setup(Level.Trial)
+        public void setUp() {
+            fill();
+            String[] sortedKeys = Arrays.copyOf(keys, size);
+            Arrays.sort(sortedKeys);
+            pairs = new ArrayList<>(size);
+            evens = new ArrayList<>();
+            odds = new ArrayList<>();
+            for (int i = 0; i < size; i++) {
+                KVPair<String, Integer> pair = new KVPair<>(sortedKeys[i], i);
+                pairs.add(pair);
+                (i % 2 == 0 ? evens : odds).add(pair);
+            }
+        }
+
+        /**
+         * Build the list of the even pairs again.
+         */
+        @Setup(Level.Invocation)
+        public void split() {
+            half = SkipList.build(evens);
+        }
+    }
+
+    /**
+     * Insert a batch of pairs in random key order.
+     *
+     * @param list list to insert into
+     * @return the list
+     */
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public SkipList<String, Integer> insertRandom(Growing list) {
+        for (KVPair<String, Integer> pair : list.random) {
+            list.list.insert(pair);
+        }
+        return list.list;
+    }
+
+    /**
+     * Insert a batch of pairs in key order.
+     *
+     * @param list list to insert into
+     * @return the list
+     */
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public SkipList<String, Integer> insertSorted(Growing list) {
+        for (KVPair<String, Integer> pair : list.sorted) {
+            list.list.insert(pair);
+        }
+        return list.list;
+    }
+
+    /**
+     * Build a list from sorted pairs in one pass.
+     *
+     * @param pairs pairs to build from
+     * @return the list
+     */
+    @Benchmark
+    public SkipList<String, Integer> build(Sorted pairs) {
+        return SkipList.build(pairs.pairs);
+    }
+
+    /**
+     * Merge the odd sorted pairs into the list of the even ones.
+     *
+     * @param pairs pairs to merge
+     * @return the list
+     */
+    @Benchmark
+    public SkipList<String, Integer> insertAll(Sorted pairs) {
+        pairs.half.insertAll(pairs.odds);
+        return pairs.half;
+    }
+
+    /**
+     * Search for a key of the list.
+     *
+     * @param list list to search
+     * @return number of pairs found
+     */
+    @Benchmark
+    public int searchHit(Filled list) {
+        return list.list.search(list.keys[list.next()]).size();
+    }
+
+    /**
+     * Search for a key missing from the list.
+     *
+     * @param list list to search
+     * @return number of pairs found
+     */
+    @Benchmark
+    public int searchMiss(Filled list) {
+        return list.list.search(list.misses[list.next()]).size();
+    }
+
+    /**
+     * Search for a key shared by several pairs.
+     *
+     * @param list list to search
+     * @return number of pairs found
+     */
+    @Benchmark
+    public int searchDuplicates(Filled list) {
+        return list.copies.search(list.copyKeys[list.next()]).size();
+    }
+
+    /**
+     * Visit every pair of the list.
+     *
+     * @param list list to iterate
+     * @return sum of the values
+     */
+    @Benchmark
+    public long iterate(Filled list) {
+        long sum = 0;
+        for (KVPair<String, Integer> pair : list.list) {
+            sum += pair.getValue();
+        }
+        return sum;
+    }
+
+    /**
+     * Read the pair at a position.
+     *
+     * @param list list to read
+     * @return the pair
+     */
+    @Benchmark
+    public KVPair<String, Integer> get(Filled list) {
+        return list.list.get(list.positions[list.next()]);
+    }
+
+    /**
+     * Read the pair at a position by walking the bottom level.
+     *
+     * @param list list to read
+     * @return the pair
+     */
+    @Benchmark
+    public KVPair<String, Integer> getByWalk(Filled list) {
+        Iterator<KVPair<String, Integer>> it = list.list.iterator();
+        for (int j = list.positions[list.next()]; j > 0; j--) {
+            it.next();
+        }
+        return it.next();
+    }
+
+    /**
+     * Count the pairs before a key.
+     *
+     * @param list list to count
+     * @return the rank of the key
+     */
+    @Benchmark
+    public int rank(Filled list) {
+        return list.list.rank(list.keys[list.next()]);
+    }
+
+    /**
+     * Count the pairs before a key by walking the bottom level.
+     *
+     * @param list list to count
+     * @return the rank of the key
+     */
+    @Benchmark
+    public int rankByWalk(Filled list) {
+        String key = list.keys[list.next()];
+        int rank = 0;
+        for (KVPair<String, Integer> pair : list.list) {
+            if (pair.getKey().compareTo(key) >= 0) {
+                break;
+            }
+            rank++;
+        }
+        return rank;
+    }
+
+    /**
+     * Remove a batch of keys.
+     *
+     * @param list list to remove from
+     * @return size left
+     */
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public int remove(Shrinking list) {
+        for (KVPair<String, Integer> pair : list.batch) {
+            list.list.remove(pair.getKey());
+        }
+        return list.list.size();
+    }
+
+    /**
+     * Remove a batch of values, each found by a scan of the list.
+     *
+     * @param list list to remove from
+     * @return size left
+     */
+    @Benchmark
+    @OperationsPerInvocation(WALKS)
+    public int removeByValue(Shrinking list) {
+        for (KVPair<String, Integer> pair : list.values) {
+            list.list.removeByValue(pair.getValue());
+        }
+        return list.list.size();
+    }
+
+    /**
+     * Build a list pairing keys with their index.
+     *
+     * @param keys keys to insert in order
+     * @param n    number of keys to insert
+     * @return the list
+     */
+    static SkipList<String, Integer> build(String[] keys, int n) {
+        SkipList<String, Integer> skipList = new SkipList<>();
+        for (int i = 0; i < n; i++) {
+            skipList.insert(new KVPair<>(keys[i], i));
+        }
+        return skipList;
+    }
+
+    /**
+     * Count the nodes of every level, read from the dump of the list.
+     *
+     * @param skipList list to count
+     * @return number of nodes per level, starting with level 1
+     */
+    static String levels(SkipList<String, Integer> skipList) {
+        ListSink sink = new ListSink();
+        skipList.dump(sink);
+        Iterator<ListSink.Entry> entries =
+                sink.getEntries(Constants.DUMP_DETAIL).iterator();
+        // the first node is the head
+        entries.next();
+        TreeMap<Integer, Integer> counts = new TreeMap<>();
+        while (entries.hasNext()) {
+            counts.merge((Integer) entries.next().getArguments()[0], 1,
+                    Integer::sum);
+        }
+        return counts.toString();
+    }
+
+    /**
+     * Generate a random key.
+     *
+     * @param random source of the characters
+     * @param length number of characters
+     * @param first  first letter of the alphabet used
+     * @return the key
+     */
+    static String key(Random random, int length, char first) {
+        char[] chars = new char[length];
+        for (int i = 0; i < length; i++) {
+            chars[i] = (char) (first + random.nextInt(26));
+        }
+        return new String(chars);
+    }
+
+    /**
+     * Create an array of pairs.
+     *
+     * @param n length of the array
+     * @return array of n nulls
+     */
+    @SuppressWarnings("unchecked")
+    static KVPair<String, Integer>[] pairs(int n) {
+        return (KVPair<String, Integer>[]) new KVPair<?, ?>[n];
+    }
+}
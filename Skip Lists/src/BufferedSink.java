@@ -0,0 +1,251 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+
+/**
+ * @author Abhinav Sethi
+ * @version 2021-09-26
+ * <p>
+ * Sink that encodes the lines into a large byte buffer on the calling
+ * thread and hands every full buffer to a writer thread, so the stream is
+ * written and locked once per buffer instead of once per line. While the
+ * writer writes one buffer the caller fills the other.
+ * <p>
+ * The lines are encoded with the same charset and line separator as a
+ * PrintStream using that charset, so the bytes written are the same as
+ * printing every line with println.
+ */
+public class BufferedSink implements OutputSink, Closeable {
+
+    /**
+     * Default size of each of the two buffers in bytes
+     */
+    static final int DEFAULT_BUFFER_SIZE = 1 << 20;
+
+    private static final String LINE_SEPARATOR = System.lineSeparator();
+
+    private final OutputStream out;
+    private final CharsetEncoder encoder;
+    private final boolean asciiCompatible;
+    private final Thread writer;
+
+    // buffer filled by the caller and text of the line being formatted
+    private ByteBuffer current;
+    private final StringBuffer line = new StringBuffer();
+
+    private final Object lock = new Object();
+    private final ArrayDeque<ByteBuffer> pending = new ArrayDeque<>();
+    private final ArrayDeque<ByteBuffer> free = new ArrayDeque<>();
+    private boolean closed;
+    private IOException failure;
+
+    /**
+     * Create a sink with the default charset and buffer size.
+     *
+     * @param out stream to write the lines to
+     */
+    public BufferedSink(OutputStream out) {
+        this(out, Charset.defaultCharset(), DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * Create a sink and start its writer thread.
+     *
+     * @param out        stream to write the lines to
+     * @param charset    charset to encode the lines with
+     * @param bufferSize size of each of the two buffers in bytes
+     */
+    public BufferedSink(OutputStream out, Charset charset, int bufferSize) {
+        this.out = out;
+        this.encoder = charset.newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        char[] ascii = new char[128];
+        for (char c = 0; c < ascii.length; c++) {
+            ascii[c] = c;
+        }
+        String text = new String(ascii);
+        this.asciiCompatible = Arrays.equals(text.getBytes(charset),
+                text.getBytes(US_ASCII));
+        current = ByteBuffer.allocate(bufferSize);
+        free.add(ByteBuffer.allocate(bufferSize));
+        writer = new Thread(this::writeLoop, "output-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    @Override
+    public void print(String text) {
+        append(text);
+    }
+
+    @Override
+    public void println(String text) {
+        append(text);
+        append(LINE_SEPARATOR);
+    }
+
+    @Override
+    public void println(Message message, Object... arguments) {
+        line.setLength(0);
+        message.format(line, arguments);
+        line.append(LINE_SEPARATOR);
+        append(line);
+    }
+
+    /**
+     * Wait until the writer has written every line printed so far and
+     * flush the stream.
+     */
+    @Override
+    public void flush() {
+        synchronized (lock) {
+            if (current.position() > 0) {
+                handOff();
+            }
+            while (failure == null && !pending.isEmpty()) {
+                waitForWriter();
+            }
+            check();
+        }
+    }
+
+    /**
+     * Flush the remaining lines and stop the writer thread. The stream is
+     * left open, as it is usually System.out.
+     */
+    @Override
+    public void close() {
+        flush();
+        synchronized (lock) {
+            closed = true;
+            lock.notifyAll();
+        }
+        try {
+            writer.join();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Encode text into the current buffer, handing off full buffers.
+     * Characters of an ASCII compatible charset are copied directly until
+     * the first one that is not ASCII.
+     *
+     * @param text text to encode
+     */
+    private void append(CharSequence text) {
+        int length = text.length();
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+            if (c >= 0x80 || !asciiCompatible) {
+                encode(CharBuffer.wrap(text, i, length));
+                return;
+            }
+            if (!current.hasRemaining()) {
+                handOff();
+            }
+            current.put((byte) c);
+        }
+    }
+
+    private void encode(CharBuffer chars) {
+        encoder.reset();
+        CoderResult result = encoder.encode(chars, current, true);
+        while (result.isOverflow()) {
+            handOff();
+            result = encoder.encode(chars, current, true);
+        }
+        while (encoder.flush(current).isOverflow()) {
+            handOff();
+        }
+    }
+
+    /**
+     * Queue the current buffer for the writer and continue in a free one,
+     * waiting for the writer to return one if both are in use.
+     */
+    private void handOff() {
+        synchronized (lock) {
+            check();
+            pending.add(current);
+            lock.notifyAll();
+            while (failure == null && free.isEmpty()) {
+                waitForWriter();
+            }
+            check();
+            current = free.poll();
+        }
+    }
+
+    private void check() {
+        if (failure != null) {
+            throw new UncheckedIOException(failure);
+        }
+    }
+
+    private void waitForWriter() {
+        try {
+            lock.wait();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new UncheckedIOException(
+                    new IOException("Interrupted while writing output", e));
+        }
+    }
+
+    /**
+     * Body of the writer thread. Writes the queued buffers in order and
+     * returns them to the free list.
+     */
+    private void writeLoop() {
+        while (true) {
+            ByteBuffer buffer;
+            synchronized (lock) {
+                while (pending.isEmpty() && !closed) {
+                    try {
+                        lock.wait();
+                    }
+                    catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                if (pending.isEmpty()) {
+                    return;
+                }
+                buffer = pending.peek();
+            }
+            try {
+                out.write(buffer.array(), 0, buffer.position());
+                out.flush();
+            }
+            catch (IOException e) {
+                synchronized (lock) {
+                    failure = e;
+                    lock.notifyAll();
+                }
+                return;
+            }
+            synchronized (lock) {
+                pending.poll();
+                buffer.clear();
+                free.add(buffer);
+                lock.notifyAll();
+            }
+        }
+    }
+}
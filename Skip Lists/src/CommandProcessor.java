@@ -18,7 +18,16 @@ public class CommandProcessor {
      * commands to.
      */
     public CommandProcessor() {
-        data = new Database();
+        this(new Database());
+    }
+
+    /**
+     * Create a command processor feeding the given database.
+     *
+     * @param data database to call for every command
+     */
+    public CommandProcessor(Database data) {
+        this.data = data;
     }
 
 
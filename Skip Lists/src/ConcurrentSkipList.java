@@ -0,0 +1,373 @@
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicMarkableReference;
+
+/**
+ * @author Abhinav Sethi
+ * @version 2021-09-26
+ * <p>
+ * Lock-free skip list with the same methods as SkipList, safe to use from
+ * many threads without any lock.
+ * <p>
+ * Every link is a markable reference changed by compare and set. A node is
+ * removed by marking its links from the top level down, which deletes it
+ * logically once the bottom link is marked, and is then unlinked by the
+ * remover or by any insert or remove passing it. Searches and iteration
+ * only read the links, skip marked nodes and never wait.
+ * <p>
+ * Nodes are ordered by key and then by a sequence number taken at insert,
+ * newest first, so pairs with equal keys come out in the same order as
+ * from SkipList and every node has its own position, which lets
+ * removeByValue remove exactly the node it found.
+ *
+ * @param <K> Key
+ * @param <V> Value
+ */
+public class ConcurrentSkipList<K extends Comparable<? super K>, V>
+        implements Iterable<KVPair<K, V>> {
+
+    /**
+     * Number of levels of the head, the most a node can have
+     */
+    static final int MAX_LEVEL = 32;
+
+    private final SkipNode head = new SkipNode(null, 0, MAX_LEVEL - 1);
+    private final AtomicLong sequence = new AtomicLong();
+    private final AtomicInteger size = new AtomicInteger();
+
+    // highest level of any node inserted so far
+    private final AtomicInteger level = new AtomicInteger();
+
+    /**
+     * Returns a random level number, each level half as likely as the one
+     * below it.
+     *
+     * @return a random level number
+     */
+    int randomLevel() {
+        return Integer.numberOfTrailingZeros(
+                ThreadLocalRandom.current().nextInt() | 1 << MAX_LEVEL - 1);
+    }
+
+    /**
+     * Searches for the pairs with a key.
+     *
+     * @param key key to be searched for
+     * @return pairs with the key, the newest first
+     */
+    public ArrayList<KVPair<K, V>> search(K key) {
+        ArrayList<KVPair<K, V>> result = new ArrayList<>();
+        SkipNode x = first(key);
+        while (x != null && x.pair.getKey().compareTo(key) == 0) {
+            if (!x.isDeleted()) {
+                result.add(x.pair);
+            }
+            x = x.next(0);
+        }
+        return result;
+    }
+
+    /**
+     * @return the number of pairs in the list
+     */
+    public int size() {
+        return size.get();
+    }
+
+    /**
+     * Inserts a pair before all the pairs with the same key, as
+     * SkipList.insert does.
+     *
+     * @param it the KVPair to be inserted
+     */
+    public void insert(KVPair<K, V> it) {
+        int newLevel = randomLevel();
+        level.accumulateAndGet(newLevel, Math::max);
+        SkipNode node = new SkipNode(it, sequence.incrementAndGet(),
+                newLevel);
+        SkipNode[] preds = newNodes();
+        SkipNode[] succs = newNodes();
+
+        // the node is in the list once it is linked at the bottom level
+        do {
+            find(node, preds, succs);
+            for (int i = 0; i <= newLevel; i++) {
+                node.forward[i].set(succs[i], false);
+            }
+        } while (!preds[0].forward[0].compareAndSet(succs[0], node,
+                false, false));
+        size.incrementAndGet();
+
+        // link the upper levels, unless the node is removed meanwhile
+        for (int i = 1; i <= newLevel; i++) {
+            while (true) {
+                SkipNode succ = node.forward[i].getReference();
+                if (node.forward[i].isMarked()) {
+                    find(node, preds, succs);
+                    return;
+                }
+                if (succ != succs[i] && !node.forward[i].compareAndSet(succ,
+                        succs[i], false, false)) {
+                    continue;
+                }
+                if (preds[i].forward[i].compareAndSet(succs[i], node, false,
+                        false)) {
+                    break;
+                }
+                find(node, preds, succs);
+            }
+        }
+    }
+
+    /**
+     * Removes the first pair with a key, the newest one.
+     *
+     * @param key the key of the pair to be removed
+     * @return the removed pair, or null if no pair has the key
+     */
+    public KVPair<K, V> remove(K key) {
+        while (true) {
+            SkipNode x = first(key);
+            while (x != null && x.isDeleted()) {
+                x = x.next(0);
+            }
+            if (x == null || x.pair.getKey().compareTo(key) != 0) {
+                return null;
+            }
+            if (delete(x)) {
+                return x.pair;
+            }
+        }
+    }
+
+    /**
+     * Removes the first pair with a value.
+     *
+     * @param val the value of the pair to be removed
+     * @return the removed pair, or null if no pair has the value
+     */
+    public KVPair<K, V> removeByValue(V val) {
+        SkipNode x = head.next(0);
+        while (x != null) {
+            if (!x.isDeleted() && x.pair.getValue().equals(val)
+                    && delete(x)) {
+                return x.pair;
+            }
+            x = x.next(0);
+        }
+        return null;
+    }
+
+    /**
+     * Prints out the list in the same format as SkipList.
+     *
+     * @param out sink to print the nodes to
+     */
+    public void dump(OutputSink out) {
+        out.println(Constants.DUMP_HEADER);
+        out.println(Constants.DUMP_DETAIL, level.get() + 1, null);
+        for (SkipNode x = head.next(0); x != null; x = x.next(0)) {
+            if (!x.isDeleted()) {
+                out.println(Constants.DUMP_DETAIL, x.level + 1, x.pair);
+            }
+        }
+        out.println(Constants.DUMP_SIZE, size());
+    }
+
+    /**
+     * Find the first node at the bottom level whose key is not below a key,
+     * reading the links only.
+     *
+     * @param key key to look for
+     * @return first node that may hold the key, possibly a removed one
+     */
+    private SkipNode first(K key) {
+        SkipNode x = head;
+        for (int i = level.get(); i >= 0; --i) {
+            SkipNode next = x.next(i);
+            while (next != null && next.pair.getKey().compareTo(key) < 0) {
+                x = next;
+                next = x.next(i);
+            }
+        }
+        return x.next(0);
+    }
+
+    /**
+     * Find the neighbours of a node on every level, unlinking the marked
+     * nodes passed on the way.
+     *
+     * @param node  node whose position to find
+     * @param preds receives the last node before the position per level
+     * @param succs receives the first node from the position per level
+     */
+    private void find(SkipNode node, SkipNode[] preds, SkipNode[] succs) {
+        boolean[] marked = {false};
+        retry:
+        while (true) {
+            SkipNode pred = head;
+            for (int i = level.get(); i >= 0; --i) {
+                SkipNode curr = pred.forward[i].getReference();
+                while (curr != null) {
+                    SkipNode succ = curr.forward[i].get(marked);
+                    if (marked[0]) {
+                        if (!pred.forward[i].compareAndSet(curr, succ,
+                                false, false)) {
+                            continue retry;
+                        }
+                        curr = succ;
+                    }
+                    else if (curr.compareTo(node) < 0) {
+                        pred = curr;
+                        curr = succ;
+                    }
+                    else {
+                        break;
+                    }
+                }
+                preds[i] = pred;
+                succs[i] = curr;
+            }
+            return;
+        }
+    }
+
+    /**
+     * Mark a node from its top level down and unlink it.
+     *
+     * @param node node to remove
+     * @return true if this call removed the node, false if another one did
+     */
+    private boolean delete(SkipNode node) {
+        for (int i = node.level; i > 0; --i) {
+            while (!node.forward[i].isMarked()) {
+                SkipNode succ = node.forward[i].getReference();
+                node.forward[i].attemptMark(succ, true);
+            }
+        }
+        while (true) {
+            SkipNode succ = node.forward[0].getReference();
+            if (node.forward[0].compareAndSet(succ, succ, false, true)) {
+                size.decrementAndGet();
+                find(node, newNodes(), newNodes());
+                return true;
+            }
+            if (node.forward[0].isMarked()) {
+                return false;
+            }
+        }
+    }
+
+    /**
+     * @return an array with a node per level, for find to fill
+     */
+    @SuppressWarnings("unchecked")
+    private SkipNode[] newNodes() {
+        // the node class is generic through the list, so its arrays can
+        // only be created with wildcard type arguments
+        return (SkipNode[]) new ConcurrentSkipList<?, ?>.SkipNode[MAX_LEVEL];
+    }
+
+    /**
+     * Node of the list with a markable link per level.
+     */
+    private class SkipNode implements Comparable<SkipNode> {
+
+        // the KVPair to hold
+        private final KVPair<K, V> pair;
+        // position among the pairs with the same key
+        private final long sequence;
+        // links to the next node of every level, marked once removed
+        private final AtomicMarkableReference<SkipNode>[] forward;
+        // the number of levels
+        private final int level;
+
+        /**
+         * Create a node with unlinked levels.
+         *
+         * @param pair     the KVPair to be inserted
+         * @param sequence position among the pairs with the same key
+         * @param level    the highest level of the node
+         */
+        @SuppressWarnings("unchecked")
+        SkipNode(KVPair<K, V> pair, long sequence, int level) {
+            this.pair = pair;
+            this.sequence = sequence;
+            this.level = level;
+            forward = (AtomicMarkableReference<SkipNode>[])
+                    new AtomicMarkableReference<?>[level + 1];
+            for (int i = 0; i <= level; i++) {
+                forward[i] = new AtomicMarkableReference<>(null, false);
+            }
+        }
+
+        /**
+         * @param i level of the link
+         * @return next node of the level
+         */
+        SkipNode next(int i) {
+            return forward[i].getReference();
+        }
+
+        /**
+         * @return true once the node is removed from the list
+         */
+        boolean isDeleted() {
+            return forward[0].isMarked();
+        }
+
+        @Override
+        public int compareTo(SkipNode other) {
+            int order = pair.getKey().compareTo(other.pair.getKey());
+            return order != 0 ? order
+                    : Long.compare(other.sequence, sequence);
+        }
+    }
+
+    private class ConcurrentSkipListIterator
+            implements Iterator<KVPair<K, V>> {
+
+        private SkipNode current;
+
+        ConcurrentSkipListIterator() {
+            current = skip(head.next(0));
+        }
+
+        @Override
+        public boolean hasNext() {
+            return current != null;
+        }
+
+        @Override
+        public KVPair<K, V> next() {
+            if (current == null) {
+                throw new NoSuchElementException();
+            }
+            KVPair<K, V> pair = current.pair;
+            current = skip(current.next(0));
+            return pair;
+        }
+
+        private SkipNode skip(SkipNode x) {
+            while (x != null && x.isDeleted()) {
+                x = x.next(0);
+            }
+            return x;
+        }
+    }
+
+    /**
+     * Iterate over the pairs in order. The iterator never fails while the
+     * list changes, and shows the pairs present when it passes them.
+     *
+     * @return iterator over the pairs
+     */
+    @Override
+    public Iterator<KVPair<K, V>> iterator() {
+        return new ConcurrentSkipListIterator();
+    }
+}
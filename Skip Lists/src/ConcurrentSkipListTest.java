@@ -0,0 +1,268 @@
+import student.TestCase;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @author Abhinav Sethi
+ * @version 2021-09-26
+ *
+ * Test class for the lock-free skip list. The single threaded tests check
+ * that it behaves like SkipList, the stress tests run inserts, removals
+ * and searches from several threads at once and check that no pair is
+ * lost or removed twice.
+ */
+
+public class ConcurrentSkipListTest extends TestCase {
+
+    /**
+     * Number of threads used by the stress tests
+     */
+    private static final int THREADS = 8;
+
+    /**
+     * Number of pairs inserted by every thread of the stress tests
+     */
+    private static final int PAIRS = 5000;
+
+    /**
+     * list object re-instantiated before every test case.
+     */
+    private ConcurrentSkipList<String, Integer> list;
+
+
+    /**
+     * Set up method for instantiating the list before every test case.
+     */
+    public void setUp() {
+        list = new ConcurrentSkipList<>();
+    }
+
+    /**
+     * Test insert, search, remove and removeByValue on one thread against
+     * SkipList, including pairs with equal keys.
+     */
+    public void testSingleThread() {
+        SkipList<String, Integer> model = new SkipList<>();
+        String[] keys = {"b", "a", "b", "c", "b"};
+        for (int i = 0; i < keys.length; i++) {
+            list.insert(new KVPair<>(keys[i], i + 1));
+            model.insert(new KVPair<>(keys[i], i + 1));
+        }
+        assertEquals(5, list.size());
+        assertEquals("[b, 5, b, 3, b, 1]", list.search("b").toString());
+        assertEquals(model.search("b").toString(),
+                list.search("b").toString());
+        assertEquals(0, list.search("d").size());
+        assertEquals(pairs(model), pairs(list));
+
+        assertEquals(model.removeByValue(3).toString(),
+                list.removeByValue(3).toString());
+        assertEquals("b, 5", list.remove("b").toString());
+        assertEquals("b, 5", model.remove("b").toString());
+        assertNull(list.remove("d"));
+        assertNull(list.removeByValue(3));
+        assertEquals(model.search("b").toString(),
+                list.search("b").toString());
+        assertEquals(pairs(model), pairs(list));
+        assertEquals(3, list.size());
+
+        ListSink sink = new ListSink();
+        list.dump(sink);
+        List<ListSink.Entry> nodes = sink.getEntries(Constants.DUMP_DETAIL);
+        assertEquals(4, nodes.size());
+        assertEquals("a, 2", nodes.get(1).getArguments()[1].toString());
+        assertEquals("SkipList size is: 3",
+                sink.getEntries(Constants.DUMP_SIZE).get(0).getText());
+    }
+
+    /**
+     * Test that equal keys come out newest first as with SkipList, so
+     * remove takes the pair inserted last.
+     */
+    public void testEqualKeys() {
+        SkipList<String, Integer> model = new SkipList<>();
+        for (int i = 1; i <= 3; i++) {
+            list.insert(new KVPair<>("a", i));
+            model.insert(new KVPair<>("a", i));
+        }
+        assertEquals("[a, 3, a, 2, a, 1]", list.search("a").toString());
+        assertEquals(model.search("a").toString(),
+                list.search("a").toString());
+        assertEquals(model.remove("a").toString(),
+                list.remove("a").toString());
+        assertEquals(pairs(model), pairs(list));
+    }
+
+    /**
+     * Test that the pairs inserted from many threads are all found in
+     * order.
+     *
+     * @throws InterruptedException if the test is interrupted
+     */
+    public void testConcurrentInsert() throws InterruptedException {
+        run(thread -> {
+            for (int i = 0; i < PAIRS; i++) {
+                list.insert(new KVPair<>(key(i), thread * PAIRS + i));
+            }
+        });
+        assertEquals(THREADS * PAIRS, list.size());
+
+        String previous = "";
+        int count = 0;
+        for (KVPair<String, Integer> pair : list) {
+            assertTrue(previous.compareTo(pair.getKey()) <= 0);
+            previous = pair.getKey();
+            count++;
+        }
+        assertEquals(THREADS * PAIRS, count);
+        assertEquals(THREADS, list.search(key(PAIRS / 2)).size());
+    }
+
+    /**
+     * Test that pairs with the same key removed from many threads are each
+     * removed exactly once, while other threads search them.
+     *
+     * @throws InterruptedException if the test is interrupted
+     */
+    public void testConcurrentRemove() throws InterruptedException {
+        for (int i = 0; i < THREADS * PAIRS; i++) {
+            list.insert(new KVPair<>(i % 2 == 0 ? "even" : "odd", i));
+        }
+        Map<KVPair<String, Integer>, Boolean> removed =
+                Collections.synchronizedMap(new IdentityHashMap<>());
+        AtomicInteger duplicates = new AtomicInteger();
+        run(thread -> {
+            if (thread % 4 == 0) {
+                while (!Thread.currentThread().isInterrupted()) {
+                    list.search("even");
+                }
+                return;
+            }
+            while (true) {
+                KVPair<String, Integer> pair = thread % 2 == 0
+                        ? list.remove("even") : list.remove("odd");
+                if (pair == null) {
+                    break;
+                }
+                if (removed.put(pair, Boolean.TRUE) != null) {
+                    duplicates.incrementAndGet();
+                }
+            }
+        }, 4);
+        assertEquals(0, duplicates.get());
+        assertEquals(THREADS * PAIRS, removed.size());
+        assertEquals(0, list.size());
+        assertFalse(list.iterator().hasNext());
+    }
+
+    /**
+     * Test inserts, removals by key and by value and searches running
+     * together, each thread on its own keys.
+     *
+     * @throws InterruptedException if the test is interrupted
+     */
+    public void testConcurrentMixed() throws InterruptedException {
+        AtomicInteger failures = new AtomicInteger();
+        run(thread -> {
+            String prefix = "t" + thread + "-";
+            for (int i = 0; i < PAIRS; i++) {
+                list.insert(new KVPair<>(prefix + key(i), thread * PAIRS + i));
+            }
+            for (int i = 0; i < PAIRS; i++) {
+                if (list.search(prefix + key(i)).size() != 1) {
+                    failures.incrementAndGet();
+                }
+                KVPair<String, Integer> pair = i % 2 == 0
+                        ? list.remove(prefix + key(i))
+                        : list.removeByValue(thread * PAIRS + i);
+                if (pair == null || pair.getValue() != thread * PAIRS + i) {
+                    failures.incrementAndGet();
+                }
+            }
+        });
+        assertEquals(0, failures.get());
+        assertEquals(0, list.size());
+        assertFalse(list.iterator().hasNext());
+    }
+
+    /**
+     * Work done by one thread of a stress test
+     */
+    private interface Task {
+        /**
+         * @param thread index of the thread running the task
+         */
+        void run(int thread);
+    }
+
+    /**
+     * Run a task on every thread and wait for them.
+     *
+     * @param task task to run
+     * @throws InterruptedException if the test is interrupted
+     */
+    private void run(Task task) throws InterruptedException {
+        run(task, -1);
+    }
+
+    /**
+     * Run a task on every thread and wait for them. Threads whose index is
+     * a multiple of the reader step are interrupted once the others end.
+     *
+     * @param task    task to run
+     * @param readers step between the reader threads, or -1 for none
+     * @throws InterruptedException if the test is interrupted
+     */
+    private void run(Task task, int readers) throws InterruptedException {
+        List<Thread> writers = new ArrayList<>();
+        List<Thread> searchers = new ArrayList<>();
+        List<Throwable> errors = Collections.synchronizedList(
+                new ArrayList<>());
+        for (int t = 0; t < THREADS; t++) {
+            int thread = t;
+            Thread worker = new Thread(() -> {
+                try {
+                    task.run(thread);
+                }
+                catch (Throwable e) {
+                    errors.add(e);
+                }
+            });
+            (readers > 0 && t % readers == 0 ? searchers : writers)
+                    .add(worker);
+            worker.setDaemon(true);
+            worker.start();
+        }
+        for (Thread worker : writers) {
+            worker.join();
+        }
+        for (Thread worker : searchers) {
+            worker.interrupt();
+            worker.join();
+        }
+        assertEquals("[]", errors.toString());
+    }
+
+    private static String key(int i) {
+        return String.format("k%05d", i);
+    }
+
+    /**
+     * List the pairs of a list in iteration order.
+     *
+     * @param pairs list to iterate
+     * @return text of every pair in order
+     */
+    private static String pairs(Iterable<KVPair<String, Integer>> pairs) {
+        List<String> text = new ArrayList<>();
+        for (KVPair<String, Integer> pair : pairs) {
+            text.add(pair.toString());
+        }
+        return text.toString();
+    }
+}
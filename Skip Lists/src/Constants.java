@@ -1,9 +1,12 @@
+import java.util.regex.Pattern;
+
 /**
  * @author Abhinav Sethi
  * @version 2021-09-26
  *
  * Class that defines all constant strings used in the program.
- * for the application.
+ * for the application. Patterns with placeholders are compiled once
+ * into Messages.
  */
 public class Constants {
 
@@ -12,30 +15,39 @@ public class Constants {
      */
     static final String VALID_REGEX = "[a-zA-Z0-9_]+";
 
+    /**
+     * Compiled pattern of the accepted names
+     */
+    static final Pattern VALID_NAME = Pattern.compile(VALID_REGEX);
+
     /**
      * Rejection message for when given rectangle is not valid
      */
-    static final String REJECTED = "Rectangle rejected: ({0})";
+    static final Message REJECTED = new Message("Rectangle rejected: ({0})");
 
     /**
      * Insert command accepted message
      */
-    static final String INSERT_ACCEPTED = "Rectangle inserted: ({0})";
+    static final Message INSERT_ACCEPTED =
+            new Message("Rectangle inserted: ({0})");
 
     /**
      * Remove command output when rectangle not found
      */
-    static final String REMOVE_NOT_FOUND = "Rectangle not removed: ({0})";
+    static final Message REMOVE_NOT_FOUND =
+            new Message("Rectangle not removed: ({0})");
 
     /**
      * Remove command output when rectangle removed
      */
-    static final String REMOVE_ACCEPTED = "Rectangle removed: ({0})";
+    static final Message REMOVE_ACCEPTED =
+            new Message("Rectangle removed: ({0})");
 
     /**
      * Regionsearch command output
      */
-    static final String REGIONSEARCH = "Rectangles intersecting region ({0}):";
+    static final Message REGIONSEARCH =
+            new Message("Rectangles intersecting region ({0}):");
 
     /**
      * Intersections command output
@@ -45,7 +57,8 @@ public class Constants {
     /**
      * Search command output when rectangle not found
      */
-    static final String SEARCH_NOT_FOUND = "Rectangle not found: {0}";
+    static final Message SEARCH_NOT_FOUND =
+            new Message("Rectangle not found: {0}");
 
     /**
      * Remove command output when rectangle found
@@ -60,11 +73,27 @@ public class Constants {
     /**
      * Dump command output with node details
      */
-    static final String DUMP_DETAIL = "Node has depth {0}, Value ({1})";
+    static final Message DUMP_DETAIL =
+            new Message("Node has depth {0}, Value ({1})");
 
     /**
      * Dump command output for skip list size
      */
-    static final String DUMP_SIZE = "SkipList size is: {0}";
+    static final Message DUMP_SIZE = new Message("SkipList size is: {0}");
+
+    /**
+     * Regionsearch and search command output for a rectangle found
+     */
+    static final Message RECTANGLE_FOUND = new Message("({0})");
+
+    /**
+     * Intersections command output for a pair of rectangles
+     */
+    static final Message INTERSECTION_FOUND = new Message("({0} | {1})");
+
+    /**
+     * Output when the command file cannot be read
+     */
+    static final String INVALID_FILE = "Invalid file";
 
 }
@@ -0,0 +1,38 @@
+/**
+ * @author Abhinav Sethi
+ * @version 2021-09-26
+ * <p>
+ * Sink that counts the lines without formatting or printing them, used by
+ * benchmarks to leave out the cost of the output.
+ */
+public class CountingSink implements OutputSink {
+
+    private long lines;
+
+    @Override
+    public void print(String text) {
+        // only whole lines are counted
+    }
+
+    @Override
+    public void println(String line) {
+        lines++;
+    }
+
+    @Override
+    public void println(Message message, Object... arguments) {
+        lines++;
+    }
+
+    @Override
+    public void flush() {
+        // nothing is buffered
+    }
+
+    /**
+     * @return number of lines printed so far
+     */
+    public long getLines() {
+        return lines;
+    }
+}
@@ -1,7 +1,7 @@
-import java.util.Iterator;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
-
-import static java.text.MessageFormat.format;
+import java.util.TreeSet;
 
 /**
  * This class is responsible for interfacing between the command processor and
@@ -19,16 +19,76 @@ public class Database {
 
     // this is the SkipList object that we are using
     // a string for the name of the rectangle and then
-    // a rectangle object, these are stored in a KVPair,
+    // the id of the rectangle in the index, these are stored in a KVPair,
     // see the KVPair class for more information
-    private SkipList<String, Rectangle> list;
+    private SkipList<String, Integer> list;
+
+    /**
+     * A batch of inserts larger than the SkipList divided by this ratio is
+     * merged into it in one sweep instead of inserted pair by pair
+     */
+    static final int MERGE_RATIO = 8;
+
+    // the rectangles of the pairs, the only copy of them, which the
+    // commands searching by geometry use instead of scanning the list
+    private final RectangleIndex index;
+
+    // the entries of the pairs by the id of their rectangle in the index
+    private final List<Entry> byId = new ArrayList<>();
+
+    // the entries of the pairs in SkipList order
+    private final TreeSet<Entry> entries = new TreeSet<>();
+
+    // sequence number given to the next pair inserted
+    private long sequence;
+
+    // index nodes visited by the last command searching by geometry
+    private int nodesVisited;
+
+    // sink receiving the output of the commands
+    private final OutputSink out;
 
     /**
      * The constructor for this class initializes a SkipList object with String
      * and Rectangle a its parameters.
      */
     public Database() {
-        list = new SkipList<String, Rectangle>();
+        this(new ConsoleSink());
+    }
+
+
+    /**
+     * Initializes the SkipList and uses the given sink for the output of
+     * the commands.
+     *
+     * @param out sink to print the output of the commands to
+     */
+    public Database(OutputSink out) {
+        this(new RTreeIndex(), out);
+    }
+
+
+    /**
+     * Initializes the SkipList and uses the given index for the commands
+     * searching by geometry.
+     *
+     * @param index empty spatial index to back the database with
+     */
+    public Database(RectangleIndex index) {
+        this(index, new ConsoleSink());
+    }
+
+
+    /**
+     * Initializes the SkipList and uses the given index and sink.
+     *
+     * @param index empty spatial index to back the database with
+     * @param out   sink to print the output of the commands to
+     */
+    public Database(RectangleIndex index, OutputSink out) {
+        list = new SkipList<String, Integer>();
+        this.index = index;
+        this.out = out;
     }
 
 
@@ -44,17 +104,101 @@ public class Database {
     public void insert(KVPair<String, Rectangle> pair) {
         // check if the given KVPair is valid
         if (!isKVPairValid(pair)) {
-            System.out.println(format(Constants.REJECTED, pair));
+            out.println(Constants.REJECTED, pair);
             return;
         }
-        list.insert(pair);
-        System.out.println(format(Constants.INSERT_ACCEPTED, pair));
+        Entry entry = new Entry(pair.getKey(), sequence++);
+        nodesVisited = add(entry, pair.getValue());
+        list.insert(new KVPair<>(entry.name, entry.id));
+        out.println(Constants.INSERT_ACCEPTED, pair);
+    }
+
+
+    /**
+     * Inserts a batch of KVPairs. Every pair is checked and reported the
+     * same way as by insert, and the accepted pairs end up in the same
+     * SkipList as if they were inserted one by one. When the database is
+     * empty the index is built from the whole batch at once, for the R-tree
+     * packing it instead of splitting nodes pair by pair, and the
+     * intersecting pairs are then
+     * found with one search per rectangle. A batch that is large next to
+     * the SkipList is merged into it in one sweep.
+     *
+     * @param pairs the KVPairs to be inserted in order
+     */
+    public void insertAll(Collection<KVPair<String, Rectangle>> pairs) {
+        boolean empty = list.size() == 0;
+        List<KVPair<String, Rectangle>> accepted =
+                new ArrayList<>(pairs.size());
+        List<Message> messages = new ArrayList<>(pairs.size());
+        for (KVPair<String, Rectangle> pair : pairs) {
+            if (isKVPairValid(pair)) {
+                accepted.add(pair);
+                messages.add(Constants.INSERT_ACCEPTED);
+            }
+            else {
+                messages.add(Constants.REJECTED);
+            }
+        }
+
+        List<KVPair<String, Integer>> ids = new ArrayList<>(accepted.size());
+        if (empty) {
+            Rectangle[] rectangles = new Rectangle[accepted.size()];
+            for (int i = 0; i < rectangles.length; i++) {
+                KVPair<String, Rectangle> pair = accepted.get(i);
+                rectangles[i] = pair.getValue();
+                // the index gives the batch the ids 0 to length - 1
+                Entry entry = new Entry(pair.getKey(), sequence++);
+                entry.id = i;
+                place(entry);
+            }
+            index.bulkLoad(rectangles);
+            // every entry finds all of its partners, so each one only links
+            // itself
+            for (int i = 0; i < rectangles.length; i++) {
+                Entry entry = byId.get(i);
+                index.regionSearch(rectangles[i], id -> {
+                    if (id != entry.id) {
+                        entry.link(byId.get(id));
+                    }
+                });
+                entries.add(entry);
+                ids.add(new KVPair<>(entry.name, entry.id));
+            }
+        }
+        else {
+            for (KVPair<String, Rectangle> pair : accepted) {
+                Entry entry = new Entry(pair.getKey(), sequence++);
+                add(entry, pair.getValue());
+                ids.add(new KVPair<>(entry.name, entry.id));
+            }
+        }
+
+        if (ids.size() > list.size() / MERGE_RATIO) {
+            // later pairs with the same name go first, as with insert
+            List<KVPair<String, Integer>> sorted =
+                    new ArrayList<>(ids.size());
+            for (int i = ids.size() - 1; i >= 0; i--) {
+                sorted.add(ids.get(i));
+            }
+            sorted.sort(null);
+            list.insertAll(sorted);
+        }
+        else {
+            for (KVPair<String, Integer> pair : ids) {
+                list.insert(pair);
+            }
+        }
+        int i = 0;
+        for (KVPair<String, Rectangle> pair : pairs) {
+            out.println(messages.get(i++), pair);
+        }
     }
 
     private static boolean isKVPairValid(KVPair<String, Rectangle> pair) {
         String name = pair.getKey();
         // validate key: only alphanumeric and '_' characters allowed
-        if (!name.matches(Constants.VALID_REGEX)) {
+        if (!Constants.VALID_NAME.matcher(name).matches()) {
             return false;
         }
         return isRectangleValid(pair.getValue());
@@ -81,12 +225,15 @@ public class Database {
      * @param name the name of the rectangle to be removed
      */
     public void remove(String name) {
-        KVPair<String, Rectangle> removedPair = list.remove(name);
+        KVPair<String, Integer> removedPair = list.remove(name);
         if (removedPair == null) {
-            System.out.println(format(Constants.REMOVE_NOT_FOUND, name));
+            out.println(Constants.REMOVE_NOT_FOUND, name);
             return;
         }
-        System.out.println(format(Constants.REMOVE_ACCEPTED, removedPair));
+        Entry entry = byId.get(removedPair.getValue());
+        KVPair<String, Rectangle> removed = describe(entry);
+        drop(entry);
+        out.println(Constants.REMOVE_ACCEPTED, removed);
     }
 
 
@@ -103,17 +250,28 @@ public class Database {
         Rectangle tempRectangle = new Rectangle(x, y, w, h);
         // validate if rectangle is valid
         if (!isRectangleValid(tempRectangle)) {
-            System.out.println(format(Constants.REJECTED, tempRectangle));
+            out.println(Constants.REJECTED, tempRectangle);
             return;
         }
-        KVPair<String, Rectangle> removedPair =
-                list.removeByValue(new Rectangle(x, y, w, h));
-        if (removedPair == null) {
-            System.out.println(format(Constants.REMOVE_NOT_FOUND,
-                    tempRectangle));
+        // the first entry with the rectangle is the first pair in list
+        // order with it, so the list is searched by its name instead of
+        // scanned for the value
+        Entry[] first = {null};
+        nodesVisited = index.regionSearch(tempRectangle, id -> {
+            Entry entry = byId.get(id);
+            if (index.matches(id, tempRectangle)
+                    && (first[0] == null || entry.compareTo(first[0]) < 0)) {
+                first[0] = entry;
+            }
+        });
+        if (first[0] == null) {
+            out.println(Constants.REMOVE_NOT_FOUND, tempRectangle);
             return;
         }
-        System.out.println(format(Constants.REMOVE_ACCEPTED, removedPair));
+        list.remove(first[0].name, first[0].id);
+        KVPair<String, Rectangle> removed = describe(first[0]);
+        drop(first[0]);
+        out.println(Constants.REMOVE_ACCEPTED, removed);
     }
 
 
@@ -121,8 +279,8 @@ public class Database {
      * Displays all the rectangles inside the specified region. The rectangle
      * must have some area inside the area that is created by the region,
      * meaning, Rectangles that only touch a side or corner of the region
-     * specified will not be said to be in the region.
-     * You will need a SkipList Iterator for this
+     * specified will not be said to be in the region. The rectangles are
+     * found in the index and printed in SkipList order.
      *
      * @param x x-Coordinate of the region
      * @param y y-Coordinate of the region
@@ -130,41 +288,121 @@ public class Database {
      * @param h height of the region
      */
     public void regionsearch(int x, int y, int w, int h) {
-        Iterator<KVPair<String, Rectangle>> it = list.iterator();
         Rectangle tempRectangle = new Rectangle(x, y, w, h);
         // validate if the width and height of region is positive
         if (w <= 0 || h <= 0) {
-            System.out.println(format(Constants.REJECTED, tempRectangle));
+            out.println(Constants.REJECTED, tempRectangle);
             return;
         }
-        System.out.println(format(Constants.REGIONSEARCH, tempRectangle));
-        while (it.hasNext()) {
-            KVPair<String, Rectangle> pair = it.next();
-            if (pair.getValue().intersects(tempRectangle)) {
-                System.out.println(format("({0})", pair));
-            }
+        out.println(Constants.REGIONSEARCH, tempRectangle);
+        List<Entry> found = new ArrayList<>();
+        nodesVisited = index.regionSearch(tempRectangle,
+            id -> found.add(byId.get(id)));
+        found.sort(null);
+        for (Entry entry : found) {
+            out.println(Constants.RECTANGLE_FOUND, describe(entry));
         }
     }
 
 
     /**
-     * Prints out all the rectangles that Intersect each other by calling the
-     * SkipList method for intersections. You will need to use two SkipList
-     * Iterators for this
+     * Prints out all the rectangles that Intersect each other. Every pair is
+     * printed in both orders, ordered by the position of the first and then
+     * of the second rectangle in the SkipList. The intersecting pairs are
+     * kept up to date by insert and remove, so this only streams them.
      */
     public void intersections() {
-        System.out.println(Constants.INTERSECTIONS);
-        for (KVPair<String, Rectangle> pair1 : list) {
-            for (KVPair<String, Rectangle> pair2 : list) {
-                if (pair1 != pair2
-                        && pair1.getValue().intersects(pair2.getValue())) {
-                    System.out.println(format("({0} | {1})", pair1, pair2));
+        out.println(Constants.INTERSECTIONS);
+        nodesVisited = 0;
+        for (Entry entry : entries) {
+            if (entry.partners != null && !entry.partners.isEmpty()) {
+                KVPair<String, Rectangle> pair = describe(entry);
+                for (Entry partner : entry.partners) {
+                    out.println(Constants.INTERSECTION_FOUND, pair,
+                            describe(partner));
                 }
             }
         }
     }
 
 
+    /**
+     * Returns the number of index nodes visited by the last insert,
+     * regionsearch or remove by coordinates: R-tree nodes, grid cells or
+     * scanned slots depending on the index. The intersections command
+     * visits none.
+     *
+     * @return number of nodes visited
+     */
+    public int getNodesVisited() {
+        return nodesVisited;
+    }
+
+
+    /**
+     * Adds the rectangle of a pair to the index and its entry to the
+     * entries, linking it with the rectangles it intersects.
+     *
+     * @param entry entry of the pair, which gets the id of the rectangle
+     * @param r     rectangle of the pair
+     * @return number of index nodes visited
+     */
+    private int add(Entry entry, Rectangle r) {
+        int visited = index.regionSearch(r, id -> {
+            Entry other = byId.get(id);
+            entry.link(other);
+            other.link(entry);
+        });
+        entry.id = index.insert(r);
+        place(entry);
+        entries.add(entry);
+        return visited;
+    }
+
+
+    /**
+     * Records an entry under the id of its rectangle.
+     *
+     * @param entry entry with its id set
+     */
+    private void place(Entry entry) {
+        while (byId.size() <= entry.id) {
+            byId.add(null);
+        }
+        byId.set(entry.id, entry);
+    }
+
+
+    /**
+     * Gives the pair of an entry with its rectangle read from the index,
+     * for printing.
+     *
+     * @param entry entry of a pair in the index
+     * @return the name and rectangle of the pair
+     */
+    private KVPair<String, Rectangle> describe(Entry entry) {
+        return new KVPair<>(entry.name, index.get(entry.id));
+    }
+
+
+    /**
+     * Removes an entry from the index, the entries and the partners of the
+     * rectangles it intersects.
+     *
+     * @param entry entry of the pair removed from the SkipList
+     */
+    private void drop(Entry entry) {
+        entries.remove(entry);
+        index.remove(entry.id);
+        byId.set(entry.id, null);
+        if (entry.partners != null) {
+            for (Entry partner : entry.partners) {
+                partner.partners.remove(entry);
+            }
+        }
+    }
+
+
     /**
      * Prints out all the rectangles with the specified name in the SkipList.
      * This method will delegate the searching to the SkipList class completely.
@@ -172,14 +410,15 @@ public class Database {
      * @param name name of the Rectangle to be searched for
      */
     public void search(String name) {
-        List<KVPair<String, Rectangle>> result = list.search(name);
+        List<KVPair<String, Integer>> result = list.search(name);
         if (result.isEmpty()) {
-            System.out.println(format(Constants.SEARCH_NOT_FOUND, name));
+            out.println(Constants.SEARCH_NOT_FOUND, name);
             return;
         }
-        System.out.println(Constants.SEARCH_FOUND);
-        for (KVPair<String, Rectangle> pair : result) {
-            System.out.println(format("({0})", pair));
+        out.println(Constants.SEARCH_FOUND);
+        for (KVPair<String, Integer> pair : result) {
+            out.println(Constants.RECTANGLE_FOUND,
+                    describe(byId.get(pair.getValue())));
         }
     }
 
@@ -190,7 +429,40 @@ public class Database {
      * will all be delegated to the SkipList.
      */
     public void dump() {
-        list.dump();
+        list.dump(out, pair -> describe(byId.get(pair.getValue())));
+    }
+
+
+    /**
+     * A pair of the SkipList with the rectangles intersecting it. Entries
+     * sort in SkipList order: by name, and the newest first among pairs
+     * with the same name, as insert puts a pair before the equal ones.
+     */
+    private static class Entry implements Comparable<Entry> {
+        private final String name;
+        private final long seq;
+        // id of the rectangle in the index
+        private int id;
+        // entries of the intersecting rectangles, created on the first one
+        private TreeSet<Entry> partners;
+
+        Entry(String name, long seq) {
+            this.name = name;
+            this.seq = seq;
+        }
+
+        void link(Entry other) {
+            if (partners == null) {
+                partners = new TreeSet<>();
+            }
+            partners.add(other);
+        }
+
+        @Override
+        public int compareTo(Entry other) {
+            int result = name.compareTo(other.name);
+            return result != 0 ? result : Long.compare(other.seq, seq);
+        }
     }
 
 }
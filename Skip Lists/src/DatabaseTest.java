@@ -1,5 +1,13 @@
 import student.TestCase;
 
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
 /**
  * @author Abhinav Sethi
  * @version 2021-09-26
@@ -130,6 +138,51 @@ public class DatabaseTest extends TestCase {
     }
 
 
+    /**
+     * Test that removing by coordinates through the geometry index removes
+     * the same pair as a scan of the list, with names and rectangles
+     * shared by many pairs and removals by name in between.
+     */
+    public void testRemoveByValueIndex() {
+        ListSink sink = new ListSink();
+        database = new Database(sink);
+        SkipList<String, Rectangle> model = new SkipList<>();
+        Random random = new Random(5);
+        for (int step = 0; step < 3000; step++) {
+            String name = "r" + random.nextInt(20);
+            Rectangle r = new Rectangle(random.nextInt(5),
+                    random.nextInt(5), 1 + random.nextInt(2), 1);
+            int action = random.nextInt(4);
+            KVPair<String, Rectangle> expected;
+            if (action < 2) {
+                KVPair<String, Rectangle> pair = new KVPair<>(name, r);
+                database.insert(pair);
+                model.insert(pair);
+                continue;
+            }
+            else if (action == 2) {
+                database.remove(name);
+                expected = model.remove(name);
+            }
+            else {
+                database.remove(r.x, r.y, r.width, r.height);
+                expected = model.removeByValue(r);
+            }
+            List<ListSink.Entry> entries = sink.getEntries();
+            ListSink.Entry last = entries.get(entries.size() - 1);
+            if (expected == null) {
+                assertEquals(Constants.REMOVE_NOT_FOUND, last.getMessage());
+            }
+            else {
+                assertEquals(Constants.REMOVE_ACCEPTED, last.getMessage());
+                // the pair printed is read back from the index
+                assertEquals(expected.toString(),
+                        last.getArguments()[0].toString());
+            }
+        }
+    }
+
+
     /**
      * Test to check regionsearch command output.
      * Should print all rectangles that lie in the given region.
@@ -189,6 +242,240 @@ public class DatabaseTest extends TestCase {
 
     }
 
+    /**
+     * Test that the pairs kept by the database are printed in the same
+     * order as comparing every rectangle with all the others, with equal
+     * rectangles and rectangles touching on an edge.
+     */
+    public void testIntersectionsRandom() {
+        ListSink sink = new ListSink();
+        database = new Database(sink);
+        SkipList<String, Rectangle> model = new SkipList<>();
+        Random random = new Random(3);
+        for (int i = 0; i < 300; i++) {
+            KVPair<String, Rectangle> pair = new KVPair<>(
+                    "r" + random.nextInt(50), new Rectangle(
+                    random.nextInt(60), random.nextInt(60),
+                    1 + random.nextInt(10), 1 + random.nextInt(10)));
+            database.insert(pair);
+            model.insert(pair);
+        }
+        database.intersections();
+        assertIntersections(model,
+                sink.getEntries(Constants.INTERSECTION_FOUND));
+    }
+
+    /**
+     * Test that the intersecting pairs stay right through inserts, batches
+     * and both kinds of remove, with names and rectangles repeated.
+     */
+    public void testIntersectionsUpdated() {
+        ListSink sink = new ListSink();
+        database = new Database(sink);
+        SkipList<String, Rectangle> model = new SkipList<>();
+        Random random = new Random(29);
+        List<KVPair<String, Rectangle>> batch = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            batch.add(new KVPair<>("r" + random.nextInt(40), new Rectangle(
+                    random.nextInt(60), random.nextInt(60),
+                    1 + random.nextInt(10), 1 + random.nextInt(10))));
+        }
+        database.insertAll(batch);
+        for (KVPair<String, Rectangle> pair : batch) {
+            model.insert(pair);
+        }
+        for (int step = 0; step < 1500; step++) {
+            int choice = random.nextInt(4);
+            if (choice < 2) {
+                KVPair<String, Rectangle> pair = new KVPair<>(
+                        "r" + random.nextInt(40), new Rectangle(
+                        random.nextInt(60), random.nextInt(60),
+                        1 + random.nextInt(10), 1 + random.nextInt(10)));
+                database.insert(pair);
+                model.insert(pair);
+            }
+            else if (choice == 2) {
+                String name = "r" + random.nextInt(40);
+                database.remove(name);
+                model.remove(name);
+            }
+            else if (model.size() > 0) {
+                Rectangle r = model.get(random.nextInt(model.size()))
+                        .getValue();
+                database.remove(r.x, r.y, r.width, r.height);
+                model.removeByValue(r);
+            }
+            if (step % 100 == 0) {
+                int before =
+                        sink.getEntries(Constants.INTERSECTION_FOUND).size();
+                database.intersections();
+                List<ListSink.Entry> found =
+                        sink.getEntries(Constants.INTERSECTION_FOUND);
+                assertIntersections(model,
+                        found.subList(before, found.size()));
+            }
+        }
+    }
+
+    /**
+     * Compare the intersections printed with the pairs found by comparing
+     * every rectangle of the model with all the others.
+     *
+     * @param model pairs expected in the database, in the same order
+     * @param found intersections printed by the database
+     */
+    private static void assertIntersections(
+            SkipList<String, Rectangle> model, List<ListSink.Entry> found) {
+        StringBuilder expected = new StringBuilder();
+        for (KVPair<String, Rectangle> pair1 : model) {
+            for (KVPair<String, Rectangle> pair2 : model) {
+                if (pair1 != pair2
+                        && pair1.getValue().intersects(pair2.getValue())) {
+                    expected.append(pair1).append(pair2);
+                }
+            }
+        }
+        StringBuilder actual = new StringBuilder();
+        for (ListSink.Entry entry : found) {
+            actual.append(entry.getArguments()[0])
+                    .append(entry.getArguments()[1]);
+        }
+        assertTrue(expected.length() > 0);
+        assertEquals(expected.toString(), actual.toString());
+    }
+
+    /**
+     * Test that every index prints the same output for the same commands,
+     * including grids with the smallest and largest cells, and that the
+     * grid only visits the cells a region overlaps.
+     */
+    public void testIndexes() {
+        RectangleIndex[] indexes = {new RTreeIndex(), new ScanIndex(),
+            new GridIndex(16), new GridIndex(1), new GridIndex(1024)};
+        String expected = null;
+        for (RectangleIndex index : indexes) {
+            ListSink sink = new ListSink();
+            database = new Database(index, sink);
+            Random random = new Random(37);
+            List<KVPair<String, Rectangle>> batch = new ArrayList<>();
+            for (int i = 0; i < 300; i++) {
+                batch.add(pair(random, 1000, 40));
+            }
+            database.insertAll(batch);
+            for (int step = 0; step < 600; step++) {
+                switch (random.nextInt(5)) {
+                    case 0:
+                        database.insert(pair(random, 1000, 40));
+                        break;
+                    case 1:
+                        database.remove("r" + random.nextInt(60));
+                        break;
+                    case 2:
+                        Rectangle r = batch.get(random.nextInt(300))
+                                .getValue();
+                        database.remove(r.x, r.y, r.width, r.height);
+                        break;
+                    default:
+                        database.regionsearch(random.nextInt(1100) - 50,
+                                random.nextInt(1100) - 50,
+                                1 + random.nextInt(200),
+                                1 + random.nextInt(200));
+                }
+            }
+            database.intersections();
+            database.regionsearch(-10, -10, 2000, 2000);
+            // a region whose far edges overflow an int finds the same
+            // rectangles as one reaching just past the world
+            List<ListSink.Entry> found =
+                    sink.getEntries(Constants.RECTANGLE_FOUND);
+            int start = found.size();
+            database.regionsearch(500, 500, Integer.MAX_VALUE,
+                    Integer.MAX_VALUE);
+            found = sink.getEntries(Constants.RECTANGLE_FOUND);
+            int middle = found.size();
+            database.regionsearch(500, 500, 1000, 1000);
+            found = sink.getEntries(Constants.RECTANGLE_FOUND);
+            assertTrue(middle > start);
+            assertEquals(found.subList(start, middle).toString(),
+                    found.subList(middle, found.size()).toString());
+            if (expected == null) {
+                expected = sink.getText();
+            }
+            assertEquals(expected, sink.getText());
+            assertTrue(database.getNodesVisited() > 0);
+            assertFalse(sink.getEntries(Constants.INTERSECTION_FOUND)
+                    .isEmpty());
+        }
+
+        database = new Database(new GridIndex(100), new ListSink());
+        database.regionsearch(150, 150, 100, 100);
+        assertEquals(4, database.getNodesVisited());
+        database.regionsearch(1000, 1000, 500, 500);
+        assertEquals(1, database.getNodesVisited());
+        database.regionsearch(1024, 0, 5, 5);
+        assertEquals(0, database.getNodesVisited());
+        Exception thrown = null;
+        try {
+            new GridIndex(0);
+        }
+        catch (IllegalArgumentException e) {
+            thrown = e;
+        }
+        assertNotNull(thrown);
+    }
+
+    private static KVPair<String, Rectangle> pair(Random random, int range,
+                                                  int side) {
+        return new KVPair<>("r" + random.nextInt(60), new Rectangle(
+                random.nextInt(range), random.nextInt(range),
+                1 + random.nextInt(side), 1 + random.nextInt(side)));
+    }
+
+    /**
+     * Test that inserting batches prints the same output and leaves the
+     * same rectangles as inserting the pairs one by one, for a first batch
+     * packed into the R-tree, a small one and one merged into the list.
+     */
+    public void testInsertAll() {
+        ListSink single = new ListSink();
+        ListSink batch = new ListSink();
+        Database one = new Database(single);
+        database = new Database(batch);
+        Random random = new Random(23);
+        for (int size : new int[] {500, 20, 300}) {
+            List<KVPair<String, Rectangle>> pairs = new ArrayList<>();
+            for (int i = 0; i < size; i++) {
+                pairs.add(new KVPair<>("r" + random.nextInt(100),
+                        new Rectangle(random.nextInt(110) - 5,
+                        random.nextInt(100), 1 + random.nextInt(30),
+                        1 + random.nextInt(30))));
+            }
+            for (KVPair<String, Rectangle> pair : pairs) {
+                one.insert(pair);
+            }
+            database.insertAll(pairs);
+            assertEquals(single.getText(), batch.getText());
+        }
+        for (int i = 0; i < 50; i++) {
+            int x = random.nextInt(100);
+            int y = random.nextInt(100);
+            for (Database data : new Database[] {one, database}) {
+                data.regionsearch(x, y, 10, 10);
+                data.remove(x, y, 1 + i % 30, 1 + i % 30);
+                data.remove("r" + i);
+            }
+        }
+        for (Database data : new Database[] {one, database}) {
+            data.intersections();
+            for (int i = 50; i < 100; i++) {
+                data.search("r" + i);
+            }
+        }
+        assertEquals(single.getText(), batch.getText());
+        database.regionsearch(0, 0, 50, 50);
+        assertTrue(database.getNodesVisited() > 0);
+    }
+
     /**
      * Test to check search command output.
      * Should print all rectangles matching the given key as input.
@@ -213,6 +500,89 @@ public class DatabaseTest extends TestCase {
 
     }
 
+    /**
+     * Test that the byte-level parser runs the same commands as the
+     * CommandProcessor regardless of case, blank lines and whitespace, and
+     * that an unfinished last line is left for the next chunk.
+     */
+    public void testCommandParser() {
+        String[] lines = {"insert r1 10 10 5 5", "insert r2 12 12 20 5",
+            "insert r3 200 150 50 20", "insert bad -5 20 5 5",
+            "intersections", "regionsearch 0 0 300 300", "search r2",
+            "remove 200 150 50 20", "remove r1", "remove r1"};
+        CommandProcessor processor = new CommandProcessor(database);
+        for (String line : lines) {
+            processor.processor(line);
+        }
+        String expected = systemOut().getHistory();
+        systemOut().clearHistory();
+
+        String text = "\n  " + String.join("\r\n\t", lines)
+                .replace("insert r2", "INSERT\tr2").replace("search", "Search")
+                + "\n\n";
+        CommandParser parser = new CommandParser(new Database());
+        ByteBuffer buffer = ByteBuffer.wrap(text.getBytes(UTF_8));
+        assertEquals(buffer.limit(), parser.parse(buffer, true));
+        assertEquals(expected, systemOut().getHistory());
+        systemOut().clearHistory();
+
+        parser = new CommandParser(new Database());
+        buffer = ByteBuffer.wrap("insert r1 10 10 5 5\ninsert r2 1".getBytes(
+                UTF_8));
+        assertEquals(20, parser.parse(buffer, false));
+        assertEquals("Rectangle inserted: (r1, 10, 10, 5, 5)\n",
+                systemOut().getHistory());
+    }
+
+    /**
+     * Test that every sink receives the same text as the console and that
+     * the list sink keeps the messages and arguments of the lines.
+     */
+    public void testOutputSinks() {
+        runCommands();
+        String expected = systemOut().getHistory();
+        systemOut().clearHistory();
+
+        ListSink list = new ListSink();
+        database = new Database(list);
+        runCommands();
+        assertEquals(expected, list.getText());
+        List<ListSink.Entry> pairs =
+                list.getEntries(Constants.INTERSECTION_FOUND);
+        assertEquals(2, pairs.size());
+        assertEquals("r2", ((KVPair<?, ?>) pairs.get(0).getArguments()[0])
+                .getKey());
+
+        // a small buffer hands off many times per command
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        BufferedSink buffered = new BufferedSink(bytes, UTF_8, 16);
+        database = new Database(buffered);
+        runCommands();
+        buffered.close();
+        assertEquals(expected, bytes.toString(UTF_8).replace(
+                System.lineSeparator(), "\n"));
+
+        CountingSink counting = new CountingSink();
+        database = new Database(counting);
+        runCommands();
+        assertEquals(expected.split("\n").length, counting.getLines());
+    }
+
+    /**
+     * Utility method to run the commands printing rectangles.
+     */
+    private void runCommands() {
+        insertData();
+        database.insert(new KVPair<>("r5", new Rectangle(105, 102, 10, 10)));
+        database.insert(new KVPair<>("r6", new Rectangle(-1, 0, 5, 5)));
+        database.intersections();
+        database.regionsearch(0, 0, 250, 250);
+        database.search("r4");
+        database.remove("r1");
+        database.remove(105, 102, 10, 10);
+        database.search("r5");
+    }
+
     /**
      * Utility method to insert 5 nodes to the skiplist.
      */
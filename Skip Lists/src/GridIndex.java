@@ -0,0 +1,176 @@
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * @author Abhinav Sethi
+ * @version 2021-09-26
+ * <p>
+ * Index dividing the world into a fixed grid of square cells, each cell
+ * holding the ids of the rectangles overlapping it in an int array. A
+ * region search only reads the cells the region overlaps, which for small
+ * rectangles and regions is a handful of short arrays, and updates touch
+ * only the cells of one rectangle.
+ * <p>
+ * A rectangle spanning several cells is listed in each of them. A search
+ * stamps every id it reads with the number of the search, so a rectangle
+ * met again in a later cell is skipped without being compared twice. The
+ * cell size trades the cells a region overlaps against the ids per cell;
+ * it should be about the side of the typical rectangle.
+ */
+public class GridIndex implements RectangleIndex {
+
+    private final int cellSize;
+    private final int side; // number of cells along each side of the world
+    private RectangleStore store = new RectangleStore();
+    // ids of the rectangles overlapping every cell, by row and then column
+    private int[][] cells;
+    private int[] counts;
+    // number of the last search that read every id
+    private int[] stamps = new int[16];
+    private int search;
+
+    /**
+     * Create an empty grid.
+     *
+     * @param cellSize side of every cell, from 1 to WORLD_SIZE
+     * @throws IllegalArgumentException if the cell size is out of range
+     */
+    public GridIndex(int cellSize) {
+        if (cellSize < 1 || cellSize > WORLD_SIZE) {
+            throw new IllegalArgumentException("cell size " + cellSize);
+        }
+        this.cellSize = cellSize;
+        side = (WORLD_SIZE + cellSize - 1) / cellSize;
+        cells = new int[side * side][];
+        counts = new int[side * side];
+    }
+
+    /**
+     * @return the side of every cell
+     */
+    public int getCellSize() {
+        return cellSize;
+    }
+
+    @Override
+    public int insert(Rectangle r) {
+        int id = store.add(r);
+        if (id >= stamps.length) {
+            stamps = Arrays.copyOf(stamps, Math.max(id + 1,
+                    stamps.length * 2));
+        }
+        for (int row = r.y / cellSize; row <= (r.y + r.height - 1)
+                / cellSize; row++) {
+            for (int column = r.x / cellSize; column <= (r.x + r.width - 1)
+                    / cellSize; column++) {
+                int cell = row * side + column;
+                if (cells[cell] == null) {
+                    cells[cell] = new int[4];
+                }
+                else if (counts[cell] == cells[cell].length) {
+                    cells[cell] = Arrays.copyOf(cells[cell],
+                            counts[cell] * 2);
+                }
+                cells[cell][counts[cell]++] = id;
+            }
+        }
+        return id;
+    }
+
+    @Override
+    public void bulkLoad(Rectangle[] rectangles) {
+        store = new RectangleStore();
+        cells = new int[side * side][];
+        counts = new int[side * side];
+        stamps = new int[Math.max(16, rectangles.length)];
+        search = 0;
+        for (Rectangle r : rectangles) {
+            insert(r);
+        }
+    }
+
+    @Override
+    public void remove(int id) {
+        Rectangle r = store.get(id);
+        if (r == null) {
+            throw new IllegalArgumentException("no rectangle " + id);
+        }
+        for (int row = r.y / cellSize; row <= (r.y + r.height - 1)
+                / cellSize; row++) {
+            for (int column = r.x / cellSize; column <= (r.x + r.width - 1)
+                    / cellSize; column++) {
+                int cell = row * side + column;
+                int[] ids = cells[cell];
+                int i = 0;
+                while (ids[i] != id) {
+                    i++;
+                }
+                // the order within a cell does not matter
+                ids[i] = ids[--counts[cell]];
+            }
+        }
+        store.remove(id);
+    }
+
+    @Override
+    public int regionSearch(Rectangle region, IntConsumer action) {
+        if (region.width <= 0 || region.height <= 0) {
+            return 0;
+        }
+        // only the part of the region inside the world holds rectangles
+        long x1 = Math.max(region.x, 0);
+        long y1 = Math.max(region.y, 0);
+        long x2 = Math.min((long) region.x + region.width, WORLD_SIZE);
+        long y2 = Math.min((long) region.y + region.height, WORLD_SIZE);
+        if (x1 >= x2 || y1 >= y2) {
+            return 0;
+        }
+        if (++search == 0) {
+            // the numbers wrapped around, so old stamps could match again
+            Arrays.fill(stamps, 0);
+            search = 1;
+        }
+        // no rectangle reaches past the world, so comparing with the
+        // clipped region finds the same ones
+        int left = (int) x1;
+        int top = (int) y1;
+        int right = (int) x2;
+        int bottom = (int) y2;
+        int visited = 0;
+        for (int row = (int) (y1 / cellSize); row <= (y2 - 1) / cellSize;
+                row++) {
+            for (int column = (int) (x1 / cellSize);
+                    column <= (x2 - 1) / cellSize; column++) {
+                int cell = row * side + column;
+                int[] ids = cells[cell];
+                visited++;
+                for (int i = 0; i < counts[cell]; i++) {
+                    int id = ids[i];
+                    if (stamps[id] != search) {
+                        stamps[id] = search;
+                        if (store.intersects(id, left, top, right,
+                                bottom)) {
+                            action.accept(id);
+                        }
+                    }
+                }
+            }
+        }
+        return visited;
+    }
+
+    @Override
+    public Rectangle get(int id) {
+        return store.get(id);
+    }
+
+    @Override
+    public boolean matches(int id, Rectangle r) {
+        return store.matches(id, r);
+    }
+
+    @Override
+    public int size() {
+        return store.size();
+    }
+}
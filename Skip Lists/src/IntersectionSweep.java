@@ -0,0 +1,239 @@
+import java.util.Arrays;
+
+/**
+ * @author Abhinav Sethi
+ * @version 2021-09-26
+ * <p>
+ * Plane sweep that finds every pair of intersecting rectangles without
+ * comparing each rectangle with all the others.
+ * <p>
+ * The rectangles are visited by their left edge. The ones whose right edge
+ * the sweep has passed leave the active set, and each new rectangle is
+ * compared only with the active rectangles whose y interval overlaps its
+ * own. The active set is a segment tree over all the rectangles sorted by
+ * top edge, each leaf holding the bottom edge of an active rectangle and
+ * each inner node the largest bottom edge below it. A query descends only
+ * into the nodes holding a rectangle that starts above the bottom and ends
+ * below the top of the new one, so it costs O(log n) per pair found.
+ * <p>
+ * Every pair is reported in both orders, sorted by the position of the
+ * first rectangle and then of the second, as the nested loop over the list
+ * did. The pairs are put in that order by two counting sorts, so the whole
+ * sweep takes O((n + k) log n) for k pairs. Rectangles only touching on an
+ * edge or corner do not intersect, as with Rectangle.intersects.
+ */
+public class IntersectionSweep {
+
+    /**
+     * Receives the intersecting pairs.
+     */
+    public interface Visitor {
+        /**
+         * @param first  position of the first rectangle
+         * @param second position of the second rectangle
+         */
+        void visit(int first, int second);
+    }
+
+    // rectangles by position
+    private final Rectangle[] rectangles;
+    // rectangle position of every leaf, by top edge
+    private final int[] leaves;
+    // top edge of every leaf
+    private final int[] tops;
+    // largest bottom edge of the active rectangles below every node
+    private final int[] bottoms;
+    private final int capacity;
+
+    // intersecting pairs found, as positions of both rectangles
+    private int[] firsts = new int[16];
+    private int[] seconds = new int[16];
+    private int count;
+
+    // rectangle being compared with the active ones
+    private int current;
+
+    /**
+     * Prepare a sweep over rectangles.
+     *
+     * @param rectangles rectangles by position
+     */
+    private IntersectionSweep(Rectangle[] rectangles) {
+        this.rectangles = rectangles;
+        int n = rectangles.length;
+        long[] order = new long[n];
+        for (int i = 0; i < n; i++) {
+            order[i] = ((long) rectangles[i].y << 32) + i;
+        }
+        Arrays.sort(order);
+        leaves = new int[n];
+        tops = new int[n];
+        for (int i = 0; i < n; i++) {
+            leaves[i] = (int) order[i];
+            tops[i] = rectangles[leaves[i]].y;
+        }
+        int size = 1;
+        while (size < n) {
+            size <<= 1;
+        }
+        capacity = size;
+        bottoms = new int[2 * size];
+        Arrays.fill(bottoms, Integer.MIN_VALUE);
+    }
+
+    /**
+     * Find every pair of intersecting rectangles and visit them ordered by
+     * the position of the first rectangle and then of the second.
+     *
+     * @param rectangles rectangles by position
+     * @param visitor    receives both orders of every pair
+     */
+    public static void intersections(Rectangle[] rectangles,
+                                     Visitor visitor) {
+        IntersectionSweep sweep = new IntersectionSweep(rectangles);
+        sweep.sweep();
+        sweep.visit(visitor);
+    }
+
+    /**
+     * Visit the rectangles by left edge, collecting the pairs each one
+     * forms with the active rectangles.
+     */
+    private void sweep() {
+        int n = rectangles.length;
+        long[] byLeft = new long[n];
+        long[] byRight = new long[n];
+        int[] leafOf = new int[n];
+        for (int i = 0; i < n; i++) {
+            Rectangle r = rectangles[i];
+            byLeft[i] = ((long) r.x << 32) + i;
+            byRight[i] = ((long) (r.x + r.width) << 32) + i;
+            leafOf[leaves[i]] = i;
+        }
+        Arrays.sort(byLeft);
+        Arrays.sort(byRight);
+
+        int expired = 0;
+        for (long left : byLeft) {
+            current = (int) left;
+            Rectangle r = rectangles[current];
+            if (r.width <= 0 || r.height <= 0) {
+                continue;
+            }
+            // rectangles ending at or before the left edge only touch it
+            while (expired < n && (int) (byRight[expired] >> 32) <= r.x) {
+                update(leafOf[(int) byRight[expired]], Integer.MIN_VALUE);
+                expired++;
+            }
+            int limit = Arrays.binarySearch(tops, r.y + r.height);
+            limit = limit < 0 ? -limit - 1 : firstTop(limit);
+            collect(1, 0, capacity, limit, r.y);
+            update(leafOf[current], r.y + r.height);
+        }
+    }
+
+    /**
+     * @param index index of a leaf with some top edge
+     * @return index of the first leaf with the same top edge
+     */
+    private int firstTop(int index) {
+        while (index > 0 && tops[index - 1] == tops[index]) {
+            index--;
+        }
+        return index;
+    }
+
+    /**
+     * Pair the current rectangle with the active rectangles below a node
+     * that start above a limit and end below a top edge.
+     *
+     * @param node  node of the tree
+     * @param from  first leaf below the node
+     * @param to    end of the leaves below the node
+     * @param limit end of the leaves starting above the current bottom
+     * @param top   top edge of the current rectangle
+     */
+    private void collect(int node, int from, int to, int limit, int top) {
+        if (from >= limit || bottoms[node] <= top) {
+            return;
+        }
+        if (to - from == 1) {
+            add(current, leaves[from]);
+            add(leaves[from], current);
+            return;
+        }
+        int middle = (from + to) >>> 1;
+        collect(2 * node, from, middle, limit, top);
+        collect(2 * node + 1, middle, to, limit, top);
+    }
+
+    /**
+     * Set the bottom edge of a leaf and update the nodes above it.
+     *
+     * @param leaf   leaf to set
+     * @param bottom bottom edge of an active rectangle, or MIN_VALUE
+     */
+    private void update(int leaf, int bottom) {
+        int node = capacity + leaf;
+        bottoms[node] = bottom;
+        for (node >>= 1; node > 0; node >>= 1) {
+            bottoms[node] = Math.max(bottoms[2 * node],
+                    bottoms[2 * node + 1]);
+        }
+    }
+
+    private void add(int first, int second) {
+        if (count == firsts.length) {
+            firsts = Arrays.copyOf(firsts, 2 * count);
+            seconds = Arrays.copyOf(seconds, 2 * count);
+        }
+        firsts[count] = first;
+        seconds[count] = second;
+        count++;
+    }
+
+    /**
+     * Sort the pairs by second and then stably by first position, and
+     * visit them in that order.
+     *
+     * @param visitor receives the pairs
+     */
+    private void visit(Visitor visitor) {
+        int[] bySecond = sort(seconds, identity());
+        int[] order = sort(firsts, bySecond);
+        for (int index : order) {
+            visitor.visit(firsts[index], seconds[index]);
+        }
+    }
+
+    private int[] identity() {
+        int[] order = new int[count];
+        for (int i = 0; i < count; i++) {
+            order[i] = i;
+        }
+        return order;
+    }
+
+    /**
+     * Counting sort of pair indexes by one of the positions, keeping the
+     * given order among equal positions.
+     *
+     * @param positions position of every pair
+     * @param order     pair indexes in their current order
+     * @return pair indexes sorted by position
+     */
+    private int[] sort(int[] positions, int[] order) {
+        int[] starts = new int[rectangles.length + 1];
+        for (int i = 0; i < count; i++) {
+            starts[positions[i] + 1]++;
+        }
+        for (int i = 1; i < starts.length; i++) {
+            starts[i] += starts[i - 1];
+        }
+        int[] sorted = new int[count];
+        for (int index : order) {
+            sorted[starts[positions[index]]++] = index;
+        }
+        return sorted;
+    }
+}
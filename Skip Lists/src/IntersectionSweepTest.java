@@ -0,0 +1,66 @@
+import student.TestCase;
+
+import java.util.Random;
+
+/**
+ * @author Abhinav Sethi
+ * @version 2021-09-26
+ *
+ * Test class for the plane sweep. The pairs it visits are checked against
+ * comparing every rectangle with all the others.
+ */
+
+public class IntersectionSweepTest extends TestCase {
+
+    /**
+     * Test the pairs of a few rectangles, with equal rectangles, rectangles
+     * only touching on an edge or corner and empty rectangles.
+     */
+    public void testIntersections() {
+        assertEquals("", sweep());
+        assertEquals("", sweep(new Rectangle(0, 0, 10, 10)));
+        assertEquals("0 1 1 0 ", sweep(new Rectangle(0, 0, 10, 10),
+                new Rectangle(0, 0, 10, 10)));
+        // touching on the right edge, the bottom edge and a corner
+        assertEquals("", sweep(new Rectangle(0, 0, 10, 10),
+                new Rectangle(10, 0, 5, 5), new Rectangle(0, 10, 5, 5),
+                new Rectangle(10, 10, 5, 5)));
+        assertEquals("", sweep(new Rectangle(0, 0, 10, 10),
+                new Rectangle(5, 5, 0, 5), new Rectangle(5, 5, 5, 0)));
+        assertEquals("0 2 1 2 2 0 2 1 ", sweep(new Rectangle(0, 0, 5, 5),
+                new Rectangle(20, 20, 5, 5), new Rectangle(3, 3, 20, 20)));
+    }
+
+    /**
+     * Test that random rectangles give the same pairs in the same order as
+     * the nested loop, with many equal edges.
+     */
+    public void testRandom() {
+        Random random = new Random(17);
+        for (int round = 0; round < 50; round++) {
+            Rectangle[] rectangles = new Rectangle[random.nextInt(200)];
+            for (int i = 0; i < rectangles.length; i++) {
+                rectangles[i] = new Rectangle(random.nextInt(60),
+                        random.nextInt(60), random.nextInt(12),
+                        random.nextInt(12));
+            }
+            StringBuilder expected = new StringBuilder();
+            for (int i = 0; i < rectangles.length; i++) {
+                for (int j = 0; j < rectangles.length; j++) {
+                    if (i != j && rectangles[i].intersects(rectangles[j])) {
+                        expected.append(i).append(' ').append(j)
+                                .append(' ');
+                    }
+                }
+            }
+            assertEquals(expected.toString(), sweep(rectangles));
+        }
+    }
+
+    private static String sweep(Rectangle... rectangles) {
+        StringBuilder found = new StringBuilder();
+        IntersectionSweep.intersections(rectangles, (first, second) ->
+                found.append(first).append(' ').append(second).append(' '));
+        return found.toString();
+    }
+}
@@ -0,0 +1,126 @@
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * @author Abhinav Sethi
+ * @version 2021-09-26
+ * <p>
+ * Sink that keeps every line in a list together with the message and the
+ * arguments it was formatted from, so tests can check results without
+ * parsing the text.
+ */
+public class ListSink implements OutputSink {
+
+    /**
+     * One printed line
+     */
+    public static class Entry {
+
+        private final Message message;
+        private final Object[] arguments;
+        private final String text;
+
+        /**
+         * Create an entry.
+         *
+         * @param message   compiled pattern of the line, null for fixed text
+         * @param arguments values of the pattern placeholders
+         * @param text      printed text of the line with its indentation
+         */
+        Entry(Message message, Object[] arguments, String text) {
+            this.message = message;
+            this.arguments = arguments;
+            this.text = text;
+        }
+
+        /**
+         * @return compiled pattern of the line, null for fixed text
+         */
+        public Message getMessage() {
+            return message;
+        }
+
+        /**
+         * @return values of the pattern placeholders
+         */
+        public Object[] getArguments() {
+            return arguments;
+        }
+
+        /**
+         * @return printed text of the line with its indentation
+         */
+        public String getText() {
+            return text;
+        }
+
+        @Override
+        public String toString() {
+            return text;
+        }
+    }
+
+    private final List<Entry> entries = new ArrayList<>();
+
+    // text printed since the last line ended
+    private final StringBuilder indent = new StringBuilder();
+
+    @Override
+    public void print(String text) {
+        indent.append(text);
+    }
+
+    @Override
+    public void println(String line) {
+        add(null, new Object[0], line);
+    }
+
+    @Override
+    public void println(Message message, Object... arguments) {
+        add(message, arguments, message.format(arguments));
+    }
+
+    @Override
+    public void flush() {
+        // entries are kept in memory
+    }
+
+    private void add(Message message, Object[] arguments, String text) {
+        entries.add(new Entry(message, arguments, indent + text));
+        indent.setLength(0);
+    }
+
+    /**
+     * @return every line printed so far, in order
+     */
+    public List<Entry> getEntries() {
+        return entries;
+    }
+
+    /**
+     * Return the entries formatted from the given message.
+     *
+     * @param message compiled pattern to look for
+     * @return matching entries in order
+     */
+    public List<Entry> getEntries(Message message) {
+        List<Entry> matching = new ArrayList<>();
+        for (Entry entry : entries) {
+            if (entry.message == message) {
+                matching.add(entry);
+            }
+        }
+        return matching;
+    }
+
+    /**
+     * @return printed text of every line, each followed by a line feed
+     */
+    public String getText() {
+        StringBuilder text = new StringBuilder();
+        for (Entry entry : entries) {
+            text.append(entry.text).append('\n');
+        }
+        return text.toString();
+    }
+}
@@ -0,0 +1,38 @@
+/**
+ * @author Abhinav Sethi
+ * @version 2021-09-26
+ * <p>
+ * Destination of the lines printed by the database commands. The console
+ * sink prints every line at once, the buffered sink writes them in large
+ * batches from its own thread, the counting sink only counts them and the
+ * list sink keeps them with their message and arguments for tests.
+ */
+public interface OutputSink {
+
+    /**
+     * Print text without ending the line, used for indentation.
+     *
+     * @param text text to print
+     */
+    void print(String text);
+
+    /**
+     * Print a line of fixed text.
+     *
+     * @param line text of the line
+     */
+    void println(String line);
+
+    /**
+     * Print a line formatted from a message and its arguments.
+     *
+     * @param message   compiled pattern of the line
+     * @param arguments values of the pattern placeholders
+     */
+    void println(Message message, Object... arguments);
+
+    /**
+     * Make every line printed so far reach its destination.
+     */
+    void flush();
+}
@@ -0,0 +1,684 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.IntConsumer;
+
+/**
+ * @author Abhinav Sethi
+ * @version 2021-09-26
+ * <p>
+ * R-tree over the rectangles of a RectangleStore, so that the rectangles
+ * intersecting a region are found by visiting only the nodes whose
+ * bounding box meets it.
+ * <p>
+ * A leaf holds the ids of its rectangles in an int array and reads their
+ * coordinates from the store, which stays the only copy of them. Every
+ * other node holds up to MAX_ENTRIES children, stored with their bounding
+ * boxes as columns of corner coordinates so a node is scanned without
+ * following a reference per child. Inserts descend into the child needing
+ * the least enlargement and split full nodes with the quadratic split of
+ * Guttman. Removals unlink the id, drop the nodes left with fewer than
+ * MIN_ENTRIES children and insert their ids again. A batch of ids can
+ * instead be loaded at once with Sort-Tile-Recursive packing, which tiles
+ * the rectangles by center into full leaves and builds every level above
+ * the same way.
+ * <p>
+ * Rectangles only touching on an edge or corner do not intersect, and an
+ * empty region intersects nothing, as with Rectangle.intersects.
+ */
+public class RTree {
+
+    /**
+     * Most children of a node
+     */
+    static final int MAX_ENTRIES = 16;
+
+    /**
+     * Fewest children of a node other than the root
+     */
+    static final int MIN_ENTRIES = 6;
+
+    private final RectangleStore store;
+    private Node root = new Node(true);
+    private int height = 1; // number of levels, the leaves included
+    private int size;
+
+    /**
+     * Create an empty tree.
+     *
+     * @param store holds the rectangles of the ids, which must not change
+     *              while the id is in the tree
+     */
+    public RTree(RectangleStore store) {
+        this.store = store;
+    }
+
+    /**
+     * @return the number of ids in the tree
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return the number of levels of the tree, the leaves included
+     */
+    public int height() {
+        return height;
+    }
+
+    /**
+     * Inserts the id of a rectangle of the store.
+     *
+     * @param id the id to be inserted
+     */
+    public void insert(int id) {
+        insertId(id);
+        size++;
+    }
+
+    /**
+     * Removes the id of a rectangle, found by the rectangle. The store
+     * must still hold it.
+     *
+     * @param id the id to be removed
+     * @return true if the id was found
+     */
+    public boolean remove(int id) {
+        int[] box = {store.left(id), store.top(id), store.right(id),
+            store.bottom(id)};
+        Node[] path = new Node[height];
+        int[] slots = new int[height];
+        if (!find(root, 0, box, id, path, slots)) {
+            return false;
+        }
+        Node node = path[height - 1];
+        node.remove(slots[height - 1]);
+        size--;
+
+        // drop the underfull nodes on the path and shrink the others
+        List<Node> orphans = new ArrayList<>();
+        for (int depth = height - 2; depth >= 0; depth--) {
+            Node parent = path[depth];
+            if (node.count < MIN_ENTRIES) {
+                parent.remove(slots[depth]);
+                orphans.add(node);
+            }
+            else {
+                parent.cover(slots[depth], node);
+            }
+            node = parent;
+        }
+        while (!root.leaf && root.count == 1) {
+            root = root.children[0];
+            height--;
+        }
+        if (root.count == 0) {
+            root = new Node(true);
+            height = 1;
+        }
+        for (Node orphan : orphans) {
+            reinsert(orphan);
+        }
+        return true;
+    }
+
+    /**
+     * Removes every id and builds the tree from a batch of ids with
+     * Sort-Tile-Recursive packing.
+     *
+     * @param ids the ids to be loaded
+     */
+    public void bulkLoad(int[] ids) {
+        int n = ids.length;
+        int[][] boxes = new int[4][n];
+        for (int i = 0; i < n; i++) {
+            boxes[0][i] = store.left(ids[i]);
+            boxes[1][i] = store.top(ids[i]);
+            boxes[2][i] = store.right(ids[i]);
+            boxes[3][i] = store.bottom(ids[i]);
+        }
+        root = new Node(true);
+        height = 1;
+        size = n;
+        if (n == 0) {
+            return;
+        }
+        Node[] level = pack(ids, null, boxes);
+        while (level.length > 1) {
+            boxes = new int[4][level.length];
+            for (int i = 0; i < level.length; i++) {
+                level[i].cover(boxes, i);
+            }
+            level = pack(null, level, boxes);
+            height++;
+        }
+        root = level[0];
+    }
+
+    /**
+     * Finds the ids of the rectangles intersecting a region.
+     *
+     * @param region the region to search
+     * @param action receives every id found
+     * @return number of nodes visited
+     */
+    public int regionSearch(Rectangle region, IntConsumer action) {
+        if (region.width <= 0 || region.height <= 0) {
+            return 0;
+        }
+        return search(root, region.x, region.y, farEdge(region.x,
+                region.width), farEdge(region.y, region.height), action);
+    }
+
+    /**
+     * Right or bottom edge of a region, held at Integer.MAX_VALUE when the
+     * sum overflows. No box reaches that far, so the region still meets
+     * every box it would without the overflow, as with
+     * Rectangle.intersects.
+     *
+     * @param start left or top edge
+     * @param size  width or height, positive
+     * @return the far edge
+     */
+    static int farEdge(int start, int size) {
+        return (int) Math.min((long) start + size, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Visit the children of a node intersecting a box.
+     *
+     * @param node   node to search
+     * @param x1     left edge of the box
+     * @param y1     top edge of the box
+     * @param x2     right edge of the box
+     * @param y2     bottom edge of the box
+     * @param action receives every id found
+     * @return number of nodes visited
+     */
+    private int search(Node node, int x1, int y1, int x2, int y2,
+                       IntConsumer action) {
+        if (node.leaf) {
+            for (int i = 0; i < node.count; i++) {
+                if (store.intersects(node.ids[i], x1, y1, x2, y2)) {
+                    action.accept(node.ids[i]);
+                }
+            }
+            return 1;
+        }
+        int visited = 1;
+        for (int i = 0; i < node.count; i++) {
+            if (node.x1[i] < x2 && x1 < node.x2[i]
+                    && node.y1[i] < y2 && y1 < node.y2[i]) {
+                visited += search(node.children[i], x1, y1, x2, y2, action);
+            }
+        }
+        return visited;
+    }
+
+    /**
+     * Add an id to the leaf reached by least enlargement, splitting the
+     * nodes that overflow on the way back up.
+     *
+     * @param id the id
+     */
+    private void insertId(int id) {
+        int x1 = store.left(id);
+        int y1 = store.top(id);
+        int x2 = store.right(id);
+        int y2 = store.bottom(id);
+        Node[] path = new Node[height];
+        int[] slots = new int[height];
+        Node node = root;
+        int depth = 0;
+        while (!node.leaf) {
+            path[depth] = node;
+            slots[depth] = node.choose(x1, y1, x2, y2);
+            node = node.children[slots[depth]];
+            depth++;
+        }
+        node.add(id);
+        Node sibling = node.count > MAX_ENTRIES ? node.split() : null;
+        for (depth--; depth >= 0; depth--) {
+            Node parent = path[depth];
+            parent.cover(slots[depth], node);
+            if (sibling != null) {
+                parent.add(sibling);
+                sibling = parent.count > MAX_ENTRIES ? parent.split() : null;
+            }
+            node = parent;
+        }
+        if (sibling != null) {
+            root = new Node(false);
+            root.add(node);
+            root.add(sibling);
+            height++;
+        }
+    }
+
+    /**
+     * Find the leaf slot holding an id, descending only into the children
+     * whose box contains the rectangle of the id.
+     *
+     * @param node  node to search
+     * @param depth level of the node, the root being 0
+     * @param box   corners of the rectangle
+     * @param id    the id
+     * @param path  receives the nodes from the root to the leaf
+     * @param slots receives the slot taken in every node of the path
+     * @return true if the id was found
+     */
+    private boolean find(Node node, int depth, int[] box, int id,
+                         Node[] path, int[] slots) {
+        path[depth] = node;
+        for (int i = 0; i < node.count; i++) {
+            slots[depth] = i;
+            if (node.leaf) {
+                if (node.ids[i] == id) {
+                    return true;
+                }
+            }
+            else if (node.x1[i] <= box[0] && node.y1[i] <= box[1]
+                    && box[2] <= node.x2[i] && box[3] <= node.y2[i]
+                    && find(node.children[i], depth + 1, box, id, path,
+                    slots)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Insert again every id below a node dropped from the tree.
+     *
+     * @param node the dropped node
+     */
+    private void reinsert(Node node) {
+        for (int i = 0; i < node.count; i++) {
+            if (node.leaf) {
+                insertId(node.ids[i]);
+            }
+            else {
+                reinsert(node.children[i]);
+            }
+        }
+    }
+
+    /**
+     * Pack one level of the tree: sort the items by center x, cut them
+     * into vertical slices of whole nodes, sort every slice by center y
+     * and fill the nodes in that order.
+     *
+     * @param ids   ids of the new leaves, or null for a level of nodes
+     * @param nodes children of the new nodes when ids is null
+     * @param boxes left, top, right and bottom edges of the items
+     * @return the new nodes
+     */
+    private Node[] pack(int[] ids, Node[] nodes, int[][] boxes) {
+        int n = boxes[0].length;
+        int pages = (n + MAX_ENTRIES - 1) / MAX_ENTRIES;
+        int sliceSize = (int) Math.ceil(Math.sqrt(pages)) * MAX_ENTRIES;
+        long[] order = new long[n];
+        for (int i = 0; i < n; i++) {
+            order[i] = ((long) (boxes[0][i] + boxes[2][i]) << 32) + i;
+        }
+        Arrays.sort(order);
+        for (int from = 0; from < n; from += sliceSize) {
+            int to = Math.min(n, from + sliceSize);
+            for (int k = from; k < to; k++) {
+                int i = (int) order[k];
+                order[k] = ((long) (boxes[1][i] + boxes[3][i]) << 32) + i;
+            }
+            Arrays.sort(order, from, to);
+        }
+        Node[] packed = new Node[pages];
+        for (int p = 0; p < pages; p++) {
+            packed[p] = new Node(ids != null);
+            int end = Math.min(n, (p + 1) * MAX_ENTRIES);
+            for (int k = p * MAX_ENTRIES; k < end; k++) {
+                int i = (int) order[k];
+                if (ids != null) {
+                    packed[p].add(ids[i]);
+                }
+                else {
+                    packed[p].add(boxes[0][i], boxes[1][i], boxes[2][i],
+                            boxes[3][i], nodes[i]);
+                }
+            }
+        }
+        return packed;
+    }
+
+    private static long area(long x1, long y1, long x2, long y2) {
+        return (x2 - x1) * (y2 - y1);
+    }
+
+    /**
+     * @param groups the two groups
+     * @param covers edges of the boxes of the groups by column
+     * @param growth growth of each group to take a child
+     * @return the group enlarged least, then the smaller one, then the
+     * one with fewer children
+     */
+    private static int preferred(Node[] groups, int[][] covers,
+                                 long[] growth) {
+        if (growth[0] != growth[1]) {
+            return growth[0] < growth[1] ? 0 : 1;
+        }
+        long area0 = area(covers[0][0], covers[1][0], covers[2][0],
+                covers[3][0]);
+        long area1 = area(covers[0][1], covers[1][1], covers[2][1],
+                covers[3][1]);
+        if (area0 != area1) {
+            return area0 < area1 ? 0 : 1;
+        }
+        return groups[0].count <= groups[1].count ? 0 : 1;
+    }
+
+    /**
+     * Node of the tree. A leaf holds an id per slot and reads the box of
+     * every id from the store, any other node holds a child node per slot
+     * with its bounding box. One slot more than MAX_ENTRIES holds the
+     * overflow until the node is split.
+     */
+    private class Node {
+
+        // true if the children are ids, false if they are nodes
+        private final boolean leaf;
+        // the number of children
+        private int count;
+        // ids of the rectangles of a leaf
+        private final int[] ids;
+        // edges of the bounding box of every child node
+        private final int[] x1;
+        private final int[] y1;
+        private final int[] x2;
+        private final int[] y2;
+        private final Node[] children;
+
+        /**
+         * @param leaf true if the children are ids
+         */
+        Node(boolean leaf) {
+            this.leaf = leaf;
+            int slots = MAX_ENTRIES + 1;
+            ids = leaf ? new int[slots] : null;
+            x1 = leaf ? null : new int[slots];
+            y1 = leaf ? null : new int[slots];
+            x2 = leaf ? null : new int[slots];
+            y2 = leaf ? null : new int[slots];
+            children = leaf ? null : new Node[slots];
+        }
+
+        /**
+         * @param k slot of a child
+         * @return left edge of the child
+         */
+        int left(int k) {
+            return leaf ? store.left(ids[k]) : x1[k];
+        }
+
+        /**
+         * @param k slot of a child
+         * @return top edge of the child
+         */
+        int top(int k) {
+            return leaf ? store.top(ids[k]) : y1[k];
+        }
+
+        /**
+         * @param k slot of a child
+         * @return right edge of the child
+         */
+        int right(int k) {
+            return leaf ? store.right(ids[k]) : x2[k];
+        }
+
+        /**
+         * @param k slot of a child
+         * @return bottom edge of the child
+         */
+        int bottom(int k) {
+            return leaf ? store.bottom(ids[k]) : y2[k];
+        }
+
+        /**
+         * Add an id after the others in a leaf.
+         *
+         * @param id the id
+         */
+        void add(int id) {
+            ids[count++] = id;
+        }
+
+        /**
+         * Add a child node after the others.
+         *
+         * @param left   left edge of the child
+         * @param top    top edge of the child
+         * @param right  right edge of the child
+         * @param bottom bottom edge of the child
+         * @param child  the node
+         */
+        void add(int left, int top, int right, int bottom, Node child) {
+            x1[count] = left;
+            y1[count] = top;
+            x2[count] = right;
+            y2[count] = bottom;
+            children[count] = child;
+            count++;
+        }
+
+        /**
+         * Add a node as a child, with the box covering its children.
+         *
+         * @param child the node
+         */
+        void add(Node child) {
+            children[count] = child;
+            cover(count, child);
+            count++;
+        }
+
+        /**
+         * Remove a child, moving the last one into its slot.
+         *
+         * @param slot slot of the child
+         */
+        void remove(int slot) {
+            count--;
+            if (leaf) {
+                ids[slot] = ids[count];
+                return;
+            }
+            x1[slot] = x1[count];
+            y1[slot] = y1[count];
+            x2[slot] = x2[count];
+            y2[slot] = y2[count];
+            children[slot] = children[count];
+            children[count] = null;
+        }
+
+        /**
+         * Set the box of a slot to the box covering the children of a node.
+         *
+         * @param slot  slot of the node
+         * @param child the node
+         */
+        void cover(int slot, Node child) {
+            x1[slot] = Integer.MAX_VALUE;
+            y1[slot] = Integer.MAX_VALUE;
+            x2[slot] = Integer.MIN_VALUE;
+            y2[slot] = Integer.MIN_VALUE;
+            for (int k = 0; k < child.count; k++) {
+                x1[slot] = Math.min(x1[slot], child.left(k));
+                y1[slot] = Math.min(y1[slot], child.top(k));
+                x2[slot] = Math.max(x2[slot], child.right(k));
+                y2[slot] = Math.max(y2[slot], child.bottom(k));
+            }
+        }
+
+        /**
+         * Write the box covering all the children into a column of boxes.
+         *
+         * @param boxes left, top, right and bottom edges by column
+         * @param i     column to write
+         */
+        void cover(int[][] boxes, int i) {
+            int left = Integer.MAX_VALUE;
+            int top = Integer.MAX_VALUE;
+            int right = Integer.MIN_VALUE;
+            int bottom = Integer.MIN_VALUE;
+            for (int k = 0; k < count; k++) {
+                left = Math.min(left, left(k));
+                top = Math.min(top, top(k));
+                right = Math.max(right, right(k));
+                bottom = Math.max(bottom, bottom(k));
+            }
+            boxes[0][i] = left;
+            boxes[1][i] = top;
+            boxes[2][i] = right;
+            boxes[3][i] = bottom;
+        }
+
+        /**
+         * @param left   left edge of the box
+         * @param top    top edge of the box
+         * @param right  right edge of the box
+         * @param bottom bottom edge of the box
+         * @return the slot whose box grows least to cover the box, the
+         * smallest one on a tie
+         */
+        int choose(int left, int top, int right, int bottom) {
+            int best = 0;
+            long bestGrowth = Long.MAX_VALUE;
+            long bestArea = Long.MAX_VALUE;
+            for (int k = 0; k < count; k++) {
+                long area = area(x1[k], y1[k], x2[k], y2[k]);
+                long growth = area(Math.min(x1[k], left),
+                        Math.min(y1[k], top), Math.max(x2[k], right),
+                        Math.max(y2[k], bottom)) - area;
+                if (growth < bestGrowth
+                        || growth == bestGrowth && area < bestArea) {
+                    best = k;
+                    bestGrowth = growth;
+                    bestArea = area;
+                }
+            }
+            return best;
+        }
+
+        /**
+         * Quadratic split: seed two groups with the pair of children
+         * wasting the most area together, then repeatedly give the child
+         * with the strongest preference to the group it enlarges least.
+         * This node keeps the first group.
+         *
+         * @return new node holding the second group
+         */
+        Node split() {
+            int n = count;
+            int[] left = new int[n];
+            int[] top = new int[n];
+            int[] right = new int[n];
+            int[] bottom = new int[n];
+            for (int k = 0; k < n; k++) {
+                left[k] = left(k);
+                top[k] = top(k);
+                right[k] = right(k);
+                bottom[k] = bottom(k);
+            }
+            int[] itemIds = leaf ? Arrays.copyOf(ids, n) : null;
+            Node[] items = leaf ? null : Arrays.copyOf(children, n);
+            if (!leaf) {
+                Arrays.fill(children, null);
+            }
+            count = 0;
+            Node sibling = new Node(leaf);
+
+            int seed1 = 0;
+            int seed2 = 1;
+            long worst = Long.MIN_VALUE;
+            for (int i = 0; i < n; i++) {
+                for (int j = i + 1; j < n; j++) {
+                    long waste = area(Math.min(left[i], left[j]),
+                            Math.min(top[i], top[j]),
+                            Math.max(right[i], right[j]),
+                            Math.max(bottom[i], bottom[j]))
+                            - area(left[i], top[i], right[i], bottom[i])
+                            - area(left[j], top[j], right[j], bottom[j]);
+                    if (waste > worst) {
+                        worst = waste;
+                        seed1 = i;
+                        seed2 = j;
+                    }
+                }
+            }
+            boolean[] assigned = new boolean[n];
+            Node[] groups = {this, sibling};
+            int[][] covers = new int[4][2];
+            int[] seeds = {seed1, seed2};
+            for (int g = 0; g < 2; g++) {
+                int s = seeds[g];
+                if (leaf) {
+                    groups[g].add(itemIds[s]);
+                }
+                else {
+                    groups[g].add(left[s], top[s], right[s], bottom[s],
+                            items[s]);
+                }
+                assigned[s] = true;
+                covers[0][g] = left[s];
+                covers[1][g] = top[s];
+                covers[2][g] = right[s];
+                covers[3][g] = bottom[s];
+            }
+
+            for (int remaining = n - 2; remaining > 0; remaining--) {
+                int next = -1;
+                int group = 0;
+                long strongest = -1;
+                for (int i = 0; i < n; i++) {
+                    if (assigned[i]) {
+                        continue;
+                    }
+                    long[] growth = new long[2];
+                    for (int g = 0; g < 2; g++) {
+                        growth[g] = area(Math.min(covers[0][g], left[i]),
+                                Math.min(covers[1][g], top[i]),
+                                Math.max(covers[2][g], right[i]),
+                                Math.max(covers[3][g], bottom[i]))
+                                - area(covers[0][g], covers[1][g],
+                                covers[2][g], covers[3][g]);
+                    }
+                    long preference = Math.abs(growth[0] - growth[1]);
+                    if (preference > strongest) {
+                        strongest = preference;
+                        next = i;
+                        group = preferred(groups, covers, growth);
+                    }
+                }
+                // a group short of children takes all the ones left
+                if (groups[0].count + remaining <= MIN_ENTRIES) {
+                    group = 0;
+                }
+                else if (groups[1].count + remaining <= MIN_ENTRIES) {
+                    group = 1;
+                }
+                if (leaf) {
+                    groups[group].add(itemIds[next]);
+                }
+                else {
+                    groups[group].add(left[next], top[next], right[next],
+                            bottom[next], items[next]);
+                }
+                assigned[next] = true;
+                covers[0][group] = Math.min(covers[0][group], left[next]);
+                covers[1][group] = Math.min(covers[1][group], top[next]);
+                covers[2][group] = Math.max(covers[2][group], right[next]);
+                covers[3][group] = Math.max(covers[3][group], bottom[next]);
+            }
+            return sibling;
+        }
+    }
+}
@@ -0,0 +1,70 @@
+import java.util.function.IntConsumer;
+
+/**
+ * @author Abhinav Sethi
+ * @version 2021-09-26
+ * <p>
+ * Index keeping the ids of the rectangles in an RTree over its store. It
+ * adapts to any distribution of rectangles, and a batch is packed into
+ * full nodes with bulkLoad. This is the engine the Database uses by
+ * default.
+ */
+public class RTreeIndex implements RectangleIndex {
+
+    private RectangleStore store = new RectangleStore();
+    private RTree tree = new RTree(store);
+
+    @Override
+    public int insert(Rectangle r) {
+        int id = store.add(r);
+        tree.insert(id);
+        return id;
+    }
+
+    @Override
+    public void bulkLoad(Rectangle[] rectangles) {
+        store = new RectangleStore();
+        int[] ids = new int[rectangles.length];
+        for (int i = 0; i < rectangles.length; i++) {
+            ids[i] = store.add(rectangles[i]);
+        }
+        tree = new RTree(store);
+        tree.bulkLoad(ids);
+    }
+
+    @Override
+    public void remove(int id) {
+        // the tree finds the id by its rectangle, so it goes first
+        if (store.get(id) == null || !tree.remove(id)) {
+            throw new IllegalArgumentException("no rectangle " + id);
+        }
+        store.remove(id);
+    }
+
+    @Override
+    public int regionSearch(Rectangle region, IntConsumer action) {
+        return tree.regionSearch(region, action);
+    }
+
+    @Override
+    public Rectangle get(int id) {
+        return store.get(id);
+    }
+
+    @Override
+    public boolean matches(int id, Rectangle r) {
+        return store.matches(id, r);
+    }
+
+    @Override
+    public int size() {
+        return store.size();
+    }
+
+    /**
+     * @return the number of levels of the tree, the leaves included
+     */
+    public int height() {
+        return tree.height();
+    }
+}
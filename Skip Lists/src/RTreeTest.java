@@ -0,0 +1,163 @@
+import student.TestCase;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * @author Abhinav Sethi
+ * @version 2021-09-26
+ *
+ * Test class for the R-tree. Random inserts, removals and bulk loads are
+ * checked against a plain list of ids searched by comparing every
+ * rectangle of the store.
+ */
+
+public class RTreeTest extends TestCase {
+
+    /**
+     * store and tree objects re-instantiated before every test case.
+     */
+    private RectangleStore store;
+    private RTree tree;
+
+
+    /**
+     * Set up method for instantiating the tree before every test case.
+     */
+    public void setUp() {
+        store = new RectangleStore();
+        tree = new RTree(store);
+    }
+
+    /**
+     * Test searches on a small tree, with rectangles touching the region
+     * and an empty region.
+     */
+    public void testRegionSearch() {
+        int a = store.add(new Rectangle(0, 0, 10, 10));
+        int b = store.add(new Rectangle(10, 0, 5, 5));
+        tree.insert(a);
+        tree.insert(b);
+        assertEquals("[0]", search(5, 5, 5, 5));
+        assertEquals("[0, 1]", search(9, 0, 2, 1));
+        assertEquals("[]", search(15, 0, 5, 5));
+        // the far edges of the region overflow an int
+        assertEquals("[0, 1]",
+                search(5, 2, Integer.MAX_VALUE, Integer.MAX_VALUE));
+        assertEquals("[1]", search(12, 1, Integer.MAX_VALUE, 1));
+        assertEquals(0, tree.regionSearch(new Rectangle(0, 0, 0, 5),
+            id -> fail()));
+        assertTrue(tree.remove(a));
+        assertFalse(tree.remove(a));
+        // an equal rectangle under another id is not in the tree
+        assertFalse(tree.remove(store.add(new Rectangle(10, 0, 5, 5))));
+        assertEquals(1, tree.size());
+    }
+
+    /**
+     * Test that searches stay right through random inserts and removals,
+     * with many equal rectangles, until the tree is empty again.
+     */
+    public void testRandomUpdates() {
+        Random random = new Random(17);
+        List<Integer> model = new ArrayList<>();
+        for (int step = 0; step < 6000; step++) {
+            if (random.nextInt(3) < 2 || model.isEmpty()) {
+                int id = add(random.nextInt(100), random.nextInt(100),
+                        1 + random.nextInt(10), 1 + random.nextInt(10));
+                tree.insert(id);
+                model.add(id);
+            }
+            else {
+                int id = model.remove(random.nextInt(model.size()));
+                assertTrue(tree.remove(id));
+                store.remove(id);
+            }
+            if (step % 200 == 0) {
+                check(model, random);
+            }
+        }
+        check(model, random);
+        for (int id : model) {
+            assertTrue(tree.remove(id));
+        }
+        assertEquals(0, tree.size());
+        assertEquals(1, tree.height());
+        assertEquals("[]", search(0, 0, 200, 200));
+    }
+
+    /**
+     * Test that a bulk loaded tree is packed into few levels, finds the same
+     * rectangles and keeps working through inserts and removals.
+     */
+    public void testBulkLoad() {
+        Random random = new Random(19);
+        List<Integer> model = new ArrayList<>();
+        int[] ids = new int[5000];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = add(random.nextInt(1000), random.nextInt(1000),
+                    1 + random.nextInt(20), 1 + random.nextInt(20));
+            model.add(ids[i]);
+        }
+        tree.bulkLoad(ids);
+        assertEquals(5000, tree.size());
+        // 313 leaves, then 20 nodes, then 2 nodes and the root
+        assertEquals(4, tree.height());
+        check(model, random);
+
+        int visited = tree.regionSearch(new Rectangle(500, 500, 1, 1),
+            id -> { });
+        assertTrue(visited < 20);
+
+        for (int i = 0; i < 2000; i++) {
+            int id = model.remove(model.size() - 1);
+            assertTrue(tree.remove(id));
+            store.remove(id);
+            id = add(random.nextInt(1000), random.nextInt(1000), 5, 5);
+            tree.insert(id);
+            model.add(id);
+        }
+        check(model, random);
+
+        tree.bulkLoad(new int[0]);
+        assertEquals(0, tree.size());
+        assertEquals("[]", search(0, 0, 1024, 1024));
+    }
+
+    /**
+     * Compare random region searches with the model.
+     *
+     * @param model  ids expected in the tree
+     * @param random source of the regions
+     */
+    private void check(List<Integer> model, Random random) {
+        assertEquals(model.size(), tree.size());
+        for (int i = 0; i < 20; i++) {
+            Rectangle region = new Rectangle(random.nextInt(1000) - 10,
+                    random.nextInt(1000) - 10, 1 + random.nextInt(300),
+                    1 + random.nextInt(300));
+            List<Integer> expected = new ArrayList<>();
+            for (int id : model) {
+                if (store.get(id).intersects(region)) {
+                    expected.add(id);
+                }
+            }
+            List<Integer> actual = new ArrayList<>();
+            tree.regionSearch(region, actual::add);
+            assertEquals(expected.size(), actual.size());
+            assertTrue(actual.containsAll(expected));
+        }
+    }
+
+    private String search(int x, int y, int w, int h) {
+        List<Integer> found = new ArrayList<>();
+        tree.regionSearch(new Rectangle(x, y, w, h), found::add);
+        found.sort(null);
+        return found.toString();
+    }
+
+    private int add(int x, int y, int w, int h) {
+        return store.add(new Rectangle(x, y, w, h));
+    }
+}
@@ -0,0 +1,75 @@
+import java.util.function.IntConsumer;
+
+/**
+ * @author Abhinav Sethi
+ * @version 2021-09-26
+ * <p>
+ * Interface for the spatial indexes that the Database can be backed by.
+ * An index keeps the rectangles of the database in a RectangleStore, the
+ * only copy of them, and refers to each one by its id there, so the
+ * engines only differ in how they find the rectangles intersecting a
+ * region and can be swapped without changing the program output.
+ * Rectangles only touching on an edge or corner do not intersect, and an
+ * empty region intersects nothing, as with Rectangle.intersects.
+ */
+public interface RectangleIndex {
+
+    /**
+     * Size of the world the rectangles of the database lie in
+     */
+    int WORLD_SIZE = 1024;
+
+    /**
+     * Insert a rectangle into the index
+     *
+     * @param r rectangle inside the world
+     * @return id of the rectangle, which may be the id of one removed
+     */
+    int insert(Rectangle r);
+
+    /**
+     * Build the index from a batch of rectangles. The index must be empty
+     * and the rectangles are given the ids 0 to length - 1 in order.
+     *
+     * @param rectangles rectangles inside the world
+     */
+    void bulkLoad(Rectangle[] rectangles);
+
+    /**
+     * Remove a rectangle from the index
+     *
+     * @param id id of the rectangle
+     */
+    void remove(int id);
+
+    /**
+     * Find the rectangles intersecting a region
+     *
+     * @param region the region to search
+     * @param action receives the id of every rectangle found once
+     * @return number of nodes, cells or slots visited
+     */
+    int regionSearch(Rectangle region, IntConsumer action);
+
+    /**
+     * Get a rectangle of the index
+     *
+     * @param id id of the rectangle
+     * @return the rectangle, or null if the id is free
+     */
+    Rectangle get(int id);
+
+    /**
+     * Check a rectangle of the index without creating it
+     *
+     * @param id id of a rectangle in the index
+     * @param r  the coordinates to compare with
+     * @return true if the rectangle has the coordinates of r
+     */
+    boolean matches(int id, Rectangle r);
+
+    /**
+     * @return the number of rectangles in the index
+     */
+    int size();
+}
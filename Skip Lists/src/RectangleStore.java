@@ -0,0 +1,244 @@
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * @author Abhinav Sethi
+ * @version 2021-09-26
+ * <p>
+ * Store of rectangles kept as columns of primitive coordinates, indexed by
+ * a dense id, instead of one Rectangle object each. Scans of the store
+ * read four int arrays in order, without a reference or an object header
+ * per rectangle, in loops the JIT compiles to a few instructions per
+ * rectangle.
+ * <p>
+ * The id of a removed rectangle is given to the next one added, so the ids
+ * stay dense. A free slot has its left edge at Integer.MIN_VALUE and no
+ * width, which no region intersects, so scans need no separate check for
+ * it. Rectangles only touching on an edge or corner do not intersect, and
+ * an empty region intersects nothing, as with Rectangle.intersects.
+ */
+public class RectangleStore {
+
+    /**
+     * Left edge of a free slot
+     */
+    private static final int FREE = Integer.MIN_VALUE;
+
+    private int[] x = new int[16];
+    private int[] y = new int[16];
+    private int[] width = new int[16];
+    private int[] height = new int[16];
+    // ids of the free slots below end, the last freed on top
+    private int[] free = new int[16];
+    private int freeCount;
+    private int end; // one past the highest id ever given
+    private int size;
+
+    /**
+     * @return the number of rectangles in the store
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return one past the highest id in use, the number of slots a scan
+     *         reads
+     */
+    public int end() {
+        return end;
+    }
+
+    /**
+     * Adds a rectangle.
+     *
+     * @param r the rectangle to add
+     * @return the id of the rectangle
+     */
+    public int add(Rectangle r) {
+        int id;
+        if (freeCount > 0) {
+            id = free[--freeCount];
+        }
+        else {
+            if (end == x.length) {
+                int capacity = end * 2;
+                x = Arrays.copyOf(x, capacity);
+                y = Arrays.copyOf(y, capacity);
+                width = Arrays.copyOf(width, capacity);
+                height = Arrays.copyOf(height, capacity);
+            }
+            id = end++;
+        }
+        x[id] = r.x;
+        y[id] = r.y;
+        width[id] = r.width;
+        height[id] = r.height;
+        size++;
+        return id;
+    }
+
+    /**
+     * Removes a rectangle, freeing its id for the next one added.
+     *
+     * @param id the id of the rectangle
+     * @throws IllegalArgumentException if no rectangle has the id
+     */
+    public void remove(int id) {
+        if (id < 0 || id >= end || x[id] == FREE) {
+            throw new IllegalArgumentException("no rectangle " + id);
+        }
+        x[id] = FREE;
+        y[id] = 0;
+        width[id] = 0;
+        height[id] = 0;
+        if (freeCount == free.length) {
+            free = Arrays.copyOf(free, freeCount * 2);
+        }
+        free[freeCount++] = id;
+        size--;
+    }
+
+    /**
+     * Returns a rectangle of the store as a new object.
+     *
+     * @param id the id of the rectangle
+     * @return the rectangle, or null if the id is free
+     */
+    public Rectangle get(int id) {
+        if (id < 0 || id >= end || x[id] == FREE) {
+            return null;
+        }
+        return new Rectangle(x[id], y[id], width[id], height[id]);
+    }
+
+    /**
+     * @param id the id of a rectangle in the store
+     * @return the left edge of the rectangle
+     */
+    public int left(int id) {
+        return x[id];
+    }
+
+    /**
+     * @param id the id of a rectangle in the store
+     * @return the top edge of the rectangle
+     */
+    public int top(int id) {
+        return y[id];
+    }
+
+    /**
+     * @param id the id of a rectangle in the store
+     * @return the right edge of the rectangle
+     */
+    public int right(int id) {
+        return x[id] + width[id];
+    }
+
+    /**
+     * @param id the id of a rectangle in the store
+     * @return the bottom edge of the rectangle
+     */
+    public int bottom(int id) {
+        return y[id] + height[id];
+    }
+
+    /**
+     * Checks whether a rectangle of the store has the given coordinates.
+     *
+     * @param id the id of the rectangle
+     * @param r  the coordinates to compare with
+     * @return true if the rectangle is r
+     */
+    public boolean matches(int id, Rectangle r) {
+        return x[id] == r.x && y[id] == r.y && width[id] == r.width
+                && height[id] == r.height;
+    }
+
+    /**
+     * Checks whether a rectangle of the store intersects a region.
+     *
+     * @param id     the id of the rectangle
+     * @param region the region
+     * @return true if they intersect
+     */
+    public boolean intersects(int id, Rectangle region) {
+        if (region.width <= 0 || region.height <= 0) {
+            return false;
+        }
+        return intersects(id, region.x, region.y,
+                RTree.farEdge(region.x, region.width),
+                RTree.farEdge(region.y, region.height));
+    }
+
+    /**
+     * Checks whether a rectangle of the store intersects a box given by
+     * its edges.
+     *
+     * @param id the id of the rectangle
+     * @param x1 left edge of the box
+     * @param y1 top edge of the box
+     * @param x2 right edge of the box
+     * @param y2 bottom edge of the box
+     * @return true if they intersect
+     */
+    public boolean intersects(int id, int x1, int y1, int x2, int y2) {
+        return x[id] < x2 && x1 < x[id] + width[id]
+                && y[id] < y2 && y1 < y[id] + height[id];
+    }
+
+    /**
+     * Finds the rectangles intersecting a region by scanning the columns.
+     *
+     * @param region the region to search
+     * @param action receives the id of every rectangle found, in id order
+     * @return number of slots scanned
+     */
+    public int regionSearch(Rectangle region, IntConsumer action) {
+        if (region.width <= 0 || region.height <= 0) {
+            return 0;
+        }
+        int x1 = region.x;
+        int y1 = region.y;
+        int x2 = RTree.farEdge(region.x, region.width);
+        int y2 = RTree.farEdge(region.y, region.height);
+        int[] xs = x;
+        int[] ys = y;
+        int[] ws = width;
+        int[] hs = height;
+        for (int i = 0; i < end; i++) {
+            if (xs[i] < x2 && x1 < xs[i] + ws[i]
+                    && ys[i] < y2 && y1 < ys[i] + hs[i]) {
+                action.accept(i);
+            }
+        }
+        return end;
+    }
+
+    /**
+     * Finds every pair of intersecting rectangles by comparing each one
+     * with all the others. Every pair is reported in both orders, sorted by
+     * the id of the first rectangle and then of the second.
+     *
+     * @param visitor receives the ids of every pair
+     */
+    public void intersections(IntersectionSweep.Visitor visitor) {
+        int[] xs = x;
+        int[] ys = y;
+        int[] ws = width;
+        int[] hs = height;
+        for (int i = 0; i < end; i++) {
+            int x1 = xs[i];
+            int y1 = ys[i];
+            int x2 = x1 + ws[i];
+            int y2 = y1 + hs[i];
+            for (int j = 0; j < end; j++) {
+                if (xs[j] < x2 && x1 < xs[j] + ws[j]
+                        && ys[j] < y2 && y1 < ys[j] + hs[j] && i != j) {
+                    visitor.visit(i, j);
+                }
+            }
+        }
+    }
+}
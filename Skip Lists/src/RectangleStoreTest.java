@@ -0,0 +1,144 @@
+import student.TestCase;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * @author Abhinav Sethi
+ * @version 2021-09-26
+ *
+ * Test class for the columnar rectangle store. Random adds and removals are
+ * checked against an array of rectangles indexed by id.
+ */
+
+public class RectangleStoreTest extends TestCase {
+
+    /**
+     * store object re-instantiated before every test case.
+     */
+    private RectangleStore store;
+
+
+    /**
+     * Set up method for instantiating the store before every test case.
+     */
+    public void setUp() {
+        store = new RectangleStore();
+    }
+
+    /**
+     * Test adds, removals and the reuse of ids on a small store.
+     */
+    public void testAddRemove() {
+        assertEquals(0, store.add(new Rectangle(0, 0, 10, 10)));
+        assertEquals(1, store.add(new Rectangle(10, 0, 5, 5)));
+        assertEquals("10, 0, 5, 5", store.get(1).toString());
+        assertTrue(store.matches(1, new Rectangle(10, 0, 5, 5)));
+        assertTrue(store.intersects(0, new Rectangle(9, 9, 5, 5)));
+        assertFalse(store.intersects(1, new Rectangle(9, 5, 5, 5)));
+        assertFalse(store.intersects(0, new Rectangle(5, 5, 0, 5)));
+
+        store.remove(0);
+        assertNull(store.get(0));
+        assertEquals("[1]", search(-5, -5, 100, 100));
+        // the far edges of the region overflow an int
+        assertEquals("[1]", search(12, 1, Integer.MAX_VALUE,
+                Integer.MAX_VALUE));
+        assertTrue(store.intersects(1, new Rectangle(14, 4,
+                Integer.MAX_VALUE, Integer.MAX_VALUE)));
+        Exception thrown = null;
+        try {
+            store.remove(0);
+        }
+        catch (IllegalArgumentException e) {
+            thrown = e;
+        }
+        assertNotNull(thrown);
+        assertEquals(0, store.add(new Rectangle(1, 1, 1, 1)));
+        assertEquals(2, store.size());
+        assertEquals(2, store.end());
+        assertEquals("[0, 1]", search(0, 0, 100, 100));
+        assertEquals(0, store.regionSearch(new Rectangle(0, 0, 5, 0),
+            id -> fail()));
+    }
+
+    /**
+     * Test that searches and intersections stay right through random adds
+     * and removals, with freed ids reused.
+     */
+    public void testRandomUpdates() {
+        Random random = new Random(31);
+        List<Rectangle> model = new ArrayList<>();
+        for (int step = 0; step < 3000; step++) {
+            List<Integer> used = new ArrayList<>();
+            for (int id = 0; id < model.size(); id++) {
+                if (model.get(id) != null) {
+                    used.add(id);
+                }
+            }
+            if (random.nextInt(3) < 2 || used.isEmpty()) {
+                Rectangle r = new Rectangle(random.nextInt(100),
+                        random.nextInt(100), 1 + random.nextInt(10),
+                        1 + random.nextInt(10));
+                int id = store.add(r);
+                while (model.size() <= id) {
+                    model.add(null);
+                }
+                assertNull(model.set(id, r));
+            }
+            else {
+                int id = used.get(random.nextInt(used.size()));
+                store.remove(id);
+                model.set(id, null);
+            }
+            if (step % 300 == 0) {
+                check(model, random);
+            }
+        }
+        check(model, random);
+    }
+
+    /**
+     * Compare random region searches and the intersections with the model.
+     *
+     * @param model  rectangles expected in the store by id
+     * @param random source of the regions
+     */
+    private void check(List<Rectangle> model, Random random) {
+        for (int i = 0; i < 20; i++) {
+            Rectangle region = new Rectangle(random.nextInt(100) - 10,
+                    random.nextInt(100) - 10, 1 + random.nextInt(50),
+                    1 + random.nextInt(50));
+            List<Integer> expected = new ArrayList<>();
+            for (int id = 0; id < model.size(); id++) {
+                if (model.get(id) != null
+                        && model.get(id).intersects(region)) {
+                    expected.add(id);
+                }
+            }
+            List<Integer> actual = new ArrayList<>();
+            store.regionSearch(region, actual::add);
+            assertEquals(expected, actual);
+        }
+        StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < model.size(); i++) {
+            for (int j = 0; j < model.size(); j++) {
+                if (i != j && model.get(i) != null && model.get(j) != null
+                        && model.get(i).intersects(model.get(j))) {
+                    expected.append(i).append(' ').append(j).append(' ');
+                }
+            }
+        }
+        StringBuilder actual = new StringBuilder();
+        store.intersections((first, second) ->
+                actual.append(first).append(' ').append(second).append(' '));
+        assertEquals(expected.toString(), actual.toString());
+    }
+
+    private String search(int x, int y, int w, int h) {
+        List<Integer> found = new ArrayList<>();
+        store.regionSearch(new Rectangle(x, y, w, h), found::add);
+        return found.toString();
+    }
+}
@@ -0,0 +1,52 @@
+import java.util.function.IntConsumer;
+
+/**
+ * @author Abhinav Sethi
+ * @version 2021-09-26
+ * <p>
+ * Index without any structure: every region search scans the columns of
+ * the whole RectangleStore. Updates cost nothing beyond the store, so it
+ * is the baseline the other engines are measured against.
+ */
+public class ScanIndex implements RectangleIndex {
+
+    private RectangleStore store = new RectangleStore();
+
+    @Override
+    public int insert(Rectangle r) {
+        return store.add(r);
+    }
+
+    @Override
+    public void bulkLoad(Rectangle[] rectangles) {
+        store = new RectangleStore();
+        for (Rectangle r : rectangles) {
+            store.add(r);
+        }
+    }
+
+    @Override
+    public void remove(int id) {
+        store.remove(id);
+    }
+
+    @Override
+    public int regionSearch(Rectangle region, IntConsumer action) {
+        return store.regionSearch(region, action);
+    }
+
+    @Override
+    public Rectangle get(int id) {
+        return store.get(id);
+    }
+
+    @Override
+    public boolean matches(int id, Rectangle r) {
+        return store.matches(id, r);
+    }
+
+    @Override
+    public int size() {
+        return store.size();
+    }
+}
@@ -0,0 +1,231 @@
+import student.TestCase;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * @author Abhinav Sethi
+ * @version 2021-09-26
+ *
+ * Test class for the positional methods of the SkipList. Random inserts
+ * and removals are checked against a plain list kept in the same order.
+ */
+
+public class SkipListTest extends TestCase {
+
+    /**
+     * list object re-instantiated before every test case.
+     */
+    private SkipList<String, Integer> list;
+
+
+    /**
+     * Set up method for instantiating the list before every test case.
+     */
+    public void setUp() {
+        list = new SkipList<>();
+    }
+
+    /**
+     * Test get, rank and count on a small list.
+     */
+    public void testPositions() {
+        list.insert(new KVPair<>("c", 1));
+        list.insert(new KVPair<>("a", 2));
+        list.insert(new KVPair<>("e", 3));
+        list.insert(new KVPair<>("c", 4));
+        assertEquals("a, 2", list.get(0).toString());
+        assertEquals("e, 3", list.get(3).toString());
+        assertEquals(0, list.rank("a"));
+        assertEquals(1, list.rank("b"));
+        assertEquals(1, list.rank("c"));
+        assertEquals(3, list.rank("d"));
+        assertEquals(4, list.rank("f"));
+        assertEquals(2, list.count("c", "c"));
+        assertEquals(3, list.count("b", "e"));
+        assertEquals(0, list.count("e", "a"));
+
+        Exception exception = null;
+        try {
+            list.get(4);
+        }
+        catch (IndexOutOfBoundsException e) {
+            exception = e;
+        }
+        assertNotNull(exception);
+    }
+
+    /**
+     * Test floor, lower, ceiling, higher and the range and prefix scans.
+     */
+    public void testNavigation() {
+        assertNull(list.floor("a"));
+        assertNull(list.ceiling("a"));
+        assertFalse(list.subList("a", "z").iterator().hasNext());
+        list.insert(new KVPair<>("ab", 1));
+        list.insert(new KVPair<>("b", 2));
+        list.insert(new KVPair<>("abc", 3));
+        list.insert(new KVPair<>("b", 4));
+        list.insert(new KVPair<>("ac", 5));
+        assertEquals("b, 2", list.floor("b").toString());
+        assertEquals("ac, 5", list.lower("b").toString());
+        assertEquals("b, 4", list.ceiling("b").toString());
+        assertNull(list.higher("b"));
+        assertNull(list.lower("ab"));
+        assertEquals("ab, 1", list.ceiling("a").toString());
+        assertEquals("[abc, 3, ac, 5]",
+                text(list.subList("abb", "ac")));
+        assertEquals("[ab, 1, abc, 3]", text(list.prefix("ab")));
+        assertEquals("[]", text(list.prefix("bb")));
+    }
+
+    /**
+     * Test that the positions stay right through random inserts, removals
+     * by key and removals by value with many equal keys.
+     */
+    public void testRandomUpdates() {
+        Random random = new Random(7);
+        List<KVPair<String, Integer>> model = new ArrayList<>();
+        for (int step = 0; step < 3000; step++) {
+            String key = "k" + random.nextInt(100);
+            int action = random.nextInt(4);
+            if (action < 2 || model.isEmpty()) {
+                KVPair<String, Integer> pair = new KVPair<>(key, step);
+                list.insert(pair);
+                model.add(firstIndex(model, key), pair);
+            }
+            else if (action == 2) {
+                KVPair<String, Integer> removed = list.remove(key);
+                int index = firstIndex(model, key);
+                if (index < model.size()
+                        && model.get(index).getKey().equals(key)) {
+                    assertSame(model.remove(index), removed);
+                }
+                else {
+                    assertNull(removed);
+                }
+            }
+            else {
+                KVPair<String, Integer> pair =
+                        model.get(random.nextInt(model.size()));
+                assertSame(pair, list.removeByValue(pair.getValue()));
+                model.remove(pair);
+            }
+            if (step % 100 == 0) {
+                check(model);
+            }
+        }
+        check(model);
+    }
+
+    /**
+     * Test building a list from sorted pairs and merging sorted batches
+     * into it, with equal keys in the list and the batches.
+     */
+    public void testBulkBuild() {
+        Random random = new Random(11);
+        List<KVPair<String, Integer>> model = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            model.add(new KVPair<>("k" + random.nextInt(100), i));
+        }
+        model.sort(null);
+        list = SkipList.build(model);
+        check(model);
+
+        for (int round = 0; round < 5; round++) {
+            List<KVPair<String, Integer>> batch = new ArrayList<>();
+            for (int i = 0; i < 50 * round; i++) {
+                batch.add(new KVPair<>("k" + random.nextInt(120), i));
+            }
+            batch.sort(null);
+            list.insertAll(batch);
+            // inserting the batch backwards one by one gives the same order
+            for (int i = batch.size() - 1; i >= 0; i--) {
+                String key = batch.get(i).getKey();
+                model.add(firstIndex(model, key), batch.get(i));
+            }
+            check(model);
+        }
+
+        List<KVPair<String, Integer>> unsorted = new ArrayList<>();
+        unsorted.add(new KVPair<>("b", 1));
+        unsorted.add(new KVPair<>("a", 2));
+        Exception exception = null;
+        try {
+            list.insertAll(unsorted);
+        }
+        catch (IllegalArgumentException e) {
+            exception = e;
+        }
+        assertNotNull(exception);
+        check(model);
+        exception = null;
+        try {
+            SkipList.build(unsorted);
+        }
+        catch (IllegalArgumentException e) {
+            exception = e;
+        }
+        assertNotNull(exception);
+    }
+
+    /**
+     * Compare the list with the model through every positional method.
+     *
+     * @param model pairs expected in list order
+     */
+    private void check(List<KVPair<String, Integer>> model) {
+        assertEquals(model.size(), list.size());
+        int i = 0;
+        for (KVPair<String, Integer> pair : list) {
+            assertSame(model.get(i), pair);
+            assertSame(pair, list.get(i));
+            i++;
+        }
+        for (int k = 0; k <= 100; k += 7) {
+            String key = "k" + k;
+            assertEquals(firstIndex(model, key), list.rank(key));
+            // keys compare as text, so the range may be empty
+            String to = "k" + (k + 20) + "~";
+            assertEquals(Math.max(0, firstIndex(model, to)
+                    - firstIndex(model, key)), list.count(key, to));
+
+            int from = firstIndex(model, key);
+            int end = Math.max(from, firstIndex(model, to));
+            assertEquals(model.subList(from, end).toString(),
+                    text(list.subList(key, to)));
+            assertSame(from > 0 ? model.get(from - 1) : null,
+                    list.lower(key));
+            assertSame(from < model.size() ? model.get(from) : null,
+                    list.ceiling(key));
+            int after = firstIndex(model, key + "!");
+            assertSame(after > 0 ? model.get(after - 1) : null,
+                    list.floor(key));
+            assertSame(after < model.size() ? model.get(after) : null,
+                    list.higher(key));
+            String prefix = "k" + k / 10;
+            assertEquals(model.subList(firstIndex(model, prefix),
+                    firstIndex(model, prefix + "~")).toString(),
+                    text(list.prefix(prefix)));
+        }
+    }
+
+    private static String text(Iterable<KVPair<String, Integer>> pairs) {
+        List<KVPair<String, Integer>> list = new ArrayList<>();
+        for (KVPair<String, Integer> pair : pairs) {
+            list.add(pair);
+        }
+        return list.toString();
+    }
+
+    private static int firstIndex(List<KVPair<String, Integer>> model,
+                                  String key) {
+        int index = 0;
+        while (index < model.size()
+                && model.get(index).getKey().compareTo(key) < 0) {
+            index++;
+        }
+        return index;
+    }
+}